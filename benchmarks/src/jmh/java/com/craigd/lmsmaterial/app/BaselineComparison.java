@@ -0,0 +1,119 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prints a JMH JSON result against the baseline, one line per benchmark and parameter set: time
+ * (or throughput) and bytes allocated per operation, with the change from the baseline. Changes
+ * within the run's score error are marked with "~". Benchmarks only in the baseline are left out,
+ * so that runs of just some of them (-Pinclude) can be compared too.
+ * <p>
+ * Usage: BaselineComparison baseline.json results.json
+ */
+public final class BaselineComparison {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BaselineComparison() {
+    }
+
+    private static final class Result {
+        final double score;
+        final double error;
+        final String unit;
+        final double allocated;
+
+        Result(JSONObject json) {
+            JSONObject primary = json.getJSONObject("primaryMetric");
+            score = primary.getDouble("score");
+            error = primary.optDouble("scoreError", 0.0);
+            unit = primary.getString("scoreUnit");
+            JSONObject secondary = json.optJSONObject("secondaryMetrics");
+            JSONObject allocation = null == secondary ? null : secondary.optJSONObject(ALLOCATION);
+            allocated = null == allocation ? Double.NaN : allocation.getDouble("score");
+        }
+    }
+
+    static Map<String, Result> read(String path) throws IOException {
+        JSONArray results = new JSONArray(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        Map<String, Result> byName = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); ++i) {
+            JSONObject result = results.getJSONObject(i);
+            byName.put(name(result), new Result(result));
+        }
+        return byName;
+    }
+
+    private static String name(JSONObject result) {
+        String name = result.getString("benchmark").replaceFirst("^com\\.craigd\\.lmsmaterial\\.app\\.", "");
+        JSONObject params = result.optJSONObject("params");
+        if (null == params || params.isEmpty()) {
+            return name;
+        }
+        // Sorted, as the order of the keys in the file is not kept
+        Map<String, Object> sorted = new TreeMap<>(params.toMap());
+        StringBuilder builder = new StringBuilder(name);
+        for (Map.Entry<String, Object> param : sorted.entrySet()) {
+            builder.append(builder.length() == name.length() ? " " : ",").append(param.getKey()).append('=').append(param.getValue());
+        }
+        return builder.toString();
+    }
+
+    private static String change(double baseline, double current, boolean withinError) {
+        if (Double.isNaN(baseline) || Double.isNaN(current)) {
+            return "";
+        }
+        if (0.0 == baseline) {
+            return 0.0 == current ? "~" : "new";
+        }
+        return String.format(Locale.ROOT, "%s%+.0f%%", withinError ? "~" : "", (current - baseline) * 100.0 / baseline);
+    }
+
+    private static String bytes(double allocated) {
+        return Double.isNaN(allocated) ? "-" : String.format(Locale.ROOT, "%.0f B", allocated);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (2 != args.length) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json>");
+            System.exit(1);
+        }
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        int width = "Benchmark".length();
+        for (String name : current.keySet()) {
+            width = Math.max(width, name.length());
+        }
+        String format = "%-" + width + "s %20s %8s %12s %8s%n";
+        System.out.printf(Locale.ROOT, format, "Benchmark", "Score", "Change", "Alloc/op", "Change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result then = baseline.get(entry.getKey());
+            String score = String.format(Locale.ROOT, "%.3f %s", now.score, now.unit);
+            if (null == then || !then.unit.equals(now.unit)) {
+                System.out.printf(Locale.ROOT, format, entry.getKey(), score, "new", bytes(now.allocated), "");
+                continue;
+            }
+            boolean withinError = Math.abs(now.score - then.score) <= Math.max(now.error, then.error);
+            System.out.printf(Locale.ROOT, format, entry.getKey(), score,
+                    change(then.score, now.score, withinError), bytes(now.allocated),
+                    change(then.allocated, now.allocated, false));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of UDP discovery replies, as done by ServerDiscovery.Server for each reply received.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DiscoveryBenchmark {
+    private byte[] packet;
+    private int length;
+
+    @Setup
+    public void setup() {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        reply.write('E');
+        add(reply, "NAME", "Living Room Server \u2013 LMS");
+        add(reply, "JSON", "9000");
+        add(reply, "VERS", "8.5.2");
+        add(reply, "UUID", "0123abcd-4567-89ef-0123-456789abcdef");
+        length = reply.size();
+        // Replies are read into a larger, fixed size, buffer
+        packet = new byte[1500];
+        System.arraycopy(reply.toByteArray(), 0, packet, 0, length);
+    }
+
+    private static void add(ByteArrayOutputStream reply, String key, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        reply.write(key.getBytes(StandardCharsets.US_ASCII), 0, 4);
+        reply.write(bytes.length);
+        reply.write(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public DiscoveryReply parse() {
+        return DiscoveryReply.parse(packet, length);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DownloadService's handling of a list of tracks to download, and of the status updates it sends
+ * to the web view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownloadBenchmark {
+    private static final int MAX_QUEUED_ITEMS = 4;
+
+    /**
+     * Number of tracks requested for download.
+     */
+    @Param({"12", "200"})
+    public int tracks;
+
+    private JSONArray request;
+    private final List<DownloadItem> queued = new LinkedList<>();
+    private final List<DownloadItem> items = new LinkedList<>();
+
+    @Setup
+    public void setup() throws JSONException {
+        request = new JSONArray();
+        for (int i = 0; i < tracks; ++i) {
+            JSONObject track = new JSONObject();
+            track.put("id", 1000 + i);
+            track.put("title", "Track " + i + ": \"Live\"");
+            track.put("ext", "flac");
+            track.put("artist", "Some Artist");
+            track.put("album", "An Album / Deluxe Edition");
+            track.put("tracknum", i % 12 + 1);
+            track.put("disc", i / 12 + 1);
+            track.put("album_id", 50 + i / 12);
+            request.put(track);
+        }
+        for (DownloadItem item : create()) {
+            (queued.size() < MAX_QUEUED_ITEMS ? queued : items).add(item);
+        }
+    }
+
+    /**
+     * Items, and their download file names, for each track in the request.
+     */
+    @Benchmark
+    public List<DownloadItem> create() throws JSONException {
+        List<DownloadItem> created = new LinkedList<>();
+        for (int i = 0; i < request.length(); ++i) {
+            DownloadItem item = new DownloadItem((JSONObject) request.get(i), true);
+            item.getFolder();
+            item.getDownloadFileName();
+            created.add(item);
+        }
+        return created;
+    }
+
+    /**
+     * The status update for the web view, as built by DownloadService.sendStatusUpdate.
+     */
+    @Benchmark
+    public String status() throws JSONException {
+        JSONArray update = new JSONArray();
+        for (DownloadItem item : queued) {
+            update.put(item.toObject(true));
+        }
+        for (DownloadItem item : items) {
+            update.put(item.toObject(false));
+        }
+        return update.toString(0);
+    }
+}
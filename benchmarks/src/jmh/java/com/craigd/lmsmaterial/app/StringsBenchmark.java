@@ -0,0 +1,35 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringsBenchmark {
+    @Param({
+            "Kitchen",
+            "https://i.scdn.co/image/ab67616d0000b273abcdef0123456789",
+            "Sigur R\u00f3s - \u00c1g\u00e6tis byrjun (Remastered) ~ 'Live' (1999)!"
+    })
+    public String value;
+
+    @Benchmark
+    public String encodeURIComponent() {
+        return Strings.encodeURIComponent(value);
+    }
+}
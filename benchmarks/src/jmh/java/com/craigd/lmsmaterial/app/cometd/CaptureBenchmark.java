@@ -0,0 +1,106 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The response path of HttpStreamingTransport fed with a recorded connection (see Recording),
+ * one socket read at a time, and decoding of the recorded payloads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CaptureBenchmark {
+    private List<byte[]> reads;
+    private List<byte[]> frames;
+    private Blackhole blackhole;
+    private HttpResponseParser parser;
+    private JsonFramer framer;
+    private final ContentDecoder decoder = new ContentDecoder();
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) throws IOException {
+        this.blackhole = blackhole;
+        reads = Recording.reads();
+        frames = Recording.frames();
+        framer = new JsonFramer((json, length) -> blackhole.consume(length));
+        ContentDecoder.Sink sink = framer::append;
+        parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+            @Override
+            public void onStatus(int status) {
+                framer.reset();
+                decoder.end();
+            }
+
+            @Override
+            public void onHeader(String name, String value) {
+                if ("content-encoding".equals(name)) {
+                    String encoding = value.trim().toLowerCase(Locale.ENGLISH);
+                    if (ContentDecoder.isSupported(encoding)) {
+                        decoder.begin(encoding);
+                    }
+                }
+            }
+
+            @Override
+            public void onContent(ByteBuffer content) throws IOException {
+                if (decoder.isActive()) {
+                    decoder.decode(content, sink);
+                } else {
+                    framer.append(content);
+                }
+            }
+
+            @Override
+            public void onComplete(boolean keepAlive) {
+                blackhole.consume(keepAlive);
+            }
+        });
+    }
+
+    /**
+     * HTTP parsing and JSON framing of the whole recording - everything up to, but not including,
+     * decoding the messages.
+     */
+    @Benchmark
+    public void framing() throws IOException {
+        // The recording ends part way through the streaming response
+        parser.reset();
+        framer.reset();
+        for (byte[] read : reads) {
+            parser.parse(ByteBuffer.wrap(read));
+        }
+    }
+
+    /**
+     * Decoding of every payload in the recording into messages - replies, and serverstatus and
+     * playerstatus pushes, as the server sent them.
+     */
+    @Benchmark
+    public void decode() throws ParseException {
+        for (byte[] frame : frames) {
+            blackhole.consume(BayeuxJsonDecoder.decode(frame, 0, frame.length));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A recorded /cometd connection, made with {@link HttpStreamingTransport#CAPTURE_DIR_OPTION}:
+ * handshake, connect and subscriptions, then serverstatus and playerstatus pushes for two
+ * players, with a pause and a change of track and player along the way. Unlike SampleData this
+ * keeps the server's own chunking, and the socket reads exactly as they happened - so chunks,
+ * and chunk headers, split across reads just as they do on a real connection.
+ * <p>
+ * To benchmark against a capture of a real server, make one with a debug build (create
+ * cometd-captures in the app's cache directory) and replace status-stream.cap with it.
+ */
+final class Recording {
+    static final String RESOURCE = "status-stream.cap";
+
+    private Recording() {
+    }
+
+    /**
+     * @return Everything read from the socket, one array per read.
+     */
+    static List<byte[]> reads() throws IOException {
+        List<byte[]> reads = new ArrayList<>();
+        try (InputStream in = Recording.class.getResourceAsStream(RESOURCE)) {
+            if (null == in) {
+                throw new FileNotFoundException(RESOURCE);
+            }
+            StreamCapture.read(in, (type, nanos, data, length) -> {
+                if (StreamCapture.RECEIVED == type) {
+                    reads.add(Arrays.copyOf(data, length));
+                }
+            });
+        }
+        return reads;
+    }
+
+    /**
+     * @return The JSON of each response, or chunk, as framed from the reads - i.e. the payloads
+     *     that are decoded into messages. The recording is not compressed.
+     */
+    static List<byte[]> frames() throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        JsonFramer framer = new JsonFramer((json, length) -> frames.add(Arrays.copyOf(json, length)));
+        HttpResponseParser parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+            @Override
+            public void onStatus(int status) {
+                framer.reset();
+            }
+
+            @Override
+            public void onHeader(String name, String value) {
+            }
+
+            @Override
+            public void onContent(ByteBuffer content) {
+                framer.append(content);
+            }
+
+            @Override
+            public void onComplete(boolean keepAlive) {
+            }
+        });
+        for (byte[] read : reads()) {
+            parser.parse(ByteBuffer.wrap(read));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Traffic shaped like that of a real LMS streaming connection.
+ */
+final class SampleData {
+    static final String SERVER = "http://192.168.1.10:9000";
+    static final String PLAYER = "aa:bb:cc:dd:ee:01";
+
+    private SampleData() {
+    }
+
+    /**
+     * @return A /slim/playerstatus message, with tracks entries in the playlist.
+     */
+    static String playerStatus(int tracks, int seq) {
+        StringBuilder json = new StringBuilder(256 + tracks * 320);
+        json.append("{\"channel\":\"/abc123/slim/playerstatus/").append(PLAYER).append("\",\"id\":\"").append(seq)
+                .append("\",\"data\":{\"player_name\":\"Kitchen\",\"player_connected\":1,\"power\":1,\"mode\":\"play\"")
+                .append(",\"time\":").append(12.5 + seq).append(",\"rate\":1,\"duration\":245.333")
+                .append(",\"mixer volume\":35,\"playlist repeat\":0,\"playlist shuffle\":0,\"playlist mode\":\"off\"")
+                .append(",\"seq_no\":").append(seq).append(",\"playlist_cur_index\":\"0\",\"playlist_timestamp\":1760000000.123")
+                .append(",\"playlist_tracks\":").append(tracks).append(",\"playlist_loop\":[");
+        for (int i = 0; i < tracks; ++i) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"playlist index\":").append(i).append(",\"id\":").append(1000 + i)
+                    .append(",\"title\":\"Track ").append(i).append(" \\u2013 \\\"Live\\\"\",\"artist\":\"Some Artist\"")
+                    .append(",\"album\":\"An Album (Deluxe Edition)\",\"duration\":").append(180 + i).append(".5")
+                    .append(",\"coverid\":\"").append(Integer.toHexString(0x5a7f00 + i)).append("\"")
+                    .append(",\"artwork_url\":\"/music/").append(Integer.toHexString(0x5a7f00 + i)).append("/cover.jpg\"")
+                    .append(",\"year\":\"2019\",\"tracknum\":\"").append(i + 1).append("\",\"url\":\"file:///music/some%20artist/track").append(i).append(".flac\"}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * @return The raw bytes of a chunked HTTP response carrying count status pushes, one per
+     *     chunk, as sent on a streaming connection.
+     */
+    static byte[] streamingResponse(int count, int tracks, boolean gzip) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(chunk("[{\"channel\":\"/meta/connect\",\"successful\":true,\"advice\":{\"interval\":0,\"reconnect\":\"retry\",\"timeout\":60000}}]"));
+        for (int i = 0; i < count; ++i) {
+            body.write(chunk("[" + playerStatus(tracks, i) + "]"));
+        }
+        body.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(("HTTP/1.1 200 OK\r\nServer: Logitech Media Server (8.5.2)\r\nContent-Type: application/json\r\n" +
+                (gzip ? "Content-Encoding: gzip\r\n" : "") + "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        if (gzip) {
+            // Compress the whole de-chunked body, then chunk it again
+            byte[] plain = dechunk(body.toByteArray());
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(plain);
+            }
+            byte[] data = compressed.toByteArray();
+            for (int pos = 0; pos < data.length; pos += 4096) {
+                int len = Math.min(4096, data.length - pos);
+                response.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                response.write(data, pos, len);
+                response.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            response.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else {
+            response.write(body.toByteArray());
+        }
+        return response.toByteArray();
+    }
+
+    private static byte[] chunk(String json) {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+        byte[] size = (Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] chunk = new byte[size.length + data.length + 2];
+        System.arraycopy(size, 0, chunk, 0, size.length);
+        System.arraycopy(data, 0, chunk, size.length, data.length);
+        chunk[chunk.length - 2] = '\r';
+        chunk[chunk.length - 1] = '\n';
+        return chunk;
+    }
+
+    private static byte[] dechunk(byte[] chunked) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (true) {
+            int eol = pos;
+            while (chunked[eol] != '\r') {
+                eol++;
+            }
+            int size = Integer.parseInt(new String(chunked, pos, eol - pos, StandardCharsets.US_ASCII), 16);
+            if (0 == size) {
+                return out.toByteArray();
+            }
+            out.write(chunked, eol + 2, size);
+            pos = eol + 2 + size + 2;
+        }
+    }
+}
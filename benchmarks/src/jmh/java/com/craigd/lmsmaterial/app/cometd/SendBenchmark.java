@@ -0,0 +1,153 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request path of HttpStreamingTransport: a command published through send(), encoded to
+ * JSON and then bytes, and written with its headers - to a connection that discards the bytes.
+ * <p>
+ * Exchanges are only cleared by a reply, so the connection answers each write with the server's
+ * ack, and send() includes reading that. encode() is the JSON encoding on its own.
+ * <p>
+ * The gc profiler is on for the benchmarks, so gc.alloc.rate.norm gives the bytes allocated per
+ * send.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SendBenchmark {
+    // Commands are reused once their reply has been read, so only a few are needed
+    private static final int COMMANDS = 64;
+
+    private final List<List<BayeuxMessage>> commands = new ArrayList<>(COMMANDS);
+    private final ByteBuffer[] replies = new ByteBuffer[COMMANDS];
+    private HttpStreamingTransport transport;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        for (int i = 0; i < COMMANDS; ++i) {
+            BayeuxMessage message = new BayeuxMessage("/slim/request");
+            message.setId(Integer.toString(i));
+            Map<String, Object> data = new HashMap<>(2);
+            data.put("request", Arrays.asList(SampleData.PLAYER, Arrays.asList("playlist", "index", "+1")));
+            data.put("response", "/abc123/slim/request");
+            message.setData(data);
+            commands.add(Collections.singletonList(message));
+
+            byte[] json = ("[{\"channel\":\"/slim/request\",\"id\":\"" + i + "\",\"successful\":true}]").getBytes(StandardCharsets.UTF_8);
+            byte[] reply = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + json.length + "\r\n\r\n" +
+                    new String(json, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            replies[i] = ByteBuffer.wrap(reply).asReadOnlyBuffer();
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        // Commands would otherwise wait for a second connection, opened on another thread
+        options.put(HttpStreamingTransport.COMMAND_CONNECTION_OPTION, false);
+        transport = new HttpStreamingTransport("http://127.0.0.1:9000/cometd", options) {
+            @Override
+            DelegateConnection newDelegateConnection(String host, boolean secure) {
+                return new DiscardConnection(blackhole);
+            }
+        };
+        transport.setListener(new HttpStreamingTransport.Listener() {
+            @Override
+            public void onSending(List<BayeuxMessage> messages) {
+            }
+
+            @Override
+            public void onMessages(List<BayeuxMessage> messages) {
+                blackhole.consume(messages);
+            }
+
+            @Override
+            public void onFailure(Throwable failure, List<BayeuxMessage> messages) {
+                throw new IllegalStateException(failure);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transport.terminate();
+    }
+
+    @Benchmark
+    public void send() {
+        transport.send(commands.get(next));
+        next = (next + 1) % COMMANDS;
+    }
+
+    @Benchmark
+    public String encode() {
+        List<BayeuxMessage> command = commands.get(next);
+        next = (next + 1) % COMMANDS;
+        return BayeuxJsonEncoder.encode(command);
+    }
+
+    /**
+     * Discards what is written, and answers with the reply to the command written.
+     */
+    private class DiscardConnection implements DelegateConnection {
+        private final Blackhole blackhole;
+        private Listener listener;
+
+        DiscardConnection(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void connect(InetSocketAddress address, int timeout, Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return listener != null;
+        }
+
+        @Override
+        public void write(Runnable onWritten, ByteBuffer... buffers) throws IOException {
+            for (ByteBuffer buffer : buffers) {
+                blackhole.consume(buffer.remaining());
+            }
+            if (onWritten != null) {
+                onWritten.run();
+            }
+            listener.onData(replies[next].duplicate());
+        }
+
+        @Override
+        public void close() {
+            listener = null;
+        }
+    }
+}
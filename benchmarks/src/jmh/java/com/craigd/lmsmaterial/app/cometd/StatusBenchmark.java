@@ -0,0 +1,71 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of player status to what is shown in notifications, as done by CometClient for every
+ * status push.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatusBenchmark {
+    /**
+     * The kinds of artwork_url that LMS sends.
+     */
+    @Param({
+            "/music/5a7f01/cover.jpg",
+            "5a7f01",
+            "html/images/radio.png",
+            "plugins/Spotty/html/images/icon.png",
+            "https://i.scdn.co/image/ab67616d0000b273abcdef0123456789",
+            "http://192.168.1.20/art/cover.jpg",
+            "/imageproxy/https%3A%2F%2Fexample.com%2Fa.jpg/image.jpg"
+    })
+    public String image;
+
+    private Map<String, Object> data;
+
+    @Setup
+    public void setup() throws ParseException {
+        byte[] json = ("[" + SampleData.playerStatus(50, 1) + "]").getBytes(StandardCharsets.UTF_8);
+        data = BayeuxJsonDecoder.decode(json, 0, json.length).get(0).getDataAsMap();
+    }
+
+    @Benchmark
+    public String resolveImageUrl() {
+        return ArtworkUrls.resolve(image);
+    }
+
+    /**
+     * As pushes for the same track do, once the first has been resolved.
+     */
+    @Benchmark
+    public String cachedCoverUrl() {
+        return ArtworkUrls.coverUrl(SampleData.SERVER, image, null);
+    }
+
+    @Benchmark
+    public PlayerStatus fromData() {
+        return PlayerStatus.fromData(SampleData.PLAYER, data, SampleData.SERVER);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The response path of HttpStreamingTransport: HTTP parsing, decompression, JSON framing and
+ * decoding into messages - wired up as its ResponseHandler does, minus the socket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreamingBenchmark {
+    private static final int PUSHES = 20;
+
+    /**
+     * Number of tracks in each status push.
+     */
+    @Param({"1", "50"})
+    public int tracks;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    /**
+     * Size of each socket read.
+     */
+    @Param({"1460", "16384"})
+    public int readSize;
+
+    private byte[] response;
+    private byte[] frame;
+    private Blackhole blackhole;
+    private HttpResponseParser parser;
+    private JsonFramer framer;
+    private final ContentDecoder decoder = new ContentDecoder();
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) throws IOException {
+        this.blackhole = blackhole;
+        response = SampleData.streamingResponse(PUSHES, tracks, gzip);
+        frame = ("[" + SampleData.playerStatus(tracks, 1) + "]").getBytes(StandardCharsets.UTF_8);
+        framer = new JsonFramer((json, length) -> {
+            try {
+                blackhole.consume(BayeuxJsonDecoder.decode(json, 0, length));
+            } catch (ParseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        ContentDecoder.Sink sink = framer::append;
+        parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+            @Override
+            public void onStatus(int status) {
+                framer.reset();
+                decoder.end();
+            }
+
+            @Override
+            public void onHeader(String name, String value) {
+                if ("content-encoding".equals(name)) {
+                    String encoding = value.trim().toLowerCase(Locale.ENGLISH);
+                    if (ContentDecoder.isSupported(encoding)) {
+                        decoder.begin(encoding);
+                    }
+                }
+            }
+
+            @Override
+            public void onContent(ByteBuffer content) throws IOException {
+                if (decoder.isActive()) {
+                    decoder.decode(content, sink);
+                } else {
+                    framer.append(content);
+                }
+            }
+
+            @Override
+            public void onComplete(boolean keepAlive) {
+                blackhole.consume(keepAlive);
+            }
+        });
+    }
+
+    /**
+     * A whole streaming response, of PUSHES status messages, read from the socket in readSize
+     * pieces.
+     */
+    @Benchmark
+    public void response() throws IOException {
+        for (int pos = 0; pos < response.length; pos += readSize) {
+            parser.parse(ByteBuffer.wrap(response, pos, Math.min(readSize, response.length - pos)));
+        }
+    }
+
+    /**
+     * Decoding of a single, already framed, status push.
+     */
+    @Benchmark
+    public List<BayeuxMessage> decode() throws ParseException {
+        return BayeuxJsonDecoder.decode(frame, 0, frame.length);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimingWheel with many timeouts outstanding, as when a lot of exchanges are in flight. The
+ * outstanding timeouts are spread over every bucket, and over later rounds of the wheel, so
+ * expiry has to skip past them just as it does in use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimingWheelBenchmark {
+    private static final int BATCH = 1000;
+    private static final long TICK = 1;
+
+    @Param({"10000"})
+    public int outstanding;
+
+    private TimingWheel wheel;
+    private final Runnable nothing = () -> { };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // 1ms tick, so that the wait for a batch to expire is small next to its cost
+        wheel = new TimingWheel("TimingWheelBenchmark", TICK, 1024);
+        for (int i = 0; i < outstanding; ++i) {
+            wheel.schedule(nothing, TimeUnit.HOURS.toMillis(1) + i * 7L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    /**
+     * The usual life of an exchange's expiry: scheduled, then cancelled when the reply arrives.
+     */
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return wheel.schedule(nothing, 5000).cancel();
+    }
+
+    /**
+     * A batch of timeouts due on the next tick, from scheduling until the last has fired. Each
+     * batch also waits for up to a tick, so compare runs with each other rather than reading
+     * this as the absolute cost of expiry.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void expire() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(BATCH);
+        Runnable task = fired::countDown;
+        for (int i = 0; i < BATCH; ++i) {
+            wheel.schedule(task, TICK);
+        }
+        fired.await();
+    }
+}
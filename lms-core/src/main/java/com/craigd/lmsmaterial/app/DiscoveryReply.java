@@ -0,0 +1,48 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Contents of a reply to a UDP discovery request: 'E' followed by key:value pairs, each being a
+ * 4 character key, a 1 byte length, and the value.
+ */
+class DiscoveryReply {
+    String name = null;
+    int port = -1;
+
+    static DiscoveryReply parse(byte[] bytes, int length) {
+        DiscoveryReply reply = new DiscoveryReply();
+        for(int i=1; i < length; ) {
+            if (i + 5 > length) {
+                break;
+            }
+
+            // Extract 4 bytes
+            String key = new String(bytes, i, 4, StandardCharsets.US_ASCII);
+            i += 4;
+
+            int valueLen = bytes[i++] & 0xFF;
+            if (i + valueLen > length) {
+                break;
+            }
+
+            if (key.equals("NAME")) {
+                reply.name = new String(bytes, i, valueLen, StandardCharsets.UTF_8);
+            } else if (key.equals("JSON")) {
+                try {
+                    reply.port = Integer.parseInt(new String(bytes, i, valueLen, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            i += valueLen;
+        }
+        return reply;
+    }
+}
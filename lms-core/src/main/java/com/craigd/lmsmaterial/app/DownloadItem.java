@@ -0,0 +1,112 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class DownloadItem {
+    static final String COVER_ART_DEST = "albumart.jpg";
+
+    static String getString(JSONObject obj, String key) {
+        try {
+            return obj.getString(key);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    static int getInt(JSONObject obj, String key) {
+        try {
+            return obj.getInt(key);
+        } catch (JSONException e) {
+            return 0;
+        }
+    }
+
+    public static String fatSafe(String str) {
+        return str.replaceAll("[?<>\\\\:*|\"/]", "_");
+    }
+
+    static String fixEmpty(String str) {
+        return Strings.isEmpty(str) ? "Unknown" : str;
+    }
+
+    public DownloadItem(JSONObject obj, boolean transcode) {
+        id = getInt(obj, "id");
+        filename = getString(obj, "filename");
+        title = getString(obj, "title");
+        ext = getString(obj, "ext");
+        artist = getString(obj, "artist");
+        album = getString(obj, "album");
+        tracknum = getInt(obj, "tracknum");
+        disc = getInt(obj, "disc");
+        albumId = getInt(obj, "album_id");
+        isTrack = true;
+
+        if (Strings.isEmpty(filename)) {
+            filename = "";
+            if (disc > 0) {
+                filename += disc;
+            }
+            if (tracknum > 0) {
+                filename += (!filename.isEmpty() ? "." : "") + (tracknum < 10 ? "0" : "") + tracknum + " ";
+            } else if (!filename.isEmpty()) {
+                filename += " ";
+            }
+            filename += fixEmpty(title) + "." + (transcode ? "mp3" : ext);
+        } else if (transcode) {
+            int pos = filename.lastIndexOf('.');
+            filename = (pos > 0 ? filename.substring(0, pos) : filename) + ".mp3";
+        }
+    }
+
+    public DownloadItem(int id, int albumId, String artist, String album) {
+        isTrack = false;
+        this.id = id * -1; // Ensure we do not overlap with track id
+        this.albumId = albumId;
+        this.artist = artist;
+        this.album = album;
+        this.filename = COVER_ART_DEST;
+    }
+
+    public JSONObject toObject(boolean downloading) throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("id", id);
+        obj.put("downloading", downloading);
+        obj.put("title", filename);
+        obj.put("subtitle", artist + " - " + album);
+        return obj;
+    }
+
+    public String getFolder() {
+        return fatSafe(!artist.isEmpty() && !album.isEmpty()
+                ? artist + " - " + album
+                : !artist.isEmpty()
+                ? artist
+                : !album.isEmpty()
+                ? album
+                : "Unknown");
+    }
+
+    public String getDownloadFileName() {
+        return fatSafe(fixEmpty(artist) + " - " + fixEmpty(album) + " - " + filename);
+    }
+
+    public int id;
+    public String filename;
+    public String title;
+    public String ext;
+    public String artist;
+    public String album;
+    public int tracknum;
+    public int disc;
+    public int albumId;
+    public boolean isTrack;
+    public long downloadId = 0;
+}
@@ -0,0 +1,68 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import com.craigd.lmsmaterial.app.platform.Http;
+import com.craigd.lmsmaterial.app.platform.Logger;
+import com.craigd.lmsmaterial.app.platform.Platform;
+import com.craigd.lmsmaterial.app.platform.Preferences;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class JsonRpc {
+    private final Http http;
+    private final Preferences prefs;
+
+    public JsonRpc(Platform platform) {
+        prefs = platform.preferences();
+        http = platform.http();
+    }
+
+    private Map<String, String> getHeaders() {
+        String user = prefs.getString(Preferences.USERNAME_KEY, "");
+        String pass = prefs.getString(Preferences.PASSWORD_KEY, "");
+
+        if (user.isEmpty() || pass.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return Collections.singletonMap("Authorization", Strings.basicAuth(user, pass));
+    }
+
+    public void sendMessage(String id, String[] command) {
+        sendMessage(id, command, null);
+    }
+
+    public void sendMessage(String id, String[] command, Http.Listener responseListener) {
+        Server server = new Server(prefs.getString(Preferences.SERVER_KEY,null));
+        if (null!=server.ip) {
+            try {
+                JSONObject request = new JSONObject();
+                JSONArray params = new JSONArray();
+                JSONArray cmd = new JSONArray();
+                params.put(0, id);
+                for (String c : command) {
+                    cmd.put(cmd.length(), c);
+                }
+                params.put(1, cmd);
+                request.put("id", 1);
+                request.put("method", "slim.request");
+                request.put("params", params);
+
+                Logger.info("MSG:" + request);
+                http.post(server.url(prefs.getBoolean(Preferences.HTTPS_KEY, false)) + "/jsonrpc.js", request, getHeaders(), responseListener);
+            } catch (Exception e) {
+                Logger.error("Failed to send control message", e);
+            }
+        }
+    }
+}
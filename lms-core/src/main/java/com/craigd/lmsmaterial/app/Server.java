@@ -0,0 +1,121 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import androidx.annotation.NonNull;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.DatagramPacket;
+import java.util.Objects;
+
+/**
+ * An LMS server, as found by discovery or stored in the preferences.
+ */
+public class Server implements Comparable<Server> {
+    public static final int DEFAULT_PORT = 9000;
+    public String ip = "";
+    public String name = "";
+    public int port = DEFAULT_PORT;
+
+    private static String getString(JSONObject json, String key) {
+        try {
+            return json.getString(key);
+        } catch (JSONException e) {
+            return "";
+        }
+    }
+
+    private static int getPort(JSONObject json) {
+        try {
+            return json.getInt("port");
+        } catch (JSONException e) {
+            return Server.DEFAULT_PORT;
+        }
+    }
+
+    public Server(String str) {
+        Logger.debug("DECODE:"+str);
+        if (str != null) {
+            try {
+                JSONObject json = new JSONObject(str);
+                ip = getString(json, "ip");
+                name = getString(json, "name");
+                port = getPort(json);
+            } catch (JSONException ignored) {
+            }
+        }
+    }
+
+    public Server(String ip, int port, String name) {
+        this.ip=ip;
+        this.port=port;
+        this.name=name;
+    }
+
+    public Server(DatagramPacket pkt) {
+        ip = pkt.getAddress().getHostAddress();
+
+        // Try to get name and port of server from packet
+        DiscoveryReply reply = DiscoveryReply.parse(pkt.getData(), pkt.getLength());
+        if (null != reply.name) {
+            name = reply.name;
+            Logger.debug("Name:"+name);
+        }
+        if (reply.port > 0) {
+            port = reply.port;
+            Logger.debug("Port:"+port);
+        }
+    }
+
+    public boolean isEmpty() {
+        return null==ip || ip.isEmpty();
+    }
+
+    @Override
+    public int compareTo(@NonNull Server o) {
+        return null==ip ? (o.ip==null ? 0 : -1) : ip.compareTo(o.ip);
+    }
+
+    public boolean equals(Server o) {
+        return Objects.equals(ip, o.ip);
+    }
+
+    public String describe() {
+        if (null==name || name.isEmpty()) {
+            return address();
+        }
+        return name+" ("+address()+")";
+    }
+
+    public String address() {
+        return ip + (DEFAULT_PORT==port ? "" : (":"+port));
+    }
+
+    /**
+     * @return Base URL of the server, without a trailing slash.
+     */
+    public String url(boolean https) {
+        return (https ? "https://" : "http://") + ip + ":" + port;
+    }
+
+    public String encode() {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("ip", ip);
+            json.put("name", name);
+            json.put("port", port);
+            return json.toString(0);
+        } catch (JSONException e) {
+            return ip;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * String helpers with no Android dependencies, so that they can also be used (and benchmarked)
+ * on a plain JVM.
+ */
+public class Strings {
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    public static boolean isEmpty(String str) {
+        return null==str || str.isEmpty();
+    }
+
+    public static String encodeURIComponent(String str) {
+        try {
+            return URLEncoder.encode(str, "UTF-8")
+                    .replaceAll("\\+", "%20")
+                    .replaceAll("\\%21", "!")
+                    .replaceAll("\\%27", "'")
+                    .replaceAll("\\%28", "(")
+                    .replaceAll("\\%29", ")")
+                    .replaceAll("\\%7E", "~");
+        } catch (UnsupportedEncodingException ignored)  {
+        }
+        return str;
+    }
+
+    public static String timeStr(long ms) {
+        return String.format("%02d:%02d",
+                TimeUnit.MILLISECONDS.toMinutes(ms) -
+                        TimeUnit.HOURS.toMinutes(TimeUnit.MILLISECONDS.toHours(ms)),
+                TimeUnit.MILLISECONDS.toSeconds(ms) -
+                        TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(ms)));
+    }
+
+    /**
+     * @return Value of an Authorization header for HTTP basic authentication.
+     */
+    public static String basicAuth(String user, String pass) {
+        return "Basic " + base64((user + ":" + pass).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public static String base64(byte[] bytes) {
+        StringBuilder str = new StringBuilder(((bytes.length + 2) / 3) * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int remaining = bytes.length - i;
+            int b = (bytes[i] & 0xff) << 16;
+            if (remaining > 1) {
+                b |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                b |= bytes[i + 2] & 0xff;
+            }
+            str.append(BASE64[(b >> 18) & 0x3f]).append(BASE64[(b >> 12) & 0x3f]);
+            str.append(remaining > 1 ? BASE64[(b >> 6) & 0x3f] : '=');
+            str.append(remaining > 2 ? BASE64[b & 0x3f] : '=');
+        }
+        return str.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.Strings;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Maps the artwork of a track, as given in player status, to the URL of a suitably sized image.
+ * As every status push repeats the artwork of the current track, resolved URLs are cached.
+ */
+public class ArtworkUrls {
+    static final String IMAGE_SIZE = "_600x600_f";
+    static final int CACHE_SIZE = 64;
+    private static final Pattern COVER_ID = Pattern.compile("^[0-9a-fA-F]+$");
+    // Images of the server's own that have a Material replacement
+    private static final Map<String, String> DEFAULT_COVERS = new HashMap<>();
+    static {
+        DEFAULT_COVERS.put("html/images/cover.png", "/material/html/images/nocover.png");
+        DEFAULT_COVERS.put("html/images/radio.png", "/material/html/images/noradio.png");
+        DEFAULT_COVERS.put("html/images/works.png", "/material/html/images/nowork.png");
+        DEFAULT_COVERS.put("plugins/RandomPlay/html/images/icon.png", "/material/html/images/randomplay.png");
+    }
+
+    private static final class Key {
+        final String server;
+        final String image;
+        final String coverid;
+        final int hash;
+
+        Key(String server, String image, String coverid) {
+            this.server = server;
+            this.image = image;
+            this.coverid = coverid;
+            hash = Objects.hash(server, image, coverid);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Objects.equals(server, other.server) && Objects.equals(image, other.image) &&
+                    Objects.equals(coverid, other.coverid);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Tracks with no artwork are cached as this, to tell them from those not yet resolved
+    private static final String NO_COVER = "";
+    private static final Map<Key, String> cache = new LinkedHashMap<Key, String>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * @param server Base URL of the server, e.g. http://host:9000
+     * @param image artwork_url of a track, may be empty
+     * @param coverid coverid of a track, used if there is no artwork_url, may be empty
+     * @return Absolute URL of the track's cover, or null if it has none.
+     */
+    public static String coverUrl(String server, String image, String coverid) {
+        Key key = new Key(server, Strings.isEmpty(image) ? null : image, Strings.isEmpty(coverid) ? null : coverid);
+        synchronized (cache) {
+            String url = cache.get(key);
+            if (null != url) {
+                return NO_COVER.equals(url) ? null : url;
+            }
+        }
+        String url = null;
+        if (null != key.image) {
+            String resolved = resolve(key.image);
+            if (!Strings.isEmpty(resolved)) {
+                url = absolute(server, resolved);
+            }
+        }
+        if (null == url && null != key.coverid) {
+            url = absolute(server, cover(key.coverid));
+        }
+        synchronized (cache) {
+            cache.put(key, null == url ? NO_COVER : url);
+        }
+        return url;
+    }
+
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @param image artwork_url of a track
+     * @return Path on the server, or an absolute URL for images that the server cannot proxy.
+     */
+    public static String resolve(String image) {
+        if ((image.contains("http://") || image.contains("https://")) && !(image.startsWith("/imageproxy") || image.startsWith("imageproxy"))) {
+            try {
+                URL url = new URL(image);
+                if (url.getHost().startsWith("192.168.") || url.getHost().startsWith("127.") || url.getHost().endsWith(".local")) {
+                    return image;
+                }
+                return "/imageproxy/" + Strings.encodeURIComponent(image) + "/image" + IMAGE_SIZE;
+            } catch (Exception ignored) {
+                return image;
+            }
+        }
+
+        String defaultCover = DEFAULT_COVERS.get(image);
+        if (null != defaultCover) {
+            return defaultCover;
+        }
+        int idx = image.lastIndexOf(".png");
+        if (idx < 0) {
+            idx = image.lastIndexOf(".jpg");
+        }
+        if (idx<0 && COVER_ID.matcher(image).matches()) {
+            image="music/"+image+"/cover"+IMAGE_SIZE;
+        } else if (idx>0) {
+            if ((image.startsWith("plugins/") || image.startsWith("/plugins/")) && image.indexOf("/html/images/")>0) {
+                return image;
+            }
+            image = image.substring(0, idx)+IMAGE_SIZE+image.substring(idx);
+        }
+        return image.startsWith("/") ? image : ("/"+image);
+    }
+
+    /**
+     * @return Path of the cover for a track's coverid.
+     */
+    public static String cover(String coverid) {
+        return "/music/"+coverid+"/cover"+IMAGE_SIZE;
+    }
+
+    /**
+     * @param server Base URL of the server, e.g. http://host:9000
+     */
+    public static String absolute(String server, String path) {
+        return path.startsWith("http") ? path : (server + (path.startsWith("/") ? path : ("/"+path)));
+    }
+}
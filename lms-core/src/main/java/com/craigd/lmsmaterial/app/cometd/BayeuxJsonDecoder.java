@@ -0,0 +1,359 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes UTF-8 Bayeux JSON straight from bytes into messages, without first building a String of
+ * the whole payload. Objects are decoded as maps, arrays as Object[], integers as Long and other
+ * numbers as Double.
+ * Object keys, and channel names, are looked up in a shared cache so that the same few names
+ * repeated in every status push are only decoded once.
+ */
+public class BayeuxJsonDecoder {
+    private static final int CACHE_SIZE = 1024;
+    private static final int MAX_CACHED_LENGTH = 128;
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    // Races only ever replace one complete String with another, which is harmless
+    private static final String[] cache = new String[CACHE_SIZE];
+
+    private final byte[] json;
+    private final int end;
+    private int pos;
+    private StringBuilder builder;
+
+    public static List<BayeuxMessage> decode(byte[] json, int offset, int length) throws ParseException {
+        return new BayeuxJsonDecoder(json, offset, length).messages();
+    }
+
+    private BayeuxJsonDecoder(byte[] json, int offset, int length) {
+        this.json = json;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    private List<BayeuxMessage> messages() throws ParseException {
+        List<BayeuxMessage> messages;
+        skipWhitespace();
+        if (pos < end && '[' == json[pos]) {
+            pos++;
+            messages = new ArrayList<>(1);
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+            } else {
+                while (true) {
+                    messages.add(message());
+                    skipWhitespace();
+                    byte b = next();
+                    if (']' == b) {
+                        break;
+                    }
+                    if (',' != b) {
+                        throw error("Expected , or ]");
+                    }
+                }
+            }
+        } else {
+            messages = Collections.singletonList(message());
+        }
+        skipWhitespace();
+        if (pos != end) {
+            throw error("Unexpected data after messages");
+        }
+        return messages;
+    }
+
+    private BayeuxMessage message() throws ParseException {
+        skipWhitespace();
+        if ('{' != next()) {
+            throw error("Expected message object");
+        }
+        BayeuxMessage message = new BayeuxMessage();
+        object(message, true);
+        return message;
+    }
+
+    /**
+     * Read the members of an object, the opening brace having already been consumed.
+     */
+    private void object(Map<String, Object> map, boolean isMessage) throws ParseException {
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            if ('"' != next()) {
+                throw error("Expected member name");
+            }
+            String key = string(true);
+            skipWhitespace();
+            if (':' != next()) {
+                throw error("Expected :");
+            }
+            skipWhitespace();
+            Object value;
+            if (isMessage && BayeuxMessage.CHANNEL_FIELD.equals(key) && peek() == '"') {
+                pos++;
+                value = string(true);
+            } else {
+                value = value();
+            }
+            map.put(key, value);
+            skipWhitespace();
+            byte b = next();
+            if ('}' == b) {
+                return;
+            }
+            if (',' != b) {
+                throw error("Expected , or }");
+            }
+        }
+    }
+
+    private Object value() throws ParseException {
+        byte b = next();
+        switch (b) {
+            case '"':
+                return string(false);
+            case '{': {
+                Map<String, Object> map = new HashMap<>();
+                object(map, false);
+                return map;
+            }
+            case '[':
+                return array();
+            case 't':
+                literal("rue");
+                return Boolean.TRUE;
+            case 'f':
+                literal("alse");
+                return Boolean.FALSE;
+            case 'n':
+                literal("ull");
+                return null;
+            default:
+                if ('-' == b || (b >= '0' && b <= '9')) {
+                    return number();
+                }
+                throw error("Unexpected character");
+        }
+    }
+
+    private Object[] array() throws ParseException {
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return EMPTY_ARRAY;
+        }
+        List<Object> list = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            list.add(value());
+            skipWhitespace();
+            byte b = next();
+            if (']' == b) {
+                return list.toArray();
+            }
+            if (',' != b) {
+                throw error("Expected , or ]");
+            }
+        }
+    }
+
+    private Number number() throws ParseException {
+        int start = pos - 1;
+        boolean integer = true;
+        while (pos < end) {
+            byte b = json[pos];
+            if (b >= '0' && b <= '9') {
+                pos++;
+            } else if ('.' == b || 'e' == b || 'E' == b || '+' == b || '-' == b) {
+                integer = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (integer && pos - start <= 18) {
+            long value = 0;
+            boolean negative = '-' == json[start];
+            for (int i = negative ? start + 1 : start; i < pos; ++i) {
+                value = value * 10 + (json[i] - '0');
+            }
+            if (negative && pos - start == 1) {
+                throw error("Invalid number");
+            }
+            return negative ? -value : value;
+        }
+        String text = new String(json, start, pos - start, StandardCharsets.US_ASCII);
+        try {
+            if (integer) {
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    // Too large for a long
+                }
+            }
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    /**
+     * Read a string, the opening quote having already been consumed.
+     */
+    private String string(boolean cached) throws ParseException {
+        int start = pos;
+        boolean ascii = true;
+        while (pos < end) {
+            byte b = json[pos];
+            if ('"' == b) {
+                int length = pos - start;
+                pos++;
+                if (ascii && cached && length <= MAX_CACHED_LENGTH) {
+                    return cachedString(start, length);
+                }
+                return new String(json, start, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+            }
+            if ('\\' == b) {
+                return escapedString(start);
+            }
+            if (b < 0) {
+                ascii = false;
+            }
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    private String escapedString(int start) throws ParseException {
+        if (null == builder) {
+            builder = new StringBuilder();
+        }
+        builder.setLength(0);
+        int segment = start;
+        while (pos < end) {
+            byte b = json[pos];
+            if ('"' == b) {
+                builder.append(new String(json, segment, pos - segment, StandardCharsets.UTF_8));
+                pos++;
+                return builder.toString();
+            }
+            if ('\\' != b) {
+                pos++;
+                continue;
+            }
+            builder.append(new String(json, segment, pos - segment, StandardCharsets.UTF_8));
+            if (pos + 1 >= end) {
+                break;
+            }
+            byte escaped = json[pos + 1];
+            pos += 2;
+            switch (escaped) {
+                case '"': builder.append('"'); break;
+                case '\\': builder.append('\\'); break;
+                case '/': builder.append('/'); break;
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > end) {
+                        throw error("Invalid unicode escape");
+                    }
+                    int c = 0;
+                    for (int i = 0; i < 4; ++i) {
+                        int digit = Character.digit(json[pos++], 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        c = (c << 4) | digit;
+                    }
+                    builder.append((char) c);
+                    break;
+                default:
+                    throw error("Invalid escape");
+            }
+            segment = pos;
+        }
+        throw error("Unterminated string");
+    }
+
+    private String cachedString(int start, int length) {
+        int hash = length;
+        for (int i = start; i < start + length; ++i) {
+            hash = 31 * hash + json[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        String cachedValue = cache[slot];
+        if (null != cachedValue && matches(cachedValue, start, length)) {
+            return cachedValue;
+        }
+        String value = new String(json, start, length, StandardCharsets.ISO_8859_1);
+        cache[slot] = value;
+        return value;
+    }
+
+    private boolean matches(String value, int start, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (value.charAt(i) != json[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void literal(String rest) throws ParseException {
+        for (int i = 0; i < rest.length(); ++i) {
+            if (pos >= end || json[pos++] != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = json[pos];
+            if (' ' != b && '\t' != b && '\n' != b && '\r' != b) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private int peek() {
+        return pos < end ? json[pos] : -1;
+    }
+
+    private byte next() throws ParseException {
+        if (pos >= end) {
+            throw error("Unexpected end of data");
+        }
+        return json[pos++];
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(message, pos);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes outgoing Bayeux messages as JSON. Handles the shapes that messages are built from, and
+ * that {@link BayeuxJsonDecoder} produces - maps, collections and arrays, strings, numbers,
+ * booleans and null. Anything else is written as its string value.
+ */
+public class BayeuxJsonEncoder {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private BayeuxJsonEncoder() {
+    }
+
+    public static String encode(Object value) {
+        StringBuilder json = new StringBuilder(256);
+        append(json, value);
+        return json.toString();
+    }
+
+    static void append(StringBuilder json, Object value) {
+        if (null == value) {
+            json.append("null");
+        } else if (value instanceof String) {
+            string(json, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                string(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                append(json, entry.getValue());
+            }
+            json.append('}');
+        } else if (value instanceof Collection) {
+            json.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                append(json, item);
+            }
+            json.append(']');
+        } else if (value instanceof Object[]) {
+            json.append('[');
+            Object[] array = (Object[]) value;
+            for (int i = 0; i < array.length; ++i) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                append(json, array[i]);
+            }
+            json.append(']');
+        } else {
+            string(json, value.toString());
+        }
+    }
+
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            json.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                case '\b': json.append("\\b"); break;
+                case '\f': json.append("\\f"); break;
+                default:
+                    json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    break;
+            }
+        }
+        json.append(value, start, length);
+        json.append('"');
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Bayeux message, held as the map of its JSON fields. Only the fields and channels used with
+ * LMS are named here.
+ */
+public class BayeuxMessage extends HashMap<String, Object> {
+    private static final long serialVersionUID = 1L;
+
+    public static final String META = "/meta";
+    public static final String META_HANDSHAKE = META + "/handshake";
+    public static final String META_CONNECT = META + "/connect";
+    public static final String META_SUBSCRIBE = META + "/subscribe";
+    public static final String META_UNSUBSCRIBE = META + "/unsubscribe";
+    public static final String META_DISCONNECT = META + "/disconnect";
+
+    public static final String CHANNEL_FIELD = "channel";
+    public static final String ID_FIELD = "id";
+    public static final String CLIENT_ID_FIELD = "clientId";
+    public static final String DATA_FIELD = "data";
+    public static final String ADVICE_FIELD = "advice";
+    public static final String SUCCESSFUL_FIELD = "successful";
+    public static final String ERROR_FIELD = "error";
+    public static final String SUBSCRIPTION_FIELD = "subscription";
+    public static final String VERSION_FIELD = "version";
+    public static final String MIN_VERSION_FIELD = "minimumVersion";
+    public static final String SUPPORTED_CONNECTION_TYPES_FIELD = "supportedConnectionTypes";
+    public static final String CONNECTION_TYPE_FIELD = "connectionType";
+    // Added to failed messages passed to listeners, holding "exception" and the request "message"
+    public static final String FAILURE_FIELD = "failure";
+
+    public static final String TIMEOUT_FIELD = "timeout";
+    public static final String INTERVAL_FIELD = "interval";
+    public static final String RECONNECT_FIELD = "reconnect";
+    public static final String RECONNECT_RETRY_VALUE = "retry";
+    public static final String RECONNECT_HANDSHAKE_VALUE = "handshake";
+    public static final String RECONNECT_NONE_VALUE = "none";
+
+    public BayeuxMessage() {
+        super(8);
+    }
+
+    public BayeuxMessage(String channel) {
+        this();
+        setChannel(channel);
+    }
+
+    public String getChannel() {
+        return (String) get(CHANNEL_FIELD);
+    }
+
+    public void setChannel(String channel) {
+        put(CHANNEL_FIELD, channel);
+    }
+
+    public String getId() {
+        Object id = get(ID_FIELD);
+        return null == id ? null : id.toString();
+    }
+
+    public void setId(String id) {
+        put(ID_FIELD, id);
+    }
+
+    public String getClientId() {
+        return (String) get(CLIENT_ID_FIELD);
+    }
+
+    public void setClientId(String clientId) {
+        if (null == clientId) {
+            remove(CLIENT_ID_FIELD);
+        } else {
+            put(CLIENT_ID_FIELD, clientId);
+        }
+    }
+
+    public Object getData() {
+        return get(DATA_FIELD);
+    }
+
+    public void setData(Object data) {
+        put(DATA_FIELD, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getDataAsMap() {
+        Object data = get(DATA_FIELD);
+        return data instanceof Map ? (Map<String, Object>) data : null;
+    }
+
+    public Map<String, Object> getAdvice() {
+        return getAdvice(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getAdvice(boolean create) {
+        Object advice = get(ADVICE_FIELD);
+        if (advice instanceof Map) {
+            return (Map<String, Object>) advice;
+        }
+        if (!create) {
+            return null;
+        }
+        Map<String, Object> created = new HashMap<>(4);
+        put(ADVICE_FIELD, created);
+        return created;
+    }
+
+    /**
+     * @return The advised reconnect action, or null if there is none.
+     */
+    public String getReconnectAdvice() {
+        Map<String, Object> advice = getAdvice();
+        Object action = null == advice ? null : advice.get(RECONNECT_FIELD);
+        return null == action ? null : action.toString();
+    }
+
+    public boolean isSuccessful() {
+        Object successful = get(SUCCESSFUL_FIELD);
+        return successful instanceof Boolean ? (Boolean) successful : Boolean.parseBoolean(String.valueOf(successful));
+    }
+
+    public void setSuccessful(boolean successful) {
+        put(SUCCESSFUL_FIELD, successful);
+    }
+
+    public boolean isMeta() {
+        String channel = getChannel();
+        return null != channel && channel.startsWith(META + "/");
+    }
+
+    /**
+     * @return True for the reply to a publish, which unlike a message delivered to a subscriber
+     *     has no data.
+     */
+    public boolean isPublishReply() {
+        return !isMeta() && !containsKey(DATA_FIELD);
+    }
+
+    public String getJSON() {
+        return BayeuxJsonEncoder.encode(this);
+    }
+}
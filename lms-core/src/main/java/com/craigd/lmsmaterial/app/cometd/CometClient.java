@@ -0,0 +1,557 @@
+/**
+ * LMS-Material-App
+ *
+ * NOTE: This file is *very* much inspired from https://github.com/kaaholst/android-squeezer
+ *
+ * Apache-2.0 license
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.JsonRpc;
+import com.craigd.lmsmaterial.app.Server;
+import com.craigd.lmsmaterial.app.Strings;
+import com.craigd.lmsmaterial.app.platform.Http;
+import com.craigd.lmsmaterial.app.platform.Logger;
+import com.craigd.lmsmaterial.app.platform.Platform;
+import com.craigd.lmsmaterial.app.platform.Preferences;
+import com.craigd.lmsmaterial.app.platform.Scheduler;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+public class CometClient {
+    public interface Listener {
+        /**
+         * @param change What differs from the previous status. Every status is passed on, so
+         *     that the latest position is always available, even when this is empty.
+         */
+        void updatePlayerStatus(PlayerStatus status, PlayerStatusChange change);
+
+        /**
+         * Called when the server has repeatedly failed to handshake, although the network is
+         * up, and so the client has stopped trying.
+         */
+        void connectionAbandoned();
+    }
+
+    private final Platform platform;
+    private final Preferences prefs;
+    final ConnectionState connectionState;
+    private SlimClient bayeuxClient;
+    private String currentPlayer = null;
+    // Players with a playerstatus subscription, least recently used first
+    private final LinkedHashSet<String> subscribedPlayers = new LinkedHashSet<>();
+    // Latest status of each subscribed player, when more than one is kept subscribed
+    private final Map<String, PlayerStatus> statusCache = new HashMap<>();
+    private int maxSubscribedPlayers = 1;
+    // Keep server details so that we can detect if changed
+    private String serverAddress = "";
+    private int serverPort = 9000;
+    private boolean serverHttps = false;
+    private String serverUser = "";
+    private String serverPass = "";
+    private final Scheduler backgroundScheduler;
+    private final Listener clientListener;
+    private JsonRpc rpc;
+    private Http.Listener rpcResponse;
+    private int handShakeFailures = 0;
+    private TimingWheel.Timeout handshakeTimeout;
+    private int handshakeAttempt = 0;
+    // Kept across connections, so that reconnects are included
+    private final TransportMetrics metrics;
+    private final PlayerStatusDiffer statusDiffer = new PlayerStatusDiffer();
+    private final PlayerRegistry players = new PlayerRegistry();
+    private final PositionModel positionModel = new PositionModel();
+
+    private static final int MAX_HANDSHAKE_FAILURES = 5;
+    private static final String PLAYER_STATUS_TAGS = "tags:acdlKN";
+    // Server pushes serverstatus when players change, and at least this often (in seconds)
+    private static final String SERVER_STATUS_SUBSCRIPTION = "subscribe:60";
+    private static final int HANDSHAKE_TIMEOUT = 4*1000;
+    // One tick of the shared TimingWheel, which is as fine as it goes: a batch is sent 0-10ms
+    // after its first publish, depending on how far into the current tick that was
+    private static final long PUBLISH_BATCH_WINDOW = TimingWheel.DEFAULT_TICK;
+    // Debug builds capture the streaming connection if this directory (under the cache) exists
+    private static final String CAPTURE_DIR = "cometd-captures";
+
+    private class PublishListener implements SlimClient.MessageListener {
+        @Override
+        public void onMessage(BayeuxMessage message) {
+            if (!message.isSuccessful()) {
+                if (BayeuxMessage.RECONNECT_HANDSHAKE_VALUE.equals(message.getReconnectAdvice())) {
+                    Logger.info("rehandshake");
+                    SlimClient client = bayeuxClient;
+                    if (null != client) {
+                        client.rehandshake();
+                    }
+                } else {
+                    Map<String, Object> failure = getRecord(message, BayeuxMessage.FAILURE_FIELD);
+                    Throwable exception = (failure != null) ? (Throwable) failure.get("exception") : null;
+                    Logger.warn(message.getChannel() + ": " + message.getJSON(), exception);
+                }
+            }
+        }
+    }
+
+    public CometClient(Platform platform, Listener listener) {
+        this.platform = platform;
+        clientListener = listener;
+        prefs = platform.preferences();
+        connectionState = new ConnectionState(platform);
+        metrics = new TransportMetrics(platform.isDebug());
+        backgroundScheduler = platform.newScheduler(CometClient.class.getSimpleName());
+    }
+
+    public synchronized void reconnectIfChanged() {
+        Logger.debug("");
+        Server server = new Server(prefs.getString(Preferences.SERVER_KEY, null));
+        boolean changed = !serverUser.equals(prefs.getString(Preferences.USERNAME_KEY, "")) ||
+                          !serverPass.equals(prefs.getString(Preferences.PASSWORD_KEY, "")) ||
+                          serverPort!=server.port || !serverAddress.equals(server.ip) ||
+                          serverHttps!=prefs.getBoolean(Preferences.HTTPS_KEY, false);
+        if (changed) {
+            disconnect(true);
+        }
+    }
+
+    /**
+     * The streaming connection may be left half-open by a network change, so have it probed now
+     * rather than waiting for the connection to time out.
+     */
+    public synchronized void checkLiveness() {
+        if (null != bayeuxClient) {
+            bayeuxClient.getTransport().checkLiveness();
+        }
+    }
+
+    public TransportMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The server's players, kept current whilst connected.
+     */
+    public PlayerRegistry getPlayers() {
+        return players;
+    }
+
+    /**
+     * @return Position of the current player.
+     */
+    public PositionModel getPositionModel() {
+        return positionModel;
+    }
+
+    public PlayerStatusDiffer getStatusDiffer() {
+        return statusDiffer;
+    }
+
+    public synchronized boolean isConnected() {
+        return connectionState.isConnected() && null!=bayeuxClient;
+    }
+
+    public synchronized void connect() {
+        Logger.debug("");
+        connectionState.setConnectionState(ConnectionState.State.CONNECTION_STARTED);
+        backgroundScheduler.post(() -> {
+            Server server = new Server(prefs.getString(Preferences.SERVER_KEY, null));
+            if (null == server.ip) {
+                connectionState.setConnectionError(ConnectionState.Error.INVALID_URL);
+                return;
+            }
+
+            serverAddress = server.ip;
+            serverPort = server.port;
+            serverHttps = prefs.getBoolean(Preferences.HTTPS_KEY, false);
+            String url = server.url(serverHttps) + "/cometd";
+            Logger.debug("CometD URL: " + url);
+            Map<String, Object> options = new HashMap<>();
+            options.put(HttpStreamingTransport.BATCH_WINDOW_OPTION, PUBLISH_BATCH_WINDOW);
+            options.put(HttpStreamingTransport.COMPRESSION_OPTION, prefs.getBoolean(Preferences.COMPRESS_UPDATES_KEY, false));
+            maxSubscribedPlayers = parseSubscribedPlayers(prefs.getString(Preferences.SUBSCRIBED_PLAYERS_KEY, null));
+            options.put(HttpStreamingTransport.METRICS_OPTION, metrics);
+            File captureDir = new File(platform.cacheDir(), CAPTURE_DIR);
+            if (platform.isDebug() && captureDir.isDirectory()) {
+                options.put(HttpStreamingTransport.CAPTURE_DIR_OPTION, captureDir.getPath());
+            }
+            serverUser = prefs.getString(Preferences.USERNAME_KEY, "");
+            serverPass = prefs.getString(Preferences.PASSWORD_KEY, "");
+            if (!serverUser.isEmpty() && !serverPass.isEmpty()) {
+                options.put(HttpStreamingTransport.AUTHORIZATION_OPTION, Strings.basicAuth(serverUser, serverPass));
+            }
+            bayeuxClient = new SlimClient(connectionState, metrics, new HttpStreamingTransport(url, options), backgroundScheduler);
+            cancelHandshakeTimeout();
+            int attempt = ++handshakeAttempt;
+            handshakeTimeout = TimingWheel.shared().schedule(() -> backgroundScheduler.post(() -> onHandshakeTimeout(attempt)), HANDSHAKE_TIMEOUT);
+            bayeuxClient.addListener(BayeuxMessage.META_HANDSHAKE, message -> {
+                handShakeFailures = message.isSuccessful() ? 0 : (handShakeFailures+1);
+                Logger.debug("Handshake OK: " + message.isSuccessful() + ", canRehandshake: " + connectionState.canRehandshake() + ", failures:" +handShakeFailures);
+                if (message.isSuccessful()) {
+                    onConnected();
+                } else if (handShakeFailures>=MAX_HANDSHAKE_FAILURES && platform.isNetworkConnected()) {
+                    Logger.error("Too many handshake errors, aborting");
+                    handShakeFailures = 0;
+                    try {
+                        bayeuxClient.stop();
+                        bayeuxClient = null;
+                        clientListener.connectionAbandoned();
+                    } catch (Exception e) {
+                        Logger.error("Aborting", e);
+                    }
+                    connectionState.setConnectionState(ConnectionState.State.DISCONNECTED);
+                } else if (!connectionState.canRehandshake()) {
+                    handShakeFailures = 0;
+                    Map<String, Object> failure = getRecord(message, BayeuxMessage.FAILURE_FIELD);
+                    BayeuxMessage failedMessage = (failure != null) ? (BayeuxMessage) failure.get("message") : message;
+                    // Advices are handled by SlimClient, so skip these here
+                    if (failedMessage != null && failedMessage.getReconnectAdvice() == null) {
+                        Logger.warn("Unsuccessful message on handshake channel: " + message.getJSON());
+                        disconnect();
+                    }
+                }
+            });
+            bayeuxClient.addListener(BayeuxMessage.META_CONNECT, message -> {
+                Logger.debug("Connect OK? " + message.isSuccessful());
+                // Advices are handled by SlimClient, so skip these here
+                if (!message.isSuccessful() && (message.getReconnectAdvice() == null)) {
+                    Logger.warn("Unsuccessful message on connect channel: " + message.getJSON());
+                    disconnect();
+                }
+            });
+            bayeuxClient.handshake();
+        });
+    }
+
+    static int parseSubscribedPlayers(String value) {
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException ignored) {
+            return 1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getRecord(Map<String, Object> record, String name) {
+        Object rec = record.get(name);
+        return rec instanceof Map ? (Map<String, Object>) rec : null;
+    }
+
+    public synchronized void setPlayer(String id) {
+        currentPlayer = id;
+        if (bayeuxClient != null) {
+            backgroundScheduler.post(() -> subscribeToPlayer(id));
+        }
+    }
+
+    private synchronized void subscribeToPlayer(String id) {
+        currentPlayer = id;
+        if (null==id) {
+            if (1==maxSubscribedPlayers) {
+                unsubscribeAll();
+            }
+        } else if (subscribedPlayers.contains(id)) {
+            // Already subscribed, so move to the end as most recently used, and report its
+            // status straight away from the cache
+            subscribedPlayers.remove(id);
+            subscribedPlayers.add(id);
+            PlayerStatus cached = statusCache.get(id);
+            if (null!=cached) {
+                Logger.debug("Cached status for " + id);
+                handlePlayerStatus(cached.at(platform.elapsedRealtime()));
+            }
+        } else {
+            Iterator<String> it = subscribedPlayers.iterator();
+            while (subscribedPlayers.size() >= maxSubscribedPlayers && it.hasNext()) {
+                String eldest = it.next();
+                it.remove();
+                unsubscribePlayer(eldest);
+            }
+            subscribePlayer(id);
+        }
+    }
+
+    private void subscribeToServerStatus() {
+        String channel = "/" + bayeuxClient.getId() + "/slim/serverstatus";
+        bayeuxClient.subscribe(channel, message -> players.update(message.getDataAsMap()));
+        List<Object> req = new ArrayList<>();
+        req.add("");
+        req.add(Arrays.asList("serverstatus", "0", "100", SERVER_STATUS_SUBSCRIPTION));
+        publishMessage(req, "/slim/subscribe", channel, new PublishListener());
+    }
+
+    private void unsubscribeAll() {
+        for (String id : new ArrayList<>(subscribedPlayers)) {
+            subscribedPlayers.remove(id);
+            unsubscribePlayer(id);
+        }
+    }
+
+    public void disconnect() {
+        disconnect(false);
+    }
+
+    private void disconnect(boolean andReconnect) {
+        Logger.debug("connected:"+connectionState.isConnected());
+        if (bayeuxClient != null && connectionState.isConnected()) {
+            if (andReconnect) {
+                backgroundScheduler.post(() -> {
+                    disconnectFromServer();
+                    connect();
+                });
+            } else {
+                backgroundScheduler.post(() -> {
+                    cancelHandshakeTimeout();
+                    backgroundScheduler.cancelPending();
+                    disconnectFromServer();
+                });
+            }
+        }
+        players.clear();
+        connectionState.setConnectionState(ConnectionState.State.DISCONNECTED);
+    }
+
+    private synchronized void disconnectFromServer() {
+        if (bayeuxClient != null) {
+            bayeuxClient.removeListeners();
+            bayeuxClient.disconnect();
+            bayeuxClient = null;
+        }
+        subscribedPlayers.clear();
+        statusCache.clear();
+        players.clear();
+        positionModel.reset();
+    }
+
+    private synchronized void onConnected() {
+        Logger.debug("currentPlayer:"+currentPlayer);
+        subscribedPlayers.clear();
+        statusCache.clear();
+        statusDiffer.reset();
+        connectionState.setConnectionState(ConnectionState.State.CONNECTION_COMPLETED);
+        bayeuxClient.subscribe("/"+bayeuxClient.getId() + "/slim/playerstatus/*", this::handlePlayerStatus);
+        subscribeToServerStatus();
+        subscribeToPlayer(currentPlayer);
+        cancelHandshakeTimeout();
+    }
+
+    private synchronized void onHandshakeTimeout(int attempt) {
+        // Ignore timeouts of earlier attempts, and those that fired just before the handshake
+        // completed
+        if (attempt == handshakeAttempt && null != handshakeTimeout) {
+            Logger.warn("Handshake timeout: " + connectionState);
+            handshakeTimeout = null;
+            disconnectFromServer();
+        }
+    }
+
+    private synchronized void cancelHandshakeTimeout() {
+        if (null != handshakeTimeout) {
+            handshakeTimeout.cancel();
+            handshakeTimeout = null;
+        }
+    }
+
+    private void publishMessage(Object request, final String channel, final String responseChannel, final PublishListener publishListener) {
+        // Make sure all requests are done in the handler thread
+        if (backgroundScheduler.isCurrentThread()) {
+            doPublishMessage(request, channel, responseChannel, publishListener);
+        } else {
+            backgroundScheduler.post(() -> doPublishMessage(request, channel, responseChannel, publishListener));
+        }
+    }
+
+    private void doPublishMessage(Object request, String channel, String responseChannel, PublishListener publishListener) {
+        Map<String, Object> data = new HashMap<>();
+        if (request != null) {
+            data.put("request", request);
+            data.put("response", responseChannel);
+        } else {
+            data.put("unsubscribe", responseChannel);
+        }
+        SlimClient client = bayeuxClient;
+        if (null != client) {
+            client.publish(channel, data, publishListener);
+        }
+    }
+
+    private void subscribePlayer(String id) {
+        Logger.debug("ID:"+id+", connected:"+connectionState.isConnected());
+        if (null!=id && !id.isEmpty() && connectionState.isConnected() && !subscribedPlayers.contains(id)) {
+            List<Object> req = new ArrayList<>();
+            List<Object> params = new ArrayList<>();
+            params.add("status");
+            params.add("-");
+            params.add("1");
+            params.add("subscribe:0");
+            params.add(PLAYER_STATUS_TAGS);
+            req.add(id);
+            req.add(params);
+            publishMessage(req, "/slim/subscribe", "/" + bayeuxClient.getId() + "/slim/playerstatus/" + id, new PublishListener() {
+                @Override
+                public void onMessage(BayeuxMessage message) {
+                    super.onMessage(message);
+                    if (message.isSuccessful()) {
+                        synchronized (CometClient.this) {
+                            subscribedPlayers.add(id);
+                        }
+                        getPlayerStatus(id);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Must already have been removed from subscribedPlayers.
+     */
+    private void unsubscribePlayer(String id) {
+        Logger.debug("ID:"+id+", connected:"+connectionState.isConnected());
+        statusCache.remove(id);
+        if (null!=id && !id.isEmpty() && connectionState.isConnected()) {
+            publishMessage(null, "/slim/subscribe", "/" + bayeuxClient.getId() + "/slim/playerstatus/" + id, new PublishListener());
+        }
+    }
+
+    private void sendMessage(String id, String[] command) {
+        if (null==rpc) {
+            rpc = new JsonRpc(platform);
+            rpcResponse = response -> {
+                try {
+                    if ("status".equals(command[0])) {
+                        handlePlayerStatus(id, response.getJSONObject("result"));
+                    }
+                } catch (JSONException e) {
+                    Logger.error("RPC failed - " + Arrays.toString(command), e);
+                }
+            };
+        }
+        rpc.sendMessage(id, command, rpcResponse);
+    }
+
+    /**
+     * Send a player command over the CometD connection, where it takes the transport's
+     * interactive lane.
+     * @return False if not connected, in which case the command has not been sent.
+     */
+    public synchronized boolean sendCommand(String id, String[] command) {
+        if (!isConnected()) {
+            return false;
+        }
+        List<Object> req = new ArrayList<>();
+        req.add(id);
+        req.add(Arrays.asList(command));
+        publishMessage(req, "/slim/request", "/" + bayeuxClient.getId() + "/slim/request", new PublishListener());
+        return true;
+    }
+
+    public void getPlayerStatus(String id) {
+        sendMessage(id, new String[]{"status", "-", "1", PLAYER_STATUS_TAGS});
+    }
+
+    private String serverUrl() {
+        return new Server(serverAddress, serverPort, null).url(serverHttps);
+    }
+
+    /**
+     * @return True if statuses of this player are to be reported, or cached.
+     */
+    private boolean isWanted(String id) {
+        return Objects.equals(id, currentPlayer) || (maxSubscribedPlayers>1 && subscribedPlayers.contains(id));
+    }
+
+    private void handlePlayerStatus(PlayerStatus status) {
+        status.timestamp = platform.elapsedRealtime();
+        players.setPlaying(status.id, status.isPlaying);
+        if (maxSubscribedPlayers>1 && subscribedPlayers.contains(status.id)) {
+            statusCache.put(status.id, status);
+        }
+        if (!Objects.equals(status.id, currentPlayer)) {
+            return;
+        }
+        PlayerStatusChange change = statusDiffer.diff(status);
+        positionModel.update(status, change, networkDelay());
+        Logger.debug(status + ", changed:" + change);
+        clientListener.updatePlayerStatus(status, change);
+    }
+
+    /**
+     * @return Estimated time for a push to reach us - half the round trip of /slim/ requests.
+     */
+    private long networkDelay() {
+        SlimClient client = bayeuxClient;
+        return null == client ? 0 : client.getTransport().getBulkLatency().getAverage() / 2;
+    }
+
+    private String getString(JSONObject json, String key) {
+        try {
+            return json.getString(key);
+        } catch (Exception ignored) {
+            return "";
+        }
+    }
+
+    private float getFloat(JSONObject json, String key) {
+        try {
+            return (float) json.getDouble(key);
+        } catch (Exception ignored) {
+            return PlayerStatus.parseFloat(getString(json, key));
+        }
+    }
+
+    private synchronized void handlePlayerStatus(String id, JSONObject response) {
+        Logger.verbose("JSON " + id);
+        if (!isWanted(id)) {
+            return;
+        }
+        JSONArray playlist_loop = null;
+        try {
+            playlist_loop = response.getJSONArray("playlist_loop");
+        } catch (JSONException ignored) { }
+        if (playlist_loop!=null && playlist_loop.length()>0) {
+            JSONObject track = null;
+            try {
+                track = playlist_loop.getJSONObject(0);
+            } catch (JSONException ignored) { }
+            if (null!=track) {
+                handlePlayerStatus(PlayerStatus.create(id,
+                        getString(response, "mode"),
+                        getString(track, "remote_title"),
+                        getString(track, "artist"),
+                        getString(track, "album"),
+                        getString(track, "title"),
+                        getString(track, "artwork_url"),
+                        getString(track, "coverid"),
+                        (long) (getFloat(track, "duration") * 1000.0f),
+                        (long) (getFloat(response, "time") * 1000.0f),
+                        serverUrl()));
+                return;
+            }
+        }
+        handlePlayerStatus(PlayerStatus.create(id, getString(response, "mode"), null, null, null, null, null, null, 0, 0, serverUrl()));
+    }
+
+    private synchronized void handlePlayerStatus(BayeuxMessage message) {
+        String[] parts = message.getChannel().split("/");
+        String playerId = parts[parts.length - 1];
+        Logger.verbose("CometD " + playerId);
+
+        if (!isWanted(playerId)) {
+            return;
+        }
+
+        handlePlayerStatus(PlayerStatus.fromData(playerId, message.getDataAsMap(), serverUrl()));
+    }
+}
\ No newline at end of file
@@ -8,15 +8,17 @@
 
 package com.craigd.lmsmaterial.app.cometd;
 
-import android.os.SystemClock;
-
 import androidx.annotation.NonNull;
 
-import com.craigd.lmsmaterial.app.Utils;
+import com.craigd.lmsmaterial.app.platform.Logger;
+import com.craigd.lmsmaterial.app.platform.Platform;
 
 
 public class ConnectionState  {
-    ConnectionState() {
+    private final Platform platform;
+
+    ConnectionState(Platform platform) {
+        this.platform = platform;
     }
 
     public enum Error {
@@ -75,13 +77,13 @@ public class ConnectionState  {
      * @param connectionState The new connection state.
      */
     void setConnectionState(State connectionState) {
-        Utils.info(state + " => " + connectionState);
+        Logger.info(state + " => " + connectionState);
         updateConnectionState(connectionState);
         //TODO mEventBus.postSticky(new ConnectionChanged(connectionState));
     }
 
     void setConnectionError(Error connectionError) {
-        Utils.info(state + " => " + connectionError);
+        Logger.info(state + " => " + connectionError);
         updateConnectionState(State.CONNECTION_FAILED);
         //TODO mEventBus.postSticky(new ConnectionChanged(connectionError));
     }
@@ -94,7 +96,7 @@ public class ConnectionState  {
 
         // Start timer for rehandshake
         if (connectionState == State.REHANDSHAKING) {
-            rehandshake = SystemClock.elapsedRealtime();
+            rehandshake = platform.elapsedRealtime();
         }
         state = connectionState;
     }
@@ -113,7 +115,7 @@ public class ConnectionState  {
 
     boolean canRehandshake() {
         return isRehandshaking()
-                && ((SystemClock.elapsedRealtime() - rehandshake) < REHANDSHAKE_TIMEOUT);
+                && ((platform.elapsedRealtime() - rehandshake) < REHANDSHAKE_TIMEOUT);
     }
 
     @NonNull
@@ -0,0 +1,231 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Streaming decoder for "Content-Encoding: gzip" and "deflate" bodies, which may be split at any
+ * point by chunking or by reads. The gzip and zlib wrappers are parsed here, so a single raw
+ * Inflater can be kept for the life of the connection and just reset between responses.
+ * Concatenated gzip members are decoded one after another.
+ */
+class ContentDecoder {
+    interface Sink {
+        /**
+         * The buffer is only valid for the duration of the call.
+         */
+        void onDecoded(ByteBuffer data);
+    }
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int GZIP_TRAILER = 8;
+    private static final int ZLIB_TRAILER = 4;
+    private static final int MAX_HEADER = 8 * 1024;
+
+    private enum State { HEADER, BODY, TRAILER, DONE }
+
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] input = new byte[8 * 1024];
+    private final byte[] output = new byte[16 * 1024];
+    private int inputLength;
+    private byte[] header = new byte[32];
+    private int headerLength;
+    private int trailerRemaining;
+    private boolean gzip;
+    private boolean active = false;
+    private State state = State.DONE;
+
+    /**
+     * @param encoding Value of the Content-Encoding header
+     * @return False if the encoding is not supported.
+     */
+    static boolean isSupported(String encoding) {
+        return GZIP.equals(encoding) || DEFLATE.equals(encoding);
+    }
+
+    void begin(String encoding) {
+        inflater.reset();
+        gzip = GZIP.equals(encoding);
+        headerLength = 0;
+        state = State.HEADER;
+        active = true;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    void end() {
+        active = false;
+        state = State.DONE;
+        inflater.reset();
+    }
+
+    void decode(ByteBuffer data, Sink sink) throws IOException {
+        while (data.hasRemaining()) {
+            switch (state) {
+                case HEADER:
+                    readHeader(data);
+                    break;
+                case BODY:
+                    inflate(data, sink);
+                    break;
+                case TRAILER: {
+                    int skip = Math.min(trailerRemaining, data.remaining());
+                    data.position(data.position() + skip);
+                    trailerRemaining -= skip;
+                    if (0 == trailerRemaining) {
+                        if (gzip) {
+                            // Another member may follow
+                            inflater.reset();
+                            headerLength = 0;
+                            state = State.HEADER;
+                        } else {
+                            state = State.DONE;
+                        }
+                    }
+                    break;
+                }
+                case DONE:
+                    // Anything after the end of the stream is ignored
+                    data.position(data.limit());
+                    break;
+            }
+        }
+    }
+
+    private void readHeader(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            if (headerLength == header.length) {
+                if (headerLength >= MAX_HEADER) {
+                    throw new ZipException("Header too long");
+                }
+                byte[] grown = new byte[headerLength * 2];
+                System.arraycopy(header, 0, grown, 0, headerLength);
+                header = grown;
+            }
+            header[headerLength++] = data.get();
+            int length = gzip ? gzipHeaderLength() : zlibHeaderLength();
+            if (length >= 0) {
+                state = State.BODY;
+                if (length < headerLength) {
+                    // Raw deflate, with no zlib wrapper - the bytes read are data
+                    System.arraycopy(header, 0, input, 0, headerLength);
+                    inputLength = headerLength;
+                    inflater.setInput(input, 0, inputLength);
+                    trailerRemaining = 0;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Length of the header, or -1 if more bytes are needed.
+     */
+    private int gzipHeaderLength() throws IOException {
+        if (headerLength < 10) {
+            return -1;
+        }
+        if ((header[0] & 0xff) != GZIP_MAGIC_1 || (header[1] & 0xff) != GZIP_MAGIC_2 || 8 != header[2]) {
+            throw new ZipException("Not in gzip format");
+        }
+        int flags = header[3] & 0xff;
+        int pos = 10;
+        if (0 != (flags & FEXTRA)) {
+            if (headerLength < pos + 2) {
+                return -1;
+            }
+            pos += 2 + ((header[pos] & 0xff) | ((header[pos + 1] & 0xff) << 8));
+        }
+        if (0 != (flags & FNAME)) {
+            pos = skipString(pos);
+        }
+        if (pos >= 0 && 0 != (flags & FCOMMENT)) {
+            pos = skipString(pos);
+        }
+        if (pos >= 0 && 0 != (flags & FHCRC)) {
+            pos += 2;
+        }
+        if (pos < 0 || headerLength < pos) {
+            return -1;
+        }
+        trailerRemaining = GZIP_TRAILER;
+        return pos;
+    }
+
+    private int skipString(int pos) {
+        for (int i = pos; i < headerLength; ++i) {
+            if (0 == header[i]) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * "deflate" is meant to be zlib wrapped, but some servers send it raw.
+     */
+    private int zlibHeaderLength() {
+        if (headerLength < 2) {
+            return -1;
+        }
+        int cmf = header[0] & 0xff;
+        int flg = header[1] & 0xff;
+        if (8 == (cmf & 0x0f) && 0 == ((cmf << 8) | flg) % 31) {
+            trailerRemaining = ZLIB_TRAILER;
+            return 2;
+        }
+        return 0;
+    }
+
+    private void inflate(ByteBuffer data, Sink sink) throws IOException {
+        if (inflater.needsInput()) {
+            inputLength = Math.min(data.remaining(), input.length);
+            data.get(input, 0, inputLength);
+            inflater.setInput(input, 0, inputLength);
+        }
+        try {
+            int count;
+            while ((count = inflater.inflate(output)) > 0) {
+                sink.onDecoded(ByteBuffer.wrap(output, 0, count));
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        if (inflater.needsDictionary()) {
+            throw new ZipException("Dictionary required");
+        }
+        if (inflater.finished()) {
+            // Whatever the inflater did not use is the start of the trailer
+            int unused = inflater.getRemaining();
+            int skip = Math.min(unused, trailerRemaining);
+            trailerRemaining -= skip;
+            state = State.TRAILER;
+            if (unused > skip) {
+                // More than the trailer, so another gzip member (or junk) follows. This may have
+                // been read from an earlier buffer, so take a copy before input is reused.
+                decode(ByteBuffer.wrap(Arrays.copyOfRange(input, inputLength - unused + skip, inputLength)), sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Socket used by the streaming delegate of {@link HttpStreamingTransport}. Implemented either by a
+ * blocking socket with its own reader thread, or by a non-blocking channel driven by the shared
+ * {@link SelectorEngine}.
+ */
+interface DelegateConnection {
+    interface Listener {
+        /**
+         * Called with data read from the socket. The buffer is only valid for the duration of
+         * the call.
+         */
+        void onData(ByteBuffer data) throws IOException;
+
+        /**
+         * Called if the connection fails, or is closed by the server - but not when closed
+         * via {@link #close()}. An EOFException indicates the server closed the connection.
+         */
+        void onClosed(IOException cause);
+    }
+
+    /**
+     * Start connecting. Depending upon the implementation this may return before the
+     * connection is established, in which case data written is queued until it is.
+     * @param address May be unresolved, in which case the host is looked up as part of connecting.
+     */
+    void connect(InetSocketAddress address, int timeout, Listener listener) throws IOException;
+
+    boolean isOpen();
+
+    /**
+     * Write the buffers, in order, as one unit.
+     * @param onWritten If not null, called once the buffers are no longer needed - either
+     *     because they have been written, or because the connection was closed.
+     */
+    void write(Runnable onWritten, ByteBuffer... buffers) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,137 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending exchanges, indexed both by message ID and by channel. LMS omits the ID from some
+ * replies, so these need to be matched by channel instead - each channel keeps its exchanges in
+ * the order they were registered, and an ID-less reply is matched against the oldest. Each
+ * channel has its own lock, so registering on one channel never waits on another.
+ */
+class ExchangeRegistry<T> {
+    private final ConcurrentHashMap<String, Node<T>> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Lane<T>> byChannel = new ConcurrentHashMap<>();
+
+    /**
+     * @return False if an exchange with this ID is already registered.
+     */
+    boolean add(String id, String channel, T value) {
+        if (null == channel) {
+            channel = "";
+        }
+        Lane<T> lane = byChannel.get(channel);
+        if (null == lane) {
+            Lane<T> created = new Lane<>();
+            lane = byChannel.putIfAbsent(channel, created);
+            if (null == lane) {
+                lane = created;
+            }
+        }
+        Node<T> node = new Node<>(lane, value);
+        if (null != byId.putIfAbsent(id, node)) {
+            return false;
+        }
+        lane.add(node);
+        return true;
+    }
+
+    T remove(String id) {
+        Node<T> node = null == id ? null : byId.remove(id);
+        if (null == node) {
+            return null;
+        }
+        node.lane.remove(node);
+        return node.value;
+    }
+
+    /**
+     * @return The longest registered exchange for the channel, or null if there are none.
+     */
+    T oldest(String channel) {
+        Lane<T> lane = null == channel ? null : byChannel.get(channel);
+        return null == lane ? null : lane.first();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    List<T> values() {
+        List<T> values = new ArrayList<>(byId.size());
+        for (Node<T> node : byId.values()) {
+            values.add(node.value);
+        }
+        return values;
+    }
+
+    private static class Node<T> {
+        final Lane<T> lane;
+        final T value;
+        Node<T> prev;
+        Node<T> next;
+        boolean removed = false;
+
+        Node(Lane<T> lane, T value) {
+            this.lane = lane;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Doubly linked so that removal by ID is O(1), wherever the exchange is in the queue.
+     */
+    private static class Lane<T> {
+        private Node<T> head;
+        private Node<T> tail;
+
+        synchronized void add(Node<T> node) {
+            if (node.removed) {
+                // Removed by ID before it was queued
+                return;
+            }
+            node.prev = tail;
+            if (null == tail) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        synchronized void remove(Node<T> node) {
+            if (node.removed) {
+                return;
+            }
+            node.removed = true;
+            if (null == node.prev) {
+                if (head == node) {
+                    head = node.next;
+                } else {
+                    // Not yet queued
+                    return;
+                }
+            } else {
+                node.prev.next = node.next;
+            }
+            if (null == node.next) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = node.next = null;
+        }
+
+        synchronized T first() {
+            return null == head ? null : head.value;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Byte level HTTP/1.1 response parser. Data is fed in as it is read from the socket, and the
+ * parser keeps its state between calls. Header names are matched case-insensitively, and both
+ * Content-Length and chunk sizes are counted in bytes - the payload is passed on untouched, so
+ * it is only decoded once by whoever consumes it. After a response completes the parser is
+ * ready for the next response on the same (keep-alive) connection.
+ */
+class HttpResponseParser {
+    interface Handler {
+        void onStatus(int status);
+
+        /**
+         * Called for each header, and for each trailer of a chunked response.
+         * @param name Lower-cased header name
+         */
+        void onHeader(String name, String value);
+
+        /**
+         * Called with the next piece of the (de-chunked) response body. The buffer is only
+         * valid for the duration of the call.
+         */
+        void onContent(ByteBuffer content) throws IOException;
+
+        void onComplete(boolean keepAlive) throws IOException;
+    }
+
+    private enum State {
+        STATUS_LINE,
+        HEADER,
+        CONTENT,
+        CONTENT_TO_EOF,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_END,
+        TRAILER
+    }
+
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final Handler handler;
+    private State state = State.STATUS_LINE;
+    private byte[] line = new byte[256];
+    private int lineLength = 0;
+    private int status;
+    private boolean http10;
+    private boolean chunked;
+    private boolean close;
+    private boolean keepAlive;
+    private long contentLength;
+    private long remaining;
+
+    HttpResponseParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * @return True if a response has been started, but not yet completed.
+     */
+    boolean inResponse() {
+        return State.STATUS_LINE != state || lineLength > 0;
+    }
+
+    void parse(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case CONTENT:
+                case CHUNK_DATA:
+                    int count = (int) Math.min(remaining, buffer.remaining());
+                    ByteBuffer content = buffer.slice();
+                    content.limit(count);
+                    buffer.position(buffer.position() + count);
+                    remaining -= count;
+                    handler.onContent(content);
+                    if (0 == remaining) {
+                        if (State.CONTENT == state) {
+                            complete();
+                        } else {
+                            state = State.CHUNK_END;
+                        }
+                    }
+                    break;
+                case CONTENT_TO_EOF:
+                    handler.onContent(buffer.slice());
+                    buffer.position(buffer.limit());
+                    break;
+                default:
+                    if (readLine(buffer)) {
+                        String text = new String(line, 0, lineLength, StandardCharsets.ISO_8859_1);
+                        lineLength = 0;
+                        handleLine(text);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Called when the connection has been closed by the server.
+     */
+    void finish() throws IOException {
+        if (State.CONTENT_TO_EOF == state) {
+            complete();
+        } else if (inResponse()) {
+            throw new EOFException("Connection closed in " + state);
+        }
+    }
+
+    void reset() {
+        state = State.STATUS_LINE;
+        lineLength = 0;
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (LF == b) {
+                if (lineLength > 0 && CR == line[lineLength - 1]) {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength == line.length) {
+                if (lineLength >= MAX_LINE_LENGTH) {
+                    throw new IOException("HTTP line too long in " + state);
+                }
+                line = Arrays.copyOf(line, Math.min(MAX_LINE_LENGTH, lineLength * 2));
+            }
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    private void handleLine(String text) throws IOException {
+        switch (state) {
+            case STATUS_LINE:
+                if (!text.isEmpty()) {
+                    parseStatusLine(text);
+                }
+                break;
+            case HEADER:
+                if (text.isEmpty()) {
+                    headersComplete();
+                } else {
+                    parseHeader(text, true);
+                }
+                break;
+            case CHUNK_SIZE:
+                parseChunkSize(text);
+                break;
+            case CHUNK_END:
+                if (!text.isEmpty()) {
+                    throw new IOException("Missing CRLF after chunk");
+                }
+                state = State.CHUNK_SIZE;
+                break;
+            case TRAILER:
+                if (text.isEmpty()) {
+                    complete();
+                } else {
+                    parseHeader(text, false);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void parseStatusLine(String text) throws IOException {
+        // HTTP/1.1 200 OK
+        if (text.length() < 12 || !text.regionMatches(true, 0, "HTTP/1.", 0, 7) || ' ' != text.charAt(8)) {
+            throw new IOException("Invalid status line: " + text);
+        }
+        try {
+            status = Integer.parseInt(text.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + text);
+        }
+        http10 = '0' == text.charAt(7);
+        chunked = false;
+        close = false;
+        keepAlive = false;
+        contentLength = -1;
+        state = State.HEADER;
+        handler.onStatus(status);
+    }
+
+    private void parseHeader(String text, boolean isHeader) throws IOException {
+        int colon = text.indexOf(':');
+        if (colon <= 0) {
+            throw new IOException("Invalid header: " + text);
+        }
+        String name = text.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+        String value = text.substring(colon + 1).trim();
+        if (isHeader) {
+            switch (name) {
+                case "content-length":
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid Content-Length: " + value);
+                    }
+                    break;
+                case "transfer-encoding":
+                    chunked = value.toLowerCase(Locale.ENGLISH).contains("chunked");
+                    break;
+                case "connection": {
+                    String lower = value.toLowerCase(Locale.ENGLISH);
+                    close = lower.contains("close");
+                    keepAlive = lower.contains("keep-alive");
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        handler.onHeader(name, value);
+    }
+
+    private void headersComplete() throws IOException {
+        if (status >= 100 && status < 200) {
+            // Interim response, the real one follows
+            state = State.STATUS_LINE;
+        } else if (204 == status || 304 == status) {
+            complete();
+        } else if (chunked) {
+            state = State.CHUNK_SIZE;
+        } else if (contentLength > 0) {
+            remaining = contentLength;
+            state = State.CONTENT;
+        } else if (0 == contentLength) {
+            complete();
+        } else {
+            // No framing, so the body runs until the server closes the connection
+            close = true;
+            state = State.CONTENT_TO_EOF;
+        }
+    }
+
+    private void parseChunkSize(String text) throws IOException {
+        // Chunk size is hex, and may be followed by ";" and chunk extensions
+        int end = text.indexOf(';');
+        String size = (end < 0 ? text : text.substring(0, end)).trim();
+        try {
+            remaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + text);
+        }
+        if (remaining < 0) {
+            throw new IOException("Invalid chunk size: " + text);
+        }
+        state = 0 == remaining ? State.TRAILER : State.CHUNK_DATA;
+    }
+
+    private void complete() throws IOException {
+        state = State.STATUS_LINE;
+        handler.onComplete(!close && (!http10 || keepAlive));
+    }
+}
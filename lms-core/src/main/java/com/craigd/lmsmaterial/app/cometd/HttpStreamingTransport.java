@@ -0,0 +1,1245 @@
+/**
+ * LMS-Material-App
+ *
+ * NOTE: This file copied from https://github.com/kaaholst/android-squeezer
+ *
+ * Apache-2.0 license
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Bayeux over a single streaming HTTP connection to LMS. Every message - handshake, connect,
+ * subscribes and publishes - is sent as a request on this connection, and every reply and pushed
+ * message is read from its chunked response. The exception is commands (/slim/request), which
+ * have a second connection to themselves whenever it is free - see CommandConnection.
+ */
+public class HttpStreamingTransport {
+    public interface Listener {
+        /**
+         * Called just before messages are written, so before any reply can arrive.
+         */
+        void onSending(List<BayeuxMessage> messages);
+
+        /**
+         * Replies, and messages pushed by the server.
+         */
+        void onMessages(List<BayeuxMessage> messages);
+
+        /**
+         * Messages that were not sent, or not replied to, or an empty list if the connection
+         * failed with no requests outstanding.
+         */
+        void onFailure(Throwable failure, List<BayeuxMessage> messages);
+    }
+
+    public static final String NAME = "streaming";
+    public static final String NIO_OPTION = "nio";
+    // Milliseconds, rounded up to whole ticks of the shared TimingWheel
+    public static final String BATCH_WINDOW_OPTION = "batchWindow";
+    public static final String COMPRESSION_OPTION = "compression";
+    public static final String METRICS_OPTION = "metrics";
+    // If set, each streaming connection is captured to a new file in this directory
+    public static final String CAPTURE_DIR_OPTION = "captureDir";
+    // Authorization header value, e.g. "Basic ..."
+    public static final String AUTHORIZATION_OPTION = "authorization";
+    public static final String MAX_NETWORK_DELAY_OPTION = "maxNetworkDelay";
+    // Whether to send commands on a connection of their own, defaults to true
+    public static final String COMMAND_CONNECTION_OPTION = "commandConnection";
+
+    private static final ByteBufferPool READ_BUFFERS = new ByteBufferPool(8 * 1024, false, 4);
+    private static final ByteBufferPool WRITE_BUFFERS = new ByteBufferPool(16 * 1024, true, 4);
+    // Writes requested from threads that must not block on a socket, i.e. the timing wheel's
+    private static final Executor WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, HttpStreamingTransport.class.getSimpleName() + "-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final int DEFAULT_CONNECT_TIMEOUT = 4000;
+    private static final long DEFAULT_MAX_NETWORK_DELAY = 10000;
+    // RFC 6298's lower bound for the retransmission timeout
+    private static final long MIN_TIMEOUT = 1000;
+    private static final long MAX_TIMEOUT = 60000;
+    private static final long DEFAULT_PROBE_WINDOW = 1500;
+    private static final String PROBE_ID_PREFIX = "probe";
+    private static final String PROBE_RESPONSE = "/slim/probe";
+    private static final String INTERACTIVE_CHANNEL = "/slim/request";
+    private static final String SLIM_CHANNEL_PREFIX = "/slim/";
+    private static final int HTTP_OK = 200;
+
+    private final TimingWheel _timeouts;
+    private List<BayeuxMessage> _batch;
+
+    private final Delegate _delegate;
+    private final CommandConnection _commands;
+    private volatile Listener _listener;
+
+    private volatile boolean _aborted;
+    private final String _host;
+    private final int _port;
+    private final boolean _secure;
+    private final boolean _nio;
+    private final long _batchWindow;
+    private final boolean _compression;
+    private final long _maxNetworkDelay;
+    private final boolean _commandConnection;
+    private final AtomicLong _wireBytes = new AtomicLong();
+    private final AtomicLong _contentBytes = new AtomicLong();
+    private final LatencyStats _interactiveLatency = new LatencyStats("interactive");
+    private final LatencyStats _bulkLatency = new LatencyStats("bulk");
+    private final TransportMetrics _metrics;
+    private final File _captureDir;
+
+    public HttpStreamingTransport(String url, Map<String, Object> options) {
+        URI uri = URI.create(url);
+        String scheme = null == uri.getScheme() ? "" : uri.getScheme().toLowerCase(Locale.ENGLISH);
+        if (!"http".equals(scheme) && !"https".equals(scheme))
+            throw new IllegalArgumentException("Invalid protocol " + scheme);
+
+        _host = uri.getHost();
+        _secure = "https".equals(scheme);
+        _port = uri.getPort() < 0 ? (_secure ? 443 : 80) : uri.getPort();
+        _nio = booleanOption(options, NIO_OPTION, false);
+        _batchWindow = longOption(options, BATCH_WINDOW_OPTION, 0L);
+        _compression = booleanOption(options, COMPRESSION_OPTION, false);
+        _maxNetworkDelay = longOption(options, MAX_NETWORK_DELAY_OPTION, DEFAULT_MAX_NETWORK_DELAY);
+        _commandConnection = booleanOption(options, COMMAND_CONNECTION_OPTION, true);
+        Object metrics = options.get(METRICS_OPTION);
+        _metrics = metrics instanceof TransportMetrics ? (TransportMetrics) metrics : new TransportMetrics(false);
+        Object captureDir = options.get(CAPTURE_DIR_OPTION);
+        _captureDir = null == captureDir ? null : new File(captureDir.toString());
+        _timeouts = TimingWheel.shared();
+
+        String path = uri.getRawPath();
+        StringBuilder headers = new StringBuilder("POST ").append(null == path || path.isEmpty() ? "/cometd" : path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(_host);
+        if (uri.getPort() >= 0 && _port != (_secure ? 443 : 80)) {
+            headers.append(':').append(_port);
+        }
+        headers.append("\r\nContent-Type: text/json;charset=UTF-8\r\n");
+        Object authorization = options.get(AUTHORIZATION_OPTION);
+        if (null != authorization) {
+            headers.append("Authorization: ").append(authorization).append("\r\n");
+        }
+        _delegate = new Delegate(headers.toString());
+        _commands = new CommandConnection();
+    }
+
+    private static boolean booleanOption(Map<String, Object> options, String name, boolean defaultValue) {
+        Object value = options.get(name);
+        return null == value ? defaultValue : Boolean.parseBoolean(value.toString());
+    }
+
+    private static long longOption(Map<String, Object> options, String name, long defaultValue) {
+        Object value = options.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null == value ? defaultValue : Long.parseLong(value.toString());
+    }
+
+    public void setListener(Listener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Fail anything outstanding, close the connection, and refuse any further sends.
+     */
+    public void abort() {
+        List<BayeuxMessage> batch;
+        synchronized (this) {
+            _aborted = true;
+            batch = _batch;
+            _batch = null;
+        }
+        if (batch != null) {
+            _listener.onFailure(new IOException("Transport " + this + " aborted"), batch);
+        }
+        _delegate.cancelTimeouts();
+        _delegate.disconnect("Aborted");
+    }
+
+    public void terminate() {
+        synchronized (this) {
+            _batch = null;
+        }
+        _delegate.cancelTimeouts();
+        _delegate.disconnect("Terminated");
+        Logger.debug(_interactiveLatency + ", " + _bulkLatency);
+    }
+
+    public TransportMetrics getMetrics() {
+        return _metrics;
+    }
+
+    public LatencyStats getInteractiveLatency() {
+        return _interactiveLatency;
+    }
+
+    public LatencyStats getBulkLatency() {
+        return _bulkLatency;
+    }
+
+    /**
+     * @return Bytes read from the streaming connection, including HTTP framing.
+     */
+    public long getWireBytes() {
+        return _wireBytes.get();
+    }
+
+    /**
+     * @return Bytes of JSON received on the streaming connection, after any decompression.
+     */
+    public long getContentBytes() {
+        return _contentBytes.get();
+    }
+
+    public boolean isConnected() {
+        return _delegate.isConnected();
+    }
+
+    /**
+     * Check the streaming connection is still alive now, e.g. after a network change, rather than
+     * waiting for it to go quiet.
+     */
+    public void checkLiveness() {
+        _delegate._watchdog.check();
+    }
+
+    public void send(List<BayeuxMessage> messages) {
+        if (_aborted) {
+            _listener.onFailure(new IOException("Aborted"), messages);
+            return;
+        }
+
+        List<BayeuxMessage> immediate = null;
+        List<BayeuxMessage> commands = null;
+        List<BayeuxMessage> bulk = null;
+        for (BayeuxMessage message : messages) {
+            String channel = message.getChannel();
+            if (BayeuxMessage.META_HANDSHAKE.equals(channel) && _delegate.isConnected()) {
+                _delegate.disconnect("Disconnect to prepare for a new handshake");
+            }
+            // Commands are sent immediately, so they never wait for the batch window
+            if (INTERACTIVE_CHANNEL.equals(channel)) {
+                if (commands == null) commands = new ArrayList<>(messages.size());
+                commands.add(message);
+            } else if (_batchWindow <= 0 || message.isMeta()) {
+                if (immediate == null) immediate = new ArrayList<>(messages.size());
+                immediate.add(message);
+            } else {
+                if (bulk == null) bulk = new ArrayList<>(messages.size());
+                bulk.add(message);
+            }
+        }
+
+        if (immediate != null) delegateSend(immediate, false);
+        if (commands != null) delegateSend(commands, true);
+        if (bulk != null) queuePublish(bulk);
+    }
+
+    /**
+     * Hold publishes for the batch window, so that those made in quick succession (e.g. the
+     * unsubscribe/subscribe pair when changing player) are sent as one request.
+     */
+    private void queuePublish(List<BayeuxMessage> messages) {
+        synchronized (this) {
+            if (_batch == null) {
+                _batch = new ArrayList<>(messages.size());
+                _timeouts.schedule(this::sendBatch, _batchWindow);
+            }
+            _batch.addAll(messages);
+        }
+    }
+
+    private void sendBatch() {
+        List<BayeuxMessage> batch;
+        synchronized (this) {
+            batch = _batch;
+            _batch = null;
+        }
+        if (batch != null) {
+            delegateSend(batch, false);
+        }
+    }
+
+    /**
+     * Create the socket for the streaming delegate. Replaced when replaying a capture.
+     */
+    DelegateConnection newDelegateConnection(String host, boolean secure) throws IOException {
+        // In NIO mode connect returns immediately, and anything sent before the connection
+        // completes is queued.
+        // TLS is only implemented for blocking connections, so is never NIO.
+        return secure
+                ? new SocketConnection(TlsSockets.socketFactory(), host)
+                : _nio ? SelectorEngine.get().newConnection() : new SocketConnection(null, host);
+    }
+
+    /**
+     * @param commands True if messages are all commands, to go on the command connection if it
+     *     is free.
+     */
+    private void delegateSend(List<BayeuxMessage> messages, boolean commands) {
+        if (!_delegate.isConnected()) {
+            try {
+                _delegate.connect(_host, _port, _secure);
+            } catch (IOException e) {
+                Logger.info("Error connecting delegate");
+                _listener.onFailure(e, messages);
+                return;
+            }
+        }
+
+        _delegate.registerMessages(messages);
+        try {
+            String content = BayeuxJsonEncoder.encode(messages);
+
+            // The onSending() callback must be invoked before the actual send
+            // otherwise we may have a race condition where the response is so
+            // fast that it arrives before the onSending() is called.
+            //Log.v(TAG,"Sending messages " + content);
+            _listener.onSending(messages);
+
+            if (!commands || !_commands.send(content, messages)) {
+                _delegate.send(content, messages);
+            }
+        } catch (Throwable x) {
+            _delegate.fail(x, "Exception");
+        }
+    }
+
+    private class Delegate implements LivenessWatchdog.Callback, ResponseOwner {
+        private DelegateConnection connection;
+        private ResponseHandler handler;
+        // Request line and headers that are the same for every request, encoded once
+        private final ByteBuffer headerBlock;
+        private final ByteBuffer compressedHeaderBlock;
+        // Set if the server sends a body we cannot decode, after which we stop asking for compression
+        private volatile boolean _compressionFailed;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ExchangeRegistry<Exchange> _exchanges = new ExchangeRegistry<>();
+        private final RttEstimator _rtt = new RttEstimator(MIN_TIMEOUT, MAX_TIMEOUT);
+        private final LivenessWatchdog _watchdog = new LivenessWatchdog(TimingWheel.shared(), this);
+        private final AtomicInteger _probes = new AtomicInteger();
+        private volatile String _clientId;
+        private Map<String, Object> _advice;
+        private long _connectedAt;
+
+        Delegate(String headers) {
+            headerBlock = ByteBuffer.wrap(headers.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            String compressed = headers + "Accept-Encoding: " + ContentDecoder.GZIP + ", " + ContentDecoder.DEFLATE + "\r\n";
+            compressedHeaderBlock = ByteBuffer.wrap(compressed.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        }
+
+        private boolean isConnected() {
+            synchronized (this) {
+                return connection != null && connection.isOpen();
+            }
+        }
+
+        /**
+         * @return True if session is still the delegate's open connection, i.e. it has not been
+         *     replaced by a reconnect.
+         */
+        @Override
+        public boolean isCurrent(DelegateConnection session) {
+            synchronized (this) {
+                return connection == session && session.isOpen();
+            }
+        }
+
+        public void connect(String host, int port, boolean secure) throws IOException {
+            if (_aborted) {
+                throw new IOException("Aborted");
+            }
+            DelegateConnection session = newDelegateConnection(host, secure);
+            File captureDir = _captureDir;
+            if (captureDir != null) {
+                File file = new File(captureDir, "cometd-" + System.currentTimeMillis() + ".cap");
+                try {
+                    session = new StreamCapture.Connection(session, file);
+                    Logger.debug("Capturing to " + file);
+                } catch (IOException e) {
+                    Logger.warn("Failed to create capture " + file, e);
+                }
+            }
+
+            ResponseHandler responseHandler = new ResponseHandler(this, this, session);
+            synchronized (this) {
+                connection = session;
+                handler = responseHandler;
+                _connectedAt = System.nanoTime();
+            }
+
+            // Not derived from the RTT: that was measured on the last connection, which may have
+            // been over a different network, and TCP retries the connect on its own schedule.
+            // Unresolved, as looking the host up blocks: the connection does it when it connects.
+            session.connect(InetSocketAddress.createUnresolved(host, port), DEFAULT_CONNECT_TIMEOUT, responseHandler);
+            _watchdog.start();
+            _commands.open();
+        }
+
+        private void disconnect(String reason) {
+            _watchdog.stop();
+            _commands.close();
+            DelegateConnection session;
+            long connectedAt;
+            synchronized (this) {
+                session = connection;
+                connection = null;
+                handler = null;
+                connectedAt = _connectedAt;
+            }
+
+            if (session != null) {
+                _metrics.socketClosed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectedAt));
+            }
+            if (session != null && session.isOpen()) {
+                Logger.verbose("Closing socket, reason: " + reason + ", received " + _wireBytes.get() + " bytes for " + _contentBytes.get() + " bytes of content");
+                session.close();
+            }
+        }
+
+        @Override
+        public void fail(Throwable failure, String reason) {
+            Logger.debug(reason);
+            disconnect(reason);
+            List<BayeuxMessage> messages = new ArrayList<>(1);
+            for (Exchange exchange : _exchanges.values()) {
+                if (deregisterMessage(exchange.message) == exchange) {
+                    messages.add(exchange.message);
+                }
+            }
+            _listener.onFailure(failure, messages);
+        }
+
+        @Override
+        public void completed(boolean chunked, boolean keepAlive) {
+            if (chunked) {
+                disconnect("End of chunks");
+            } else if (!keepAlive) {
+                disconnect("Connection closed by server");
+            }
+        }
+
+        private void registerMessages(List<BayeuxMessage> messages) {
+            for (BayeuxMessage message : messages)
+                registerMessage(message);
+        }
+
+        private void registerMessage(final BayeuxMessage message) {
+            if (message.getClientId() != null)
+                _clientId = message.getClientId();
+
+            // Calculate max network delay, from the measured round trip time once we have one
+            long maxNetworkDelay = _rtt.timeout(_maxNetworkDelay);
+            if (INTERACTIVE_CHANNEL.equals(message.getChannel())) {
+                // A command is only replied to once the server has carried it out, which can take
+                // far longer than a round trip (e.g. during a scan) - and expiry drops the
+                // connection - so the estimate may lengthen, but never shorten, its timeout.
+                maxNetworkDelay = Math.max(maxNetworkDelay, _maxNetworkDelay);
+            } else if (BayeuxMessage.META_CONNECT.equals(message.getChannel())) {
+                Map<String, Object> advice = message.getAdvice();
+                if (advice == null)
+                    advice = _advice;
+                if (advice != null) {
+                    Object timeout = advice.get(BayeuxMessage.TIMEOUT_FIELD);
+                    if (timeout instanceof Number)
+                        maxNetworkDelay += ((Number) timeout).intValue();
+                    else if (timeout != null)
+                        maxNetworkDelay += Integer.parseInt(timeout.toString());
+                }
+            }
+
+            // Schedule a task to expire if the maxNetworkDelay elapses
+            TimingWheel.Timeout task = _timeouts.schedule(() -> {
+                _rtt.backoff();
+                _metrics.expired();
+                fail(new TimeoutException(), "Expired");
+            }, maxNetworkDelay);
+
+            // Register the exchange
+            // Message responses must have the same messageId as the requests
+
+            Exchange exchange = new Exchange(message, task, lane(message.getChannel()));
+            //Logger.debug("Registering " + exchange);
+            // Paranoid check
+            if (!_exchanges.add(message.getId(), message.getChannel(), exchange))
+                throw new IllegalStateException();
+        }
+
+        /**
+         * @return Where the round trip of a publish to the channel is recorded, or null if it
+         *     is not.
+         */
+        private LatencyStats lane(String channel) {
+            if (INTERACTIVE_CHANNEL.equals(channel)) {
+                return _interactiveLatency;
+            }
+            return channel != null && channel.startsWith(SLIM_CHANNEL_PREFIX) ? _bulkLatency : null;
+        }
+
+        private Exchange deregisterMessage(BayeuxMessage message) {
+            return deregisterMessage(message.getId());
+        }
+
+        private Exchange deregisterMessage(String id) {
+            Exchange exchange = _exchanges.remove(id);
+            //Logger.debug("Deregistering " + exchange + " for message " + message);
+            if (exchange != null)
+                exchange.task.cancel();
+
+            return exchange;
+        }
+
+        /**
+         * The wheel is shared, so on abort/terminate stop our timeouts firing - any exchanges
+         * are left to be failed by the next connection attempt.
+         */
+        private void cancelTimeouts() {
+            for (Exchange exchange : _exchanges.values()) {
+                exchange.task.cancel();
+            }
+        }
+
+        /**
+         * Probe the connection with a cheap request, over the streaming connection itself so
+         * that it is that connection whose liveness is tested.
+         */
+        @Override
+        public boolean probe() {
+            String clientId = _clientId;
+            if (clientId == null || !isConnected()) {
+                return false;
+            }
+            BayeuxMessage message = new BayeuxMessage(INTERACTIVE_CHANNEL);
+            message.setClientId(clientId);
+            message.setId(PROBE_ID_PREFIX + _probes.incrementAndGet());
+            Map<String, Object> data = new HashMap<>(2);
+            data.put("request", Arrays.asList("", Arrays.asList("version", "?")));
+            data.put("response", "/" + clientId + PROBE_RESPONSE);
+            message.setData(data);
+            Logger.debug("Liveness probe");
+            // Called on the timing wheel's thread, which must never wait on a socket
+            List<BayeuxMessage> messages = Collections.singletonList(message);
+            WRITER.execute(() -> {
+                try {
+                    send(BayeuxJsonEncoder.encode(messages), messages);
+                } catch (IOException e) {
+                    fail(e, "Probe failed");
+                }
+            });
+            return true;
+        }
+
+        private void wireBytes(int count) {
+            _wireBytes.addAndGet(count);
+            _metrics.received(count);
+        }
+
+        private void contentBytes(int count) {
+            _contentBytes.addAndGet(count);
+        }
+
+        private void compressionFailed() {
+            if (!_compressionFailed) {
+                Logger.warn("Failed to decode compressed response, no longer requesting compression");
+                _compressionFailed = true;
+            }
+        }
+
+        @Override
+        public long probeWindow() {
+            return _rtt.timeout(DEFAULT_PROBE_WINDOW);
+        }
+
+        @Override
+        public void dead() {
+            fail(new SocketTimeoutException("Liveness probe not answered"), "Connection stalled");
+        }
+
+        private boolean isProbe(BayeuxMessage message) {
+            String id = message.getId();
+            String channel = message.getChannel();
+            return (id != null && id.startsWith(PROBE_ID_PREFIX)) || (channel != null && channel.endsWith(PROBE_RESPONSE));
+        }
+
+        /**
+         * Workaround missing fields in replies from LMS
+         * LMS does not put ID on all replies. For such a message, this method tries to find the
+         * message in _exchanges which this message is a reply to.
+         * <ol>
+         *     <li>For messages with a channel we look for a message with that channel. If
+         *     there is more than one, the oldest is used - LMS replies in order.</li>
+         *     <li>For messages without channel we check if it has advice action, in which case we
+         *     look for META_CONNECT and META_HANDSHAKE</li>
+         * </ol>
+         */
+        private void fixMessage(BayeuxMessage message) {
+            String channel = message.getChannel();
+
+            if (INTERACTIVE_CHANNEL.equals(channel)) {
+                // Already matched by the order of the connection it arrived on, and the oldest
+                // command on any connection could be the wrong one - or the reply to a probe
+                Logger.debug("Could not match command reply " + message);
+            } else if (channel != null) {
+                Exchange exchange = _exchanges.oldest(channel);
+                if (exchange != null) {
+                    message.setId(exchange.message.getId());
+                }
+            } else
+            if (message.getReconnectAdvice() != null) {
+                Exchange exchange = _exchanges.oldest(BayeuxMessage.META_CONNECT);
+                if (exchange == null)
+                    exchange = _exchanges.oldest(BayeuxMessage.META_HANDSHAKE);
+                if (exchange != null) {
+                    message.setId(exchange.message.getId());
+                    message.setChannel(exchange.message.getChannel());
+                }
+            }
+        }
+
+        public void send(String content, List<BayeuxMessage> messages) throws IOException {
+            DelegateConnection session;
+            ResponseHandler responseHandler;
+            synchronized (this) {
+                session = connection;
+                responseHandler = handler;
+            }
+
+            if (session == null) {
+                throw new IOException("Unconnected");
+            }
+
+            write(session, responseHandler, _compression && !_compressionFailed ? compressedHeaderBlock : headerBlock, content, messages);
+        }
+
+        private void write(DelegateConnection session, ResponseHandler responseHandler, ByteBuffer headers, String content,
+                           List<BayeuxMessage> messages) throws IOException {
+            // Content-Length is in bytes, so the body has to be encoded before the length is known
+            ByteBuffer body = encode(content);
+            byte[] contentLength = ("Content-Length: " + body.remaining() + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            _metrics.sent(headers.remaining() + contentLength.length + body.remaining());
+            synchronized (responseHandler) {
+                // Commands must be queued in the order the server receives them
+                responseHandler.sending(messages);
+                session.write(() -> WRITE_BUFFERS.release(body), headers.duplicate(), ByteBuffer.wrap(contentLength), body);
+            }
+        }
+
+        private ByteBuffer encode(String json) throws CharacterCodingException {
+            synchronized (encoder) {
+                ByteBuffer buffer = WRITE_BUFFERS.acquire();
+                CharBuffer chars = CharBuffer.wrap(json);
+                encoder.reset();
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(buffer);
+                }
+                if (result.isOverflow()) {
+                    // Too large for a pooled buffer
+                    WRITE_BUFFERS.release(buffer);
+                    return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+                }
+                if (result.isError()) {
+                    WRITE_BUFFERS.release(buffer);
+                    result.throwException();
+                }
+                buffer.flip();
+                return buffer;
+            }
+        }
+
+        private void onData(ResponseHandler responseHandler, byte[] data, int length) {
+            try {
+                TransportMetrics metrics = _metrics;
+                long parseStart = metrics.isEnabled() ? System.nanoTime() : 0;
+                List<BayeuxMessage> messages = BayeuxJsonDecoder.decode(data, 0, length);
+                if (metrics.isEnabled()) {
+                    metrics.parsed(System.nanoTime() - parseStart, messages.size());
+                }
+                //Log.v(TAG,"Received messages " + data);
+                onMessages(responseHandler, messages);
+            } catch (ParseException x) {
+                fail(x, "ParseException");
+            }
+        }
+
+        private void onMessages(ResponseHandler responseHandler, List<BayeuxMessage> messages) {
+            for (BayeuxMessage message : messages) {
+                // LMS echoes the data field in the publish response for messages to the
+                // slim/unsubscribe channel, so it would not be recognised as a reply.
+                // We remove the data field for such messages, to have them correctly recognized
+                // as publish responses.
+                if (message.getChannel() != null && message.getChannel().startsWith(SLIM_CHANNEL_PREFIX)) {
+                    message.remove(BayeuxMessage.DATA_FIELD);
+                }
+
+                boolean reply = isReply(message);
+                if (responseHandler.owner == this) {
+                    // Only the streaming connection is watched
+                    _watchdog.onReceived(!reply);
+                }
+                if (reply && INTERACTIVE_CHANNEL.equals(message.getChannel())) {
+                    // Which may be a probe, so this has to be known before checking for one
+                    message.setId(responseHandler.replied(message.getId()));
+                }
+                if (isProbe(message)) {
+                    continue;
+                }
+                if (reply) {
+                    if (message.getId() == null) {
+                        fixMessage(message);
+                    }
+
+                    if (message.isMeta() && message.isSuccessful()) {
+                        Map<String, Object> advice = message.getAdvice();
+                        if (advice != null) {
+                            Logger.info(message.getChannel() + " advice: " + advice);
+
+                            // Remembering the advice must be done before we notify listeners
+                            // otherwise we risk that listeners send a connect message that does
+                            // not take into account the timeout to calculate the maxNetworkDelay
+                            if (BayeuxMessage.META_CONNECT.equals(message.getChannel())) {
+                                // Remember the advice so that we can properly calculate the max network delay
+                                if (advice.get(BayeuxMessage.TIMEOUT_FIELD) != null)
+                                    _advice = advice;
+                            }
+                        }
+                    }
+
+                    Exchange exchange = deregisterMessage(message);
+                    if (exchange != null) {
+                        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - exchange.sent);
+                        _metrics.exchange(exchange.message.getChannel(), elapsed);
+                        // Connect replies are held by the server, and command replies wait for the
+                        // command to run, so neither is a measure of the network
+                        if (!BayeuxMessage.META_CONNECT.equals(exchange.message.getChannel()) &&
+                                !INTERACTIVE_CHANNEL.equals(exchange.message.getChannel())) {
+                            _rtt.sample(elapsed);
+                        }
+                        if (exchange.lane != null) {
+                            exchange.lane.record(elapsed);
+                        }
+
+                        // Listeners expect the subscription field to be echoed by the server.
+                        // LMS doesn't always do that. E.g. seen for failing messages.
+                        // In this case we take if from the request.
+                        if (BayeuxMessage.META_SUBSCRIBE.equals(message.getChannel()) && message.get(BayeuxMessage.SUBSCRIPTION_FIELD) == null) {
+                            message.put(BayeuxMessage.SUBSCRIPTION_FIELD, exchange.message.get(BayeuxMessage.SUBSCRIPTION_FIELD));
+                        }
+
+                        _listener.onMessages(Collections.singletonList(message));
+                        if (BayeuxMessage.META_DISCONNECT.equals(message.getChannel()) && message.isSuccessful()) {
+                            disconnect("Disconnect");
+                        }
+                    } else if (message.containsKey(BayeuxMessage.ERROR_FIELD)) {
+                        fail(null, "Received error: " +  message);
+
+                        // We send messages with no channel to the handshake listener
+                        if (message.getChannel() == null) {
+                            message.setChannel(BayeuxMessage.META_HANDSHAKE);
+                        }
+
+                        _listener.onMessages(Collections.singletonList(message));
+                    } else {
+                        // If the exchange is missing, then the message has expired, and we do not notify
+                        Logger.debug("Could not find request for reply " +  message);
+                    }
+                } else {
+                    _listener.onMessages(Collections.singletonList(message));
+                }
+            }
+        }
+    }
+
+    /**
+     * Second connection, for commands only, so that a user's tap never queues behind bulk
+     * traffic on the streaming connection. The server handles one request at a time on a
+     * connection, so only one command is sent on it at once - anything sent whilst it is busy,
+     * or not yet open, goes on the streaming connection instead. Opened along with the streaming
+     * connection, and reopened when next needed if the server closes it.
+     */
+    private class CommandConnection implements ResponseOwner {
+        private DelegateConnection connection;
+        private ResponseHandler handler;
+        private boolean busy;
+        private boolean opening;
+        // Incremented on close, so that a connect still in progress is discarded
+        private int generation;
+
+        void open() {
+            if (!_commandConnection) {
+                return;
+            }
+            int opened;
+            synchronized (this) {
+                if (connection != null || opening) {
+                    return;
+                }
+                opening = true;
+                opened = generation;
+            }
+            // A blocking connect would hold up the caller, and the wheel's thread calls connect
+            Thread thread = new Thread(() -> connect(opened), "HttpStreamingTransport-commands");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void connect(int opened) {
+            DelegateConnection session = null;
+            try {
+                session = newDelegateConnection(_host, _secure);
+                ResponseHandler responseHandler = new ResponseHandler(_delegate, this, session);
+                session.connect(InetSocketAddress.createUnresolved(_host, _port), DEFAULT_CONNECT_TIMEOUT, responseHandler);
+                synchronized (this) {
+                    if (generation == opened) {
+                        connection = session;
+                        handler = responseHandler;
+                        busy = false;
+                        session = null;
+                    }
+                }
+            } catch (IOException e) {
+                Logger.debug("Failed to open command connection: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    if (generation == opened) {
+                        opening = false;
+                    }
+                }
+                if (session != null) {
+                    session.close();
+                }
+            }
+        }
+
+        /**
+         * @return False if the connection is busy or closed, and so the messages were not sent.
+         */
+        boolean send(String content, List<BayeuxMessage> messages) {
+            DelegateConnection session;
+            ResponseHandler responseHandler;
+            synchronized (this) {
+                if (connection != null && !connection.isOpen()) {
+                    connection = null;
+                    handler = null;
+                }
+                if (connection == null) {
+                    open();
+                    return false;
+                }
+                if (busy) {
+                    return false;
+                }
+                busy = true;
+                session = connection;
+                responseHandler = handler;
+            }
+
+            try {
+                _delegate.write(session, responseHandler, _delegate.headerBlock, content, messages);
+                return true;
+            } catch (IOException e) {
+                Logger.debug("Failed to write command: " + e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        @Override
+        public synchronized boolean isCurrent(DelegateConnection session) {
+            return connection == session && session.isOpen();
+        }
+
+        /**
+         * Fail the commands waiting for a reply on this connection. The streaming connection is
+         * left alone, as it is not affected.
+         */
+        @Override
+        public void fail(Throwable failure, String reason) {
+            ResponseHandler responseHandler;
+            synchronized (this) {
+                responseHandler = handler;
+            }
+            close();
+            List<BayeuxMessage> messages = new ArrayList<>(1);
+            if (responseHandler != null) {
+                for (String id = responseHandler.replied(null); id != null; id = responseHandler.replied(null)) {
+                    Exchange exchange = _delegate.deregisterMessage(id);
+                    if (exchange != null) {
+                        messages.add(exchange.message);
+                    }
+                }
+            }
+            // The server closing an idle connection is not a failure
+            if (!messages.isEmpty()) {
+                Logger.debug(reason);
+                _listener.onFailure(failure, messages);
+            }
+        }
+
+        @Override
+        public void completed(boolean chunked, boolean keepAlive) {
+            synchronized (this) {
+                busy = false;
+            }
+            if (!keepAlive) {
+                close();
+            }
+        }
+
+        void close() {
+            DelegateConnection session;
+            synchronized (this) {
+                session = connection;
+                connection = null;
+                handler = null;
+                busy = false;
+                opening = false;
+                generation++;
+            }
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    private static class Exchange {
+        private final BayeuxMessage message;
+        private final TimingWheel.Timeout task;
+        private final LatencyStats lane;
+        private final long sent = System.nanoTime();
+
+        public Exchange(BayeuxMessage message, TimingWheel.Timeout task, LatencyStats lane) {
+            this.message = message;
+            this.task = task;
+            this.lane = lane;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " " + message;
+        }
+    }
+
+
+    /**
+     * The connection a ResponseHandler reads: the streaming delegate, or the command connection.
+     */
+    private interface ResponseOwner {
+        /**
+         * @return True if session is still the owner's open connection, i.e. it has not been
+         *     replaced or closed.
+         */
+        boolean isCurrent(DelegateConnection session);
+
+        void fail(Throwable failure, String reason);
+
+        /**
+         * Called when a response has been read in full.
+         */
+        void completed(boolean chunked, boolean keepAlive);
+    }
+
+    /**
+     * Parses responses read from a delegate connection, and passes the messages on to the
+     * delegate. Events from a connection that has since been replaced are ignored.
+     */
+    private static class ResponseHandler implements DelegateConnection.Listener, HttpResponseParser.Handler {
+        private final Delegate delegate;
+        private final ResponseOwner owner;
+        private final DelegateConnection connection;
+        private final HttpResponseParser parser = new HttpResponseParser(this);
+        private final JsonFramer framer;
+        private final ContentDecoder decoder = new ContentDecoder();
+        private final ContentDecoder.Sink sink = this::deliver;
+        // IDs of commands, and probes, written to the connection and not yet replied to
+        private final ConcurrentLinkedQueue<String> commands = new ConcurrentLinkedQueue<>();
+        private int status;
+        private long contentBytes;
+
+        ResponseHandler(Delegate delegate, ResponseOwner owner, DelegateConnection connection) {
+            this.delegate = delegate;
+            this.owner = owner;
+            this.connection = connection;
+            framer = new JsonFramer((json, length) -> {
+                if (status == HTTP_OK && owner.isCurrent(connection)) {
+                    delegate.onData(this, json, length);
+                }
+            });
+        }
+
+        @Override
+        public void onData(ByteBuffer data) throws IOException {
+            delegate.wireBytes(data.remaining());
+            parser.parse(data);
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+            if (cause instanceof EOFException) {
+                try {
+                    parser.finish();
+                } catch (IOException e) {
+                    cause = e;
+                }
+            }
+            if (owner.isCurrent(connection)) {
+                owner.fail(cause, "IOException reading socket");
+            }
+        }
+
+        /**
+         * Called, whilst locked, immediately before the messages are written.
+         */
+        void sending(List<BayeuxMessage> messages) {
+            for (BayeuxMessage message : messages) {
+                if (INTERACTIVE_CHANNEL.equals(message.getChannel()) && message.getId() != null) {
+                    commands.add(message.getId());
+                }
+            }
+        }
+
+        /**
+         * LMS replies to the commands on a connection in the order they were sent, so a reply
+         * without an ID belongs to the oldest one still waiting.
+         * @return ID of the command replied to, or null if none is waiting.
+         */
+        String replied(String id) {
+            if (id == null) {
+                return commands.poll();
+            }
+            commands.remove(id);
+            return id;
+        }
+
+        @Override
+        public void onStatus(int status) {
+            this.status = status;
+            contentBytes = 0;
+            framer.reset();
+            decoder.end();
+        }
+
+        @Override
+        public void onHeader(String name, String value) {
+            if ("content-encoding".equals(name)) {
+                String encoding = value.trim().toLowerCase(Locale.ENGLISH);
+                if (ContentDecoder.isSupported(encoding)) {
+                    decoder.begin(encoding);
+                }
+            }
+        }
+
+        @Override
+        public void onContent(ByteBuffer content) throws IOException {
+            contentBytes += content.remaining();
+            if (decoder.isActive()) {
+                try {
+                    decoder.decode(content, sink);
+                } catch (ZipException e) {
+                    delegate.compressionFailed();
+                    throw e;
+                }
+            } else {
+                deliver(content);
+            }
+        }
+
+        private void deliver(ByteBuffer content) {
+            delegate.contentBytes(content.remaining());
+            framer.append(content);
+        }
+
+        @Override
+        public void onComplete(boolean keepAlive) {
+            if (!owner.isCurrent(connection)) {
+                return;
+            }
+
+            // Either failure disconnects, and fails every outstanding exchange, so only report one
+            if (status != HTTP_OK) {
+                owner.fail(new IOException("HTTP status " + status), "Unexpected HTTP status code");
+                return;
+            }
+            if (!parser.isChunked() && 0 == contentBytes) {
+                owner.fail(new IOException("No content"), "No content");
+                return;
+            }
+
+            if (!framer.isEmpty()) {
+                Logger.verbose("Discarding incomplete JSON at end of response");
+            }
+            owner.completed(parser.isChunked(), keepAlive);
+        }
+    }
+
+    /**
+     * Blocking delegate connection, with a dedicated thread reading the socket.
+     */
+    private static class SocketConnection implements DelegateConnection {
+        private final SSLSocketFactory tlsFactory;
+        private final String host;
+        private volatile Socket socket = new Socket();
+        private volatile boolean open = true;
+        private byte[] writeBuffer;
+
+        /**
+         * @param tlsFactory If not null, TLS is negotiated once connected.
+         * @param host Name for SNI and certificate verification
+         */
+        SocketConnection(SSLSocketFactory tlsFactory, String host) {
+            this.tlsFactory = tlsFactory;
+            this.host = host;
+        }
+
+        @Override
+        public void connect(InetSocketAddress address, int timeout, Listener listener) throws IOException {
+            try {
+                // Have the OS notice a dead peer, and do not hold back our small requests
+                socket.setKeepAlive(true);
+                socket.setTcpNoDelay(true);
+                if (address.isUnresolved()) {
+                    address = new InetSocketAddress(address.getHostString(), address.getPort());
+                }
+                socket.connect(address, timeout);
+                if (null != tlsFactory) {
+                    SSLSocket sslSocket = (SSLSocket) tlsFactory.createSocket(socket, host, address.getPort(), true);
+                    socket = sslSocket;
+                    TlsSockets.handshake(sslSocket, host, timeout);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            new ListeningThread(this, socket.getInputStream(), listener).start();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void write(Runnable onWritten, ByteBuffer... buffers) throws IOException {
+            try {
+                OutputStream stream = socket.getOutputStream();
+                synchronized (this) {
+                    // Streams cannot gather, so copy into one array to still only write once
+                    int length = 0;
+                    for (ByteBuffer buffer : buffers) {
+                        length += buffer.remaining();
+                    }
+                    if (null == writeBuffer || writeBuffer.length < length) {
+                        writeBuffer = new byte[Math.max(length, 4 * 1024)];
+                    }
+                    int offset = 0;
+                    for (ByteBuffer buffer : buffers) {
+                        int count = buffer.remaining();
+                        buffer.get(writeBuffer, offset, count);
+                        offset += count;
+                    }
+                    stream.write(writeBuffer, 0, length);
+                    stream.flush();
+                }
+            } finally {
+                if (null != onWritten) {
+                    onWritten.run();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            try {
+                socket.close();
+            } catch (IOException x) {
+                Logger.warn("Could not close socket", x);
+            }
+        }
+    }
+
+    private static class ListeningThread extends Thread {
+        private final SocketConnection connection;
+        private final InputStream inputStream;
+        private final DelegateConnection.Listener listener;
+
+        public ListeningThread(SocketConnection connection, InputStream inputStream, DelegateConnection.Listener listener) {
+            this.connection = connection;
+            this.inputStream = inputStream;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = READ_BUFFERS.acquire();
+            try {
+                while (connection.isOpen()) {
+                    buffer.clear();
+                    int read = inputStream.read(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+                    if (read < 0) {
+                        throw new EOFException();
+                    }
+                    buffer.limit(read);
+                    listener.onData(buffer);
+                }
+            } catch (IOException e) {
+                if (connection.isOpen()) {
+                    listener.onClosed(e);
+                }
+            } finally {
+                READ_BUFFERS.release(buffer);
+            }
+        }
+    }
+
+    private static boolean isReply(BayeuxMessage message) {
+        return message.isMeta() || message.isPublishReply();
+    }
+}
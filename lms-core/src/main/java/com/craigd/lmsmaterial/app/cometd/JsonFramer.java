@@ -0,0 +1,101 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of UTF-8 JSON, delivered in arbitrary pieces, into complete top-level values.
+ * Nesting depth and string/escape state are carried between calls, so every byte is only looked
+ * at once and each Bayeux message array is emitted exactly once - as soon as its closing bracket
+ * arrives - regardless of how the server split it into chunks. All structural characters are
+ * ASCII, and so can never appear inside a multi-byte UTF-8 sequence; complete values are handed
+ * on as raw bytes, to be decoded directly into messages.
+ */
+class JsonFramer {
+    interface Listener {
+        /**
+         * The first length bytes of json hold the value, which is only valid for the duration of
+         * the call.
+         */
+        void onJson(byte[] json, int length);
+    }
+
+    private final Listener listener;
+    private byte[] value = new byte[8 * 1024];
+    private int length = 0;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    JsonFramer(Listener listener) {
+        this.listener = listener;
+    }
+
+    void append(ByteBuffer data) {
+        for (int i = data.position(), end = data.limit(); i < end; ++i) {
+            append(data.get(i));
+        }
+        data.position(data.limit());
+    }
+
+    private void append(byte b) {
+        if (0 == depth) {
+            // Only objects and arrays are valid top-level values, anything else between values
+            // (whitespace, line breaks) is skipped.
+            if ('[' != b && '{' != b) {
+                return;
+            }
+        }
+        if (length == value.length) {
+            value = Arrays.copyOf(value, length * 2);
+        }
+        value[length++] = b;
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if ('\\' == b) {
+                escaped = true;
+            } else if ('"' == b) {
+                inString = false;
+            }
+            return;
+        }
+        switch (b) {
+            case '"':
+                inString = true;
+                break;
+            case '[':
+            case '{':
+                depth++;
+                break;
+            case ']':
+            case '}':
+                if (0 == --depth) {
+                    int complete = length;
+                    length = 0;
+                    listener.onJson(value, complete);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    boolean isEmpty() {
+        return 0 == length;
+    }
+
+    void reset() {
+        length = 0;
+        depth = 0;
+        inString = false;
+        escaped = false;
+    }
+}
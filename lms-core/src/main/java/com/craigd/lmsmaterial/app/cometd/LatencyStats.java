@@ -0,0 +1,50 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Request latency for one lane: count, smoothed average, and worst case.
+ */
+public class LatencyStats {
+    private static final double WEIGHT = 1.0 / 8.0;
+
+    private final String name;
+    private long count = 0;
+    private double average = 0;
+    private long max = 0;
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long millis) {
+        average = 0 == count ? millis : (1 - WEIGHT) * average + WEIGHT * millis;
+        max = Math.max(max, millis);
+        count++;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getAverage() {
+        return Math.round(average);
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return name + ": " + count + " requests, average " + getAverage() + "ms, max " + max + "ms";
+    }
+}
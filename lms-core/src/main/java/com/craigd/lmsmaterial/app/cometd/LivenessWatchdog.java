@@ -0,0 +1,164 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects a streaming connection that has silently gone half-open (e.g. after Wi-Fi roams), where
+ * reads would otherwise block until the connect exchange finally expires. The average gap between
+ * server pushes is learnt, and if nothing arrives for several times that a probe is sent. If the
+ * probe is not answered within the probe window the connection is declared dead.
+ * Silence is only checked when a timer fires, so receiving data costs no more than a timestamp.
+ */
+class LivenessWatchdog {
+    interface Callback {
+        /**
+         * Called on the timing wheel's thread, so the probe must be written on another.
+         * @return False if a probe cannot currently be sent, in which case silence is ignored.
+         */
+        boolean probe();
+
+        /**
+         * @return How long to wait for a reply to a probe, in milliseconds.
+         */
+        long probeWindow();
+
+        void dead();
+    }
+
+    private static final double GAP_WEIGHT = 1.0 / 8.0;
+    private static final int SILENT_GAPS = 4;
+    private static final int MIN_PUSHES = 3;
+    private static final long MIN_SILENCE = 10000;
+    private static final long MAX_SILENCE = 60000;
+
+    private final TimingWheel wheel;
+    private final Callback callback;
+    private TimingWheel.Timeout timeout;
+    private long lastReceived;
+    private long lastPush;
+    private double averageGap;
+    private int pushes;
+    private boolean running = false;
+    private boolean probing = false;
+
+    LivenessWatchdog(TimingWheel wheel, Callback callback) {
+        this.wheel = wheel;
+        this.callback = callback;
+    }
+
+    synchronized void start() {
+        stop();
+        running = true;
+        lastReceived = System.nanoTime();
+        pushes = 0;
+        schedule(silenceLimit());
+    }
+
+    synchronized void stop() {
+        running = false;
+        probing = false;
+        if (null != timeout) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    /**
+     * @param push True for an unsolicited server message, as opposed to a reply.
+     */
+    synchronized void onReceived(boolean push) {
+        long now = System.nanoTime();
+        lastReceived = now;
+        probing = false;
+        if (push) {
+            if (pushes > 0) {
+                double gap = TimeUnit.NANOSECONDS.toMillis(now - lastPush);
+                averageGap = 1 == pushes ? gap : (1 - GAP_WEIGHT) * averageGap + GAP_WEIGHT * gap;
+            }
+            lastPush = now;
+            pushes++;
+        }
+    }
+
+    /**
+     * Probe now, e.g. because the network has changed, rather than waiting for the silence limit.
+     */
+    void check() {
+        if (startProbe()) {
+            sendProbe();
+        }
+    }
+
+    private long silenceLimit() {
+        if (pushes <= MIN_PUSHES) {
+            return MAX_SILENCE;
+        }
+        return Math.max(MIN_SILENCE, Math.min(MAX_SILENCE, (long) (averageGap * SILENT_GAPS)));
+    }
+
+    private void schedule(long delay) {
+        if (null != timeout) {
+            timeout.cancel();
+        }
+        timeout = wheel.schedule(this::expired, delay);
+    }
+
+    private synchronized boolean startProbe() {
+        if (!running || probing) {
+            return false;
+        }
+        probing = true;
+        schedule(callback.probeWindow());
+        return true;
+    }
+
+    /**
+     * Called without holding the lock, so that a slow write cannot hold up the reader.
+     */
+    private void sendProbe() {
+        if (!callback.probe()) {
+            synchronized (this) {
+                if (running && probing) {
+                    probing = false;
+                    lastReceived = System.nanoTime();
+                    schedule(silenceLimit());
+                }
+            }
+        }
+    }
+
+    private void expired() {
+        synchronized (this) {
+            timeout = null;
+            if (!running) {
+                return;
+            }
+            if (!probing) {
+                long silence = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReceived);
+                long limit = silenceLimit();
+                if (silence < limit) {
+                    schedule(limit - silence);
+                    return;
+                }
+            }
+        }
+        if (startProbe()) {
+            sendProbe();
+            return;
+        }
+        synchronized (this) {
+            if (!running || !probing) {
+                return;
+            }
+            running = probing = false;
+        }
+        callback.dead();
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The server's players, kept up to date from the serverstatus subscription, so that they can be
+ * read without a request to the server. Updates replace the whole map, so reads need no locking
+ * and always see a consistent set of players.
+ */
+public class PlayerRegistry {
+    public static class Player {
+        public final String id;
+        public final String name;
+        public final String ip;
+        public final boolean connected;
+        public final boolean power;
+        public final boolean isPlaying;
+
+        Player(String id, String name, String ip, boolean connected, boolean power, boolean isPlaying) {
+            this.id = id;
+            this.name = name;
+            this.ip = ip;
+            this.connected = connected;
+            this.power = power;
+            this.isPlaying = isPlaying;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "id:" + id + ", name:" + name + ", ip:" + ip + ", connected:" + connected + ", power:" + power + ", isPlaying:" + isPlaying;
+        }
+    }
+
+    private volatile Map<String, Player> players = Collections.emptyMap();
+    private volatile boolean current = false;
+
+    /**
+     * @return True once a serverstatus has been received on the current connection. If not, the
+     *     server should be asked instead.
+     */
+    public boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * @return Players in the order that the server lists them.
+     */
+    public List<Player> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public Player get(String id) {
+        return null == id ? null : players.get(id);
+    }
+
+    /**
+     * @return IDs of players that are connected, on, and playing.
+     */
+    public List<String> getActivePlayers() {
+        List<String> active = new ArrayList<>();
+        for (Player player : players.values()) {
+            if (player.connected && player.power && player.isPlaying) {
+                active.add(player.id);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Replace the players with those of a serverstatus response.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void update(Map<String, Object> serverStatus) {
+        Map<String, Player> updated = new LinkedHashMap<>();
+        Object loop = null == serverStatus ? null : serverStatus.get("players_loop");
+        if (loop instanceof Object[]) {
+            for (Object item : (Object[]) loop) {
+                if (!(item instanceof Map)) {
+                    continue;
+                }
+                Map<String, Object> player = (Map<String, Object>) item;
+                Object id = player.get("playerid");
+                if (null == id) {
+                    continue;
+                }
+                updated.put(id.toString(), new Player(id.toString(), string(player.get("name")), string(player.get("ip")),
+                        flag(player.get("connected"), true), flag(player.get("power"), true), flag(player.get("isplaying"), false)));
+            }
+        }
+        players = Collections.unmodifiableMap(updated);
+        current = true;
+    }
+
+    /**
+     * Playerstatus pushes can arrive before the next serverstatus, so take play state from those.
+     */
+    synchronized void setPlaying(String id, boolean isPlaying) {
+        Player player = get(id);
+        if (null == player || player.isPlaying == isPlaying) {
+            return;
+        }
+        Map<String, Player> updated = new LinkedHashMap<>(players);
+        updated.put(id, new Player(player.id, player.name, player.ip, player.connected, player.power, isPlaying));
+        players = Collections.unmodifiableMap(updated);
+    }
+
+    synchronized void clear() {
+        players = Collections.emptyMap();
+        current = false;
+    }
+
+    private static String string(Object value) {
+        return null == value ? null : value.toString();
+    }
+
+    private static boolean flag(Object value, boolean defaultValue) {
+        if (null == value) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return 0 != ((Number) value).intValue();
+        }
+        return "1".equals(value.toString()) || "true".equalsIgnoreCase(value.toString());
+    }
+}
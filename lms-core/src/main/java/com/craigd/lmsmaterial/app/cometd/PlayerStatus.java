@@ -0,0 +1,136 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import com.craigd.lmsmaterial.app.Strings;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+public class PlayerStatus {
+    public long timestamp;
+    public String id;
+    public String title;
+    public String artist;
+    public String album;
+    public String cover;
+    public long duration = 0;
+    public long time = 0;
+    public boolean isPlaying = false;
+
+    /**
+     * Map the fields of a status response to the status shown in notifications.
+     * @param server Base URL of the server, for cover art.
+     */
+    public static PlayerStatus create(String id, String mode, String remote_title, String artist, String album, String title,
+                                      String artwork_url, String coverid, long duration, long time, String server) {
+        PlayerStatus status = new PlayerStatus();
+        status.id = id;
+        status.artist = artist;
+        status.album = album;
+        if (!Strings.isEmpty(remote_title) && (!remote_title.startsWith("http") || Strings.isEmpty(title))) {
+           status.title = remote_title;
+        } else {
+            status.title = title;
+        }
+        status.duration = duration;
+        status.time = "stop".equals(mode) ? 0 : time;
+        status.isPlaying = "play".equals(mode);
+        status.cover = ArtworkUrls.coverUrl(server, artwork_url, coverid);
+        return status;
+    }
+
+    /**
+     * As create(), from the data of a playerstatus message.
+     */
+    @SuppressWarnings("unchecked")
+    public static PlayerStatus fromData(String id, Map<String, Object> data, String server) {
+        Object[] playlist_loop = (Object[]) data.get("playlist_loop");
+        if (playlist_loop!=null && playlist_loop.length>0) {
+            Map<String, Object> track = (Map<String, Object>)playlist_loop[0];
+            return create(id,
+                    (String)data.get("mode"),
+                    (String)track.get("remote_title"),
+                    (String)track.get("artist"),
+                    (String)track.get("album"),
+                    (String)track.get("title"),
+                    (String)track.get("artwork_url"),
+                    (String)track.get("coverid"),
+                    (long)(parseFloat(track.get("duration"))*1000.0f),
+                    (long)(parseFloat(data.get("time"))*1000.0f),
+                    server);
+        }
+        return create(id, (String)data.get("mode"), null, null, null, null, null, null, 0, 0, server);
+    }
+
+    /**
+     * @param now Platform.elapsedRealtime() to move the position on to.
+     * @return Copy of this status, with the position moved on by the time since it was received
+     *     if playing.
+     */
+    public PlayerStatus at(long now) {
+        PlayerStatus status = new PlayerStatus();
+        status.timestamp = now;
+        status.id = id;
+        status.title = title;
+        status.artist = artist;
+        status.album = album;
+        status.cover = cover;
+        status.duration = duration;
+        status.isPlaying = isPlaying;
+        status.time = time;
+        if (isPlaying && now > timestamp) {
+            status.time += now - timestamp;
+            if (duration > 0 && status.time > duration) {
+                status.time = duration;
+            }
+        }
+        return status;
+    }
+
+    static float parseFloat(Object val) {
+        if (null==val) {
+            return 0.0f;
+        }
+        if (val instanceof Float) {
+            return (Float)val;
+        }
+        if (val instanceof Double) {
+            return ((Double)val).floatValue();
+        }
+        if (val instanceof String) {
+            try {
+                return Float.parseFloat((String) val);
+            } catch (NumberFormatException ignored) { }
+        }
+        return 0.0f;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "id:"+id+", title:"+title+", artist:"+artist+", album:"+album+", cover:"+cover+", duration:"+Strings.timeStr(duration)+", time:"+Strings.timeStr(time)+", isPlaying:"+isPlaying;
+    }
+
+    public String display() {
+        List<String> parts = new LinkedList<>();
+        if (!Strings.isEmpty(title)) {
+            parts.add(title);
+        }
+        if (!Strings.isEmpty(artist)) {
+            parts.add(artist);
+        }
+        //if (!Strings.isEmpty(album)) {
+        //    parts.add(album);
+        //}
+        return String.join(" • ", parts);
+    }
+}
\ No newline at end of file
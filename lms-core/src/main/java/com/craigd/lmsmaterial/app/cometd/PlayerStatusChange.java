@@ -0,0 +1,108 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * What differs between a player status and the one before it, so that listeners only redo the
+ * work that the changed fields require. A status where only the position has moved on as
+ * expected produces an empty change.
+ */
+public class PlayerStatusChange {
+    // First status, or a status for a different player - everything should be refreshed
+    public static final int PLAYER = 1;
+    // Title, artist, album or duration
+    public static final int TRACK = 1 << 1;
+    public static final int PLAY_STATE = 1 << 2;
+    // Position differs from where playback would have moved it to, e.g. after a seek
+    public static final int POSITION_JUMP = 1 << 3;
+    public static final int COVER = 1 << 4;
+    public static final int ALL = PLAYER | TRACK | PLAY_STATE | POSITION_JUMP | COVER;
+    static final int KINDS = 5;
+
+    // Positions within this of the expected one are treated as drift, not a jump
+    static final long POSITION_TOLERANCE = 2000;
+
+    private static final String[] NAMES = {"player", "track", "play state", "position jump", "cover"};
+
+    private final int flags;
+
+    PlayerStatusChange(int flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * @param previous Last status, or null if there was none.
+     */
+    public static PlayerStatusChange between(PlayerStatus previous, PlayerStatus current) {
+        if (null == previous || !Objects.equals(previous.id, current.id)) {
+            return new PlayerStatusChange(ALL);
+        }
+        int flags = 0;
+        if (!Objects.equals(previous.title, current.title) || !Objects.equals(previous.artist, current.artist) ||
+                !Objects.equals(previous.album, current.album) || previous.duration != current.duration) {
+            flags |= TRACK;
+        }
+        if (previous.isPlaying != current.isPlaying) {
+            flags |= PLAY_STATE;
+        }
+        if (!Objects.equals(previous.cover, current.cover)) {
+            flags |= COVER;
+        }
+        if (0 == (flags & TRACK)) {
+            long expected = previous.time;
+            if (previous.isPlaying && current.isPlaying && current.timestamp > previous.timestamp) {
+                expected += current.timestamp - previous.timestamp;
+            }
+            if (Math.abs(current.time - expected) > POSITION_TOLERANCE) {
+                flags |= POSITION_JUMP;
+            }
+        }
+        return new PlayerStatusChange(flags);
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return True if any of the given kinds changed.
+     */
+    public boolean has(int kinds) {
+        return 0 != (flags & kinds);
+    }
+
+    public boolean isEmpty() {
+        return 0 == flags;
+    }
+
+    static String name(int kind) {
+        return NAMES[Integer.numberOfTrailingZeros(kind)];
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "none";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < KINDS; ++i) {
+            if (has(1 << i)) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(NAMES[i]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares each status with the last one, and counts what changed - so that it can be seen how
+ * many statuses needed no work at all.
+ */
+public class PlayerStatusDiffer {
+    private PlayerStatus last;
+    private final AtomicLong statuses = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLongArray changes = new AtomicLongArray(PlayerStatusChange.KINDS);
+
+    public synchronized PlayerStatusChange diff(PlayerStatus status) {
+        PlayerStatusChange change = PlayerStatusChange.between(last, status);
+        last = status;
+        statuses.incrementAndGet();
+        if (change.isEmpty()) {
+            unchanged.incrementAndGet();
+        } else {
+            for (int i = 0; i < PlayerStatusChange.KINDS; ++i) {
+                if (change.has(1 << i)) {
+                    changes.incrementAndGet(i);
+                }
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Forget the last status, so that the next is reported as a change of player.
+     */
+    public synchronized void reset() {
+        last = null;
+    }
+
+    public long getStatuses() {
+        return statuses.get();
+    }
+
+    /**
+     * @return Statuses which changed nothing other than the expected position.
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @param kind One of the PlayerStatusChange kinds.
+     */
+    public long getChanges(int kind) {
+        return changes.get(Integer.numberOfTrailingZeros(kind));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder()
+                .append("statuses: ").append(getStatuses())
+                .append(", unchanged: ").append(getUnchanged());
+        for (int i = 0; i < PlayerStatusChange.KINDS; ++i) {
+            sb.append(", ").append(PlayerStatusChange.name(1 << i)).append(": ").append(changes.get(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+/**
+ * Playback position of one player, extrapolated from the statuses pushed by the server, so that
+ * the position is known at any time without asking for it.
+ * <p>
+ * Whilst playing, each status gives a sample of the offset between the server's position and
+ * elapsed realtime - the position it reports, plus the network delay, less the time it arrived.
+ * For continuous playback this offset is constant apart from network jitter, so samples are
+ * smoothed, and the position at any time is that time plus the offset. Anything that breaks
+ * continuity (a new track, a seek, pausing, or another player) starts again from the next
+ * sample.
+ */
+public class PositionModel {
+    // Weight given to each new offset sample
+    static final double GAIN = 0.25;
+    private static final int RESTART = PlayerStatusChange.PLAYER | PlayerStatusChange.TRACK |
+                                       PlayerStatusChange.PLAY_STATE | PlayerStatusChange.POSITION_JUMP;
+
+    private String id;
+    private boolean isPlaying;
+    private long duration;
+    // Position when not playing
+    private long position;
+    // Server position less elapsed realtime, when playing
+    private double offset;
+    private int samples;
+
+    /**
+     * @param change How the status differs from the last one.
+     * @param delay Estimated time for the status to reach us, in milliseconds.
+     */
+    public synchronized void update(PlayerStatus status, PlayerStatusChange change, long delay) {
+        id = status.id;
+        isPlaying = status.isPlaying;
+        duration = status.duration;
+        position = status.time;
+        if (!isPlaying) {
+            samples = 0;
+            return;
+        }
+        double sample = status.time + Math.max(0, delay) - status.timestamp;
+        if (0 == samples || change.has(RESTART)) {
+            offset = sample;
+            samples = 1;
+        } else {
+            offset += GAIN * (sample - offset);
+            samples++;
+        }
+    }
+
+    public synchronized void reset() {
+        id = null;
+        isPlaying = false;
+        samples = 0;
+    }
+
+    /**
+     * @return ID of the player modelled, or null if none.
+     */
+    public synchronized String getPlayerId() {
+        return id;
+    }
+
+    /**
+     * @param now Platform.elapsedRealtime()
+     * @return Position at the given time, in milliseconds.
+     */
+    public synchronized long getPosition(long now) {
+        if (!isPlaying || 0 == samples) {
+            return position;
+        }
+        long extrapolated = Math.max(0, Math.round(now + offset));
+        return duration > 0 ? Math.min(duration, extrapolated) : extrapolated;
+    }
+
+    /**
+     * @return Smoothed offset of the server's position from elapsed realtime, in milliseconds,
+     *     or 0 if not playing.
+     */
+    public synchronized long getOffset() {
+        return isPlaying && samples > 0 ? Math.round(offset) : 0;
+    }
+}
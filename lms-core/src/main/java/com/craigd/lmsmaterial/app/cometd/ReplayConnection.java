@@ -0,0 +1,142 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delegate connection that plays back a {@link StreamCapture} instead of talking to a server.
+ * Received data is passed to the listener exactly as it was originally read, so the whole
+ * response path - HTTP parsing, decompression, framing, JSON decoding and message dispatch - runs
+ * as it did for the real session. Anything written is discarded.
+ * <p>
+ * Data the server sent after the n-th request is held back until n requests have been written,
+ * so replies never overtake the requests they answer - up to a limit, for when whoever is driving
+ * the replay will not make all of the original requests. When real time, the original gaps between reads are reproduced; otherwise data is played as fast as it
+ * can be consumed.
+ */
+class ReplayConnection implements DelegateConnection {
+    private final File file;
+    private final boolean realTime;
+    private final int followWrites;
+    private final Runnable onFinished;
+    private volatile boolean open = true;
+    private int writes = 0;
+    private Thread thread;
+
+    /**
+     * @param followWrites Maximum number of requests to wait for.
+     * @param onFinished If not null, called once playback stops - at the end of the capture, or
+     *     because the connection was closed.
+     */
+    ReplayConnection(File file, boolean realTime, int followWrites, Runnable onFinished) {
+        this.file = file;
+        this.realTime = realTime;
+        this.followWrites = followWrites;
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    public void connect(InetSocketAddress address, int timeout, Listener listener) {
+        thread = new Thread(() -> play(listener), ReplayConnection.class.getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void play(Listener listener) {
+        long start = System.nanoTime();
+        int[] requests = {0};
+        try {
+            StreamCapture.read(file, (type, nanos, data, length) -> {
+                if (!open) {
+                    throw new InterruptedIOException();
+                }
+                switch (type) {
+                    case StreamCapture.SENT:
+                        requests[0]++;
+                        break;
+                    case StreamCapture.RECEIVED:
+                        await(requests[0], start + nanos);
+                        listener.onData(ByteBuffer.wrap(data, 0, length));
+                        break;
+                    case StreamCapture.CLOSED:
+                        await(requests[0], start + nanos);
+                        throw new EOFException();
+                    default:
+                        break;
+                }
+            });
+            throw new EOFException("End of capture");
+        } catch (IOException e) {
+            if (open) {
+                if (!(e instanceof EOFException)) {
+                    Logger.warn("Replay failed", e);
+                }
+                listener.onClosed(e);
+            }
+        } finally {
+            if (null != onFinished) {
+                onFinished.run();
+            }
+        }
+    }
+
+    private void await(int requests, long due) throws InterruptedIOException {
+        try {
+            int needed = Math.min(requests, followWrites);
+            synchronized (this) {
+                while (open && writes < needed) {
+                    wait();
+                }
+            }
+            if (realTime) {
+                long delay = due - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void write(Runnable onWritten, ByteBuffer... buffers) {
+        synchronized (this) {
+            writes++;
+            notifyAll();
+        }
+        if (null != onWritten) {
+            onWritten.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        if (null != thread) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+/**
+ * Round-trip time estimator, as used for TCP's retransmission timeout (Jacobson/Karels, RFC 6298).
+ * Keeps a smoothed RTT and RTT variance, from which the timeout is SRTT + 4 * RTTVAR - so a fast,
+ * steady link gets a short timeout, and a slow or jittery one a long timeout. Each expiry doubles
+ * the timeout until a new sample arrives, so stale estimates (e.g. after a network change) cannot
+ * cause repeated spurious expiries.
+ */
+class RttEstimator {
+    private static final double ALPHA = 1.0 / 8.0;
+    private static final double BETA = 1.0 / 4.0;
+    private static final long GRANULARITY = 10;
+
+    private final long minTimeout;
+    private final long maxTimeout;
+    private double srtt;
+    private double rttvar;
+    private long timeout;
+    private boolean haveSample = false;
+
+    /**
+     * @param minTimeout Lower bound for derived timeouts, in milliseconds
+     * @param maxTimeout Upper bound for derived timeouts, in milliseconds
+     */
+    RttEstimator(long minTimeout, long maxTimeout) {
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    synchronized void sample(long rtt) {
+        if (rtt < 0) {
+            return;
+        }
+        if (haveSample) {
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+            srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+        } else {
+            srtt = rtt;
+            rttvar = rtt / 2.0;
+            haveSample = true;
+        }
+        timeout = clamp((long) Math.ceil(srtt + Math.max(GRANULARITY, 4 * rttvar)));
+    }
+
+    /**
+     * Called when an exchange expires.
+     */
+    synchronized void backoff() {
+        if (haveSample) {
+            timeout = clamp(timeout * 2);
+        }
+    }
+
+    /**
+     * @param fallback Used until the first sample has been taken
+     * @return Timeout in milliseconds
+     */
+    synchronized long timeout(long fallback) {
+        return haveSample ? timeout : fallback;
+    }
+
+    private long clamp(long value) {
+        return Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives any number of non-blocking delegate connections from a single I/O thread. Connects,
+ * reads and writes never block the caller, connect timeouts are tracked by the selector loop,
+ * and a connection can be cancelled (closed) at any point - including whilst still connecting.
+ * All connections share one read buffer, as data is handed to the listener synchronously.
+ * Unresolved addresses are looked up on a separate thread, as a lookup blocks.
+ */
+class SelectorEngine implements Runnable {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final Executor RESOLVER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, SelectorEngine.class.getSimpleName() + "-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static SelectorEngine instance = null;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connecting = new HashSet<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    static synchronized SelectorEngine get() throws IOException {
+        if (null == instance || !instance.running) {
+            instance = new SelectorEngine();
+        }
+        return instance;
+    }
+
+    private SelectorEngine() throws IOException {
+        selector = Selector.open();
+        Thread thread = new Thread(this, SelectorEngine.class.getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    DelegateConnection newConnection() {
+        return new Connection();
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(nextTimeout());
+                Runnable task;
+                while (null != (task = tasks.poll())) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // One connection's failure must not stop the thread all the others share
+                        Logger.error("Selector task failed", e);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((Connection) key.attachment()).handle(key);
+                }
+                expireConnects();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            Logger.error("Selector failed", e);
+        } finally {
+            running = false;
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).closed(new IOException("Selector stopped"));
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private long nextTimeout() {
+        if (connecting.isEmpty()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Connection connection : connecting) {
+            next = Math.min(next, connection.connectDeadline - now);
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next) + 1);
+    }
+
+    private void expireConnects() {
+        if (connecting.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Connection connection : new HashSet<>(connecting)) {
+            if (now - connection.connectDeadline >= 0) {
+                connection.closed(new SocketTimeoutException("Connect timed out"));
+            }
+        }
+    }
+
+    private static class PendingWrite {
+        final ByteBuffer[] buffers;
+        final Runnable onWritten;
+
+        PendingWrite(ByteBuffer[] buffers, Runnable onWritten) {
+            this.buffers = buffers;
+            this.onWritten = onWritten;
+        }
+
+        boolean isDone() {
+            return !buffers[buffers.length - 1].hasRemaining();
+        }
+
+        void complete() {
+            if (null != onWritten) {
+                onWritten.run();
+            }
+        }
+    }
+
+    private class Connection implements DelegateConnection {
+        private final Queue<PendingWrite> writes = new ConcurrentLinkedQueue<>();
+        private SocketChannel channel;
+        private SelectionKey key;
+        private Listener listener;
+        private long connectDeadline;
+        private volatile boolean open = true;
+        private boolean connected = false;
+
+        @Override
+        public void connect(InetSocketAddress address, int timeout, Listener listener) throws IOException {
+            this.listener = listener;
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setKeepAlive(true);
+            channel.socket().setTcpNoDelay(true);
+            connectDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            if (address.isUnresolved()) {
+                RESOLVER.execute(() -> resolve(address));
+            } else {
+                execute(() -> register(address));
+            }
+        }
+
+        private void resolve(InetSocketAddress address) {
+            InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+            if (resolved.isUnresolved()) {
+                execute(() -> closed(new UnknownHostException(address.getHostString())));
+            } else {
+                execute(() -> register(resolved));
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void write(Runnable onWritten, ByteBuffer... buffers) throws IOException {
+            if (!open) {
+                if (null != onWritten) {
+                    onWritten.run();
+                }
+                throw new IOException("Closed");
+            }
+            writes.add(new PendingWrite(buffers, onWritten));
+            execute(this::flush);
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                execute(() -> closed(null));
+            }
+        }
+
+        private void register(InetSocketAddress address) {
+            if (!open) {
+                closed(null);
+                return;
+            }
+            try {
+                connected = channel.connect(address);
+                key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+                if (connected) {
+                    flush();
+                } else {
+                    connecting.add(this);
+                }
+            } catch (IOException e) {
+                closed(e);
+            } catch (RuntimeException e) {
+                // e.g. UnresolvedAddressException
+                closed(new IOException(e));
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            try {
+                if (!key.isValid()) {
+                    return;
+                }
+                if (key.isConnectable() && channel.finishConnect()) {
+                    connecting.remove(this);
+                    connected = true;
+                    key.interestOps(SelectionKey.OP_READ);
+                    flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush();
+                }
+            } catch (IOException e) {
+                closed(e);
+            } catch (RuntimeException e) {
+                closed(new IOException(e));
+            }
+        }
+
+        private void read() throws IOException {
+            readBuffer.clear();
+            int count = channel.read(readBuffer);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            if (count > 0) {
+                readBuffer.flip();
+                listener.onData(readBuffer);
+            }
+        }
+
+        private void flush() {
+            if (!connected || null == key || !key.isValid()) {
+                return;
+            }
+            try {
+                if (!writes.isEmpty()) {
+                    // Gather everything queued into a single write
+                    int count = 0;
+                    for (PendingWrite write : writes) {
+                        count += write.buffers.length;
+                    }
+                    ByteBuffer[] buffers = new ByteBuffer[count];
+                    count = 0;
+                    for (PendingWrite write : writes) {
+                        for (ByteBuffer buffer : write.buffers) {
+                            if (count < buffers.length) {
+                                buffers[count++] = buffer;
+                            }
+                        }
+                    }
+                    channel.write(buffers, 0, count);
+                    PendingWrite write;
+                    while (null != (write = writes.peek()) && write.isDone()) {
+                        writes.poll();
+                        write.complete();
+                    }
+                }
+                key.interestOps(writes.isEmpty() ? SelectionKey.OP_READ : (SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+            } catch (IOException e) {
+                closed(e);
+            }
+        }
+
+        /**
+         * Release the channel. Only a null cause (closed via close()) does not notify the listener.
+         */
+        private void closed(IOException cause) {
+            boolean wasOpen = open;
+            open = false;
+            connecting.remove(this);
+            PendingWrite write;
+            while (null != (write = writes.poll())) {
+                write.complete();
+            }
+            if (null != key) {
+                key.cancel();
+            }
+            if (null != channel && channel.isOpen()) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (null != cause && wasOpen && null != listener) {
+                listener.onClosed(cause);
+            }
+        }
+    }
+}
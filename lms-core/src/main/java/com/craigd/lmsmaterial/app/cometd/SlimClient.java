@@ -0,0 +1,396 @@
+/**
+ * LMS-Material-App
+ *
+ * NOTE: This file copied from https://github.com/kaaholst/android-squeezer
+ *
+ * Apache-2.0 license
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+import com.craigd.lmsmaterial.app.platform.Scheduler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The parts of a Bayeux client that LMS needs - handshake, a single streaming connect,
+ * subscribe, publish and rehandshake - over {@link HttpStreamingTransport}.
+ * <p>
+ * Listeners are called on the transport's threads, and never with a lock held.
+ */
+public class SlimClient implements HttpStreamingTransport.Listener {
+    public interface MessageListener {
+        void onMessage(BayeuxMessage message);
+    }
+
+    private enum State {
+        DISCONNECTED,
+        HANDSHAKING,
+        CONNECTING,
+        CONNECTED,
+        DISCONNECTING,
+        TERMINATED
+    }
+
+    private static final long BACKOFF_INCREMENT = 1000;
+    private static final long MAX_BACKOFF = 30000;
+
+    private final ConnectionState connectionState;
+    private final TransportMetrics metrics;
+    private final HttpStreamingTransport transport;
+    // Handshakes are retried here, as they may block on connecting
+    private final Scheduler scheduler;
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private final Map<String, List<MessageListener>> metaListeners = new ConcurrentHashMap<>();
+    // Subscribed channel (which may end in a wildcard) to its listener
+    private final Map<String, MessageListener> subscriptions = new ConcurrentHashMap<>();
+    // Publish message ID to the listener for its reply
+    private final Map<String, MessageListener> publishCallbacks = new ConcurrentHashMap<>();
+    private State state = State.DISCONNECTED;
+    private volatile String clientId;
+    private long backoff = 0;
+    private TimingWheel.Timeout scheduledHandshake;
+    private volatile long handshakeStarted;
+
+    SlimClient(ConnectionState connectionState, TransportMetrics metrics, HttpStreamingTransport transport, Scheduler scheduler) {
+        this.connectionState = connectionState;
+        this.metrics = metrics;
+        this.transport = transport;
+        this.scheduler = scheduler;
+        transport.setListener(this);
+    }
+
+    public TransportMetrics getMetrics() {
+        return metrics;
+    }
+
+    public HttpStreamingTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return Client ID assigned by the server at handshake, or null if not handshaken.
+     */
+    public String getId() {
+        return clientId;
+    }
+
+    /**
+     * Listen to the replies on a meta channel, e.g. {@link BayeuxMessage#META_HANDSHAKE}.
+     */
+    public void addListener(String channel, MessageListener listener) {
+        List<MessageListener> listeners = metaListeners.get(channel);
+        if (null == listeners) {
+            listeners = new CopyOnWriteArrayList<>();
+            metaListeners.put(channel, listeners);
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListeners() {
+        metaListeners.clear();
+    }
+
+    public void handshake() {
+        synchronized (this) {
+            if (State.TERMINATED == state || State.DISCONNECTING == state) {
+                return;
+            }
+            state = State.HANDSHAKING;
+            clientId = null;
+            cancelScheduledHandshake();
+        }
+        BayeuxMessage message = newMessage(BayeuxMessage.META_HANDSHAKE);
+        message.put(BayeuxMessage.VERSION_FIELD, "1.0");
+        message.put(BayeuxMessage.MIN_VERSION_FIELD, "1.0");
+        message.put(BayeuxMessage.SUPPORTED_CONNECTION_TYPES_FIELD, Collections.singletonList(HttpStreamingTransport.NAME));
+        send(message);
+    }
+
+    public void rehandshake() {
+        synchronized (this) {
+            if (State.HANDSHAKING == state || State.DISCONNECTING == state || State.TERMINATED == state) {
+                return;
+            }
+            state = State.HANDSHAKING;
+        }
+        Logger.info("");
+        metrics.rehandshake();
+        connectionState.setConnectionState(ConnectionState.State.REHANDSHAKING);
+        BayeuxMessage message = newMessage(BayeuxMessage.META_HANDSHAKE);
+        message.setSuccessful(false);
+        message.getAdvice(true).put(BayeuxMessage.RECONNECT_FIELD, BayeuxMessage.RECONNECT_HANDSHAKE_VALUE);
+        message.setClientId(clientId);
+        handshakeFailed(message);
+    }
+
+    /**
+     * Subscribe to a channel, which may end in /* or /** wildcards. Subscriptions are dropped by
+     * a new handshake.
+     */
+    public void subscribe(String channel, MessageListener listener) {
+        subscriptions.put(channel, listener);
+        BayeuxMessage message = newMessage(BayeuxMessage.META_SUBSCRIBE);
+        message.put(BayeuxMessage.SUBSCRIPTION_FIELD, channel);
+        send(message);
+    }
+
+    /**
+     * @param callback Called with the reply, or with an unsuccessful message if the publish
+     *     failed.
+     */
+    public void publish(String channel, Object data, MessageListener callback) {
+        BayeuxMessage message = newMessage(channel);
+        message.setData(data);
+        if (null != callback) {
+            publishCallbacks.put(message.getId(), callback);
+        }
+        send(message);
+    }
+
+    /**
+     * Disconnect from the server, after which the client is not used again.
+     */
+    public void disconnect() {
+        boolean connected;
+        synchronized (this) {
+            if (State.TERMINATED == state || State.DISCONNECTING == state) {
+                return;
+            }
+            connected = State.CONNECTED == state && transport.isConnected();
+            state = connected ? State.DISCONNECTING : State.TERMINATED;
+            cancelScheduledHandshake();
+        }
+        if (connected) {
+            // The transport closes the connection when this is answered
+            send(newMessage(BayeuxMessage.META_DISCONNECT));
+        } else {
+            transport.terminate();
+        }
+    }
+
+    public void stop() {
+        synchronized (this) {
+            state = State.TERMINATED;
+            cancelScheduledHandshake();
+        }
+        transport.abort();
+    }
+
+    private BayeuxMessage newMessage(String channel) {
+        BayeuxMessage message = new BayeuxMessage(channel);
+        message.setId(Integer.toString(messageIds.incrementAndGet()));
+        message.setClientId(clientId);
+        return message;
+    }
+
+    private void send(BayeuxMessage message) {
+        transport.send(Collections.singletonList(message));
+    }
+
+    @Override
+    public void onSending(List<BayeuxMessage> messages) {
+        for (BayeuxMessage message : messages) {
+            if (metrics.isEnabled() && BayeuxMessage.META_HANDSHAKE.equals(message.getChannel())) {
+                handshakeStarted = System.nanoTime();
+            }
+            Logger.verbose(message.getJSON());
+        }
+    }
+
+    @Override
+    public void onMessages(List<BayeuxMessage> messages) {
+        for (BayeuxMessage message : messages) {
+            Logger.verbose(message.getJSON());
+            String channel = message.getChannel();
+            if (BayeuxMessage.META_HANDSHAKE.equals(channel)) {
+                processHandshake(message);
+            } else if (BayeuxMessage.META_CONNECT.equals(channel)) {
+                processConnect(message);
+            } else if (BayeuxMessage.META_DISCONNECT.equals(channel)) {
+                synchronized (this) {
+                    state = State.TERMINATED;
+                }
+                transport.terminate();
+                notifyListeners(channel, message);
+            } else if (message.isMeta()) {
+                if (!message.isSuccessful() && BayeuxMessage.RECONNECT_HANDSHAKE_VALUE.equals(message.getReconnectAdvice())) {
+                    rehandshake();
+                }
+                notifyListeners(channel, message);
+            } else if (message.isPublishReply()) {
+                MessageListener callback = null == message.getId() ? null : publishCallbacks.remove(message.getId());
+                if (null != callback) {
+                    callback.onMessage(message);
+                }
+            } else {
+                deliver(message);
+            }
+        }
+    }
+
+    @Override
+    public void onFailure(Throwable failure, List<BayeuxMessage> messages) {
+        for (BayeuxMessage message : messages) {
+            Logger.error(message.getJSON(), failure);
+            BayeuxMessage failed = failedReply(message, failure);
+            String channel = message.getChannel();
+            if (BayeuxMessage.META_HANDSHAKE.equals(channel)) {
+                handshakeFailed(failed);
+            } else if (BayeuxMessage.META_DISCONNECT.equals(channel)) {
+                synchronized (this) {
+                    state = State.TERMINATED;
+                }
+                transport.terminate();
+            } else if (message.isMeta()) {
+                notifyListeners(channel, failed);
+            } else {
+                MessageListener callback = publishCallbacks.remove(message.getId());
+                if (null != callback) {
+                    callback.onMessage(failed);
+                }
+            }
+        }
+        if (failure instanceof IOException && connectionState.isConnected()) {
+            rehandshake();
+        }
+    }
+
+    private void processHandshake(BayeuxMessage message) {
+        if (!message.isSuccessful()) {
+            handshakeFailed(message);
+            return;
+        }
+        synchronized (this) {
+            if (State.HANDSHAKING != state) {
+                return;
+            }
+            state = State.CONNECTING;
+            clientId = message.getClientId();
+            backoff = 0;
+        }
+        if (0 != handshakeStarted) {
+            metrics.handshake(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - handshakeStarted));
+            handshakeStarted = 0;
+        }
+        subscriptions.clear();
+        publishCallbacks.clear();
+
+        // LMS takes every connect as a new request for the streaming connection, and keeps the
+        // connection alive with the active subscribe queries (serverstatus or playerstatus)
+        // rather than repeated connects - so only one connect is sent per handshake. It is sent
+        // before listeners are told, so that their subscribes follow it.
+        BayeuxMessage connect = newMessage(BayeuxMessage.META_CONNECT);
+        connect.put(BayeuxMessage.CONNECTION_TYPE_FIELD, HttpStreamingTransport.NAME);
+        // Reply to the first connect straight away
+        connect.getAdvice(true).put(BayeuxMessage.TIMEOUT_FIELD, 0);
+        send(connect);
+        notifyListeners(BayeuxMessage.META_HANDSHAKE, message);
+    }
+
+    private void processConnect(BayeuxMessage message) {
+        if (message.isSuccessful()) {
+            synchronized (this) {
+                if (State.CONNECTING == state) {
+                    state = State.CONNECTED;
+                }
+            }
+        } else if (BayeuxMessage.RECONNECT_HANDSHAKE_VALUE.equals(message.getReconnectAdvice())) {
+            rehandshake();
+        }
+        notifyListeners(BayeuxMessage.META_CONNECT, message);
+    }
+
+    /**
+     * Tell listeners that the handshake failed, then retry it after a back off unless advised
+     * not to.
+     */
+    private void handshakeFailed(BayeuxMessage message) {
+        long delay;
+        synchronized (this) {
+            if (State.TERMINATED == state || State.DISCONNECTING == state) {
+                return;
+            }
+            boolean retry = !BayeuxMessage.RECONNECT_NONE_VALUE.equals(message.getReconnectAdvice());
+            state = retry ? State.HANDSHAKING : State.DISCONNECTED;
+            backoff = Math.min(backoff + BACKOFF_INCREMENT, MAX_BACKOFF);
+            delay = retry ? backoff : -1;
+        }
+        notifyListeners(BayeuxMessage.META_HANDSHAKE, message);
+        if (delay >= 0) {
+            synchronized (this) {
+                // A listener may have stopped the client
+                if (State.HANDSHAKING == state && null == scheduledHandshake) {
+                    scheduledHandshake = TimingWheel.shared().schedule(() -> scheduler.post(this::handshake), delay);
+                }
+            }
+        }
+    }
+
+    private void cancelScheduledHandshake() {
+        if (null != scheduledHandshake) {
+            scheduledHandshake.cancel();
+            scheduledHandshake = null;
+        }
+    }
+
+    private void notifyListeners(String channel, BayeuxMessage message) {
+        List<MessageListener> listeners = metaListeners.get(channel);
+        if (null != listeners) {
+            for (MessageListener listener : listeners) {
+                listener.onMessage(message);
+            }
+        }
+    }
+
+    private void deliver(BayeuxMessage message) {
+        String channel = message.getChannel();
+        if (null == channel) {
+            return;
+        }
+        for (Map.Entry<String, MessageListener> subscription : subscriptions.entrySet()) {
+            if (matches(subscription.getKey(), channel)) {
+                subscription.getValue().onMessage(message);
+            }
+        }
+    }
+
+    /**
+     * @return True if the channel is the subscribed one, or matches its wildcard - /* for one
+     *     more segment, /** for any number.
+     */
+    static boolean matches(String subscription, String channel) {
+        if (subscription.endsWith("/**")) {
+            return channel.startsWith(subscription.substring(0, subscription.length() - 2));
+        }
+        if (subscription.endsWith("/*")) {
+            int prefix = subscription.length() - 1;
+            return channel.length() > prefix && channel.startsWith(subscription.substring(0, prefix)) && channel.indexOf('/', prefix) < 0;
+        }
+        return subscription.equals(channel);
+    }
+
+    /**
+     * @return An unsuccessful reply to a message that could not be sent or was not answered,
+     *     holding the exception and the message under {@link BayeuxMessage#FAILURE_FIELD}.
+     */
+    private static BayeuxMessage failedReply(BayeuxMessage message, Throwable failure) {
+        BayeuxMessage reply = new BayeuxMessage(message.getChannel());
+        reply.setId(message.getId());
+        reply.setSuccessful(false);
+        Map<String, Object> details = new HashMap<>(2);
+        details.put("exception", failure);
+        details.put("message", message);
+        reply.put(BayeuxMessage.FAILURE_FIELD, details);
+        return reply;
+    }
+}
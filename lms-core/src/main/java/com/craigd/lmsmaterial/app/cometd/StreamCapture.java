@@ -0,0 +1,197 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Capture of the raw bytes of a delegate connection, with timestamps, so that a session with a
+ * real server can later be replayed (see {@link ReplayConnection}) without one.
+ * <p>
+ * A file is a magic number and version, followed by records of: type (byte), nanoseconds since
+ * the connection was opened (long), length (int), and that many bytes. Received records hold
+ * exactly what was read from the socket, HTTP framing and all; sent records what was written;
+ * and a closed record (with no data) marks the server closing the connection.
+ */
+class StreamCapture {
+    interface Handler {
+        /**
+         * @param data Only valid for the duration of the call.
+         */
+        void onRecord(byte type, long nanos, byte[] data, int length) throws IOException;
+    }
+
+    static final int MAGIC = 0x4c4d5343; // "LMSC"
+    static final int VERSION = 1;
+    static final byte RECEIVED = 0;
+    static final byte SENT = 1;
+    static final byte CLOSED = 2;
+
+    private final DataOutputStream out;
+    private final long start = System.nanoTime();
+    private boolean closed = false;
+
+    StreamCapture(File file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    synchronized void write(byte type, ByteBuffer... buffers) {
+        if (closed) {
+            return;
+        }
+        try {
+            int length = 0;
+            for (ByteBuffer buffer : buffers) {
+                length += buffer.remaining();
+            }
+            out.writeByte(type);
+            out.writeLong(System.nanoTime() - start);
+            out.writeInt(length);
+            for (ByteBuffer buffer : buffers) {
+                // Leave the caller's buffer as it was
+                ByteBuffer data = buffer.duplicate();
+                if (data.hasArray()) {
+                    out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                } else {
+                    while (data.hasRemaining()) {
+                        out.write(data.get());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Logger.warn("Failed to write capture, stopping", e);
+            close();
+        }
+    }
+
+    synchronized void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                Logger.warn("Failed to close capture", e);
+            }
+        }
+    }
+
+    /**
+     * Read every record of a capture, in order.
+     */
+    static void read(File file, Handler handler) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            read(in, handler);
+        }
+    }
+
+    /**
+     * Read every record of a capture, in order, e.g. from a resource. The stream is not closed.
+     */
+    static void read(InputStream stream, Handler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        byte[] data = new byte[8 * 1024];
+        try {
+            if (MAGIC != in.readInt()) {
+                throw new IOException("Not a capture file");
+            }
+            int version = in.readInt();
+            if (VERSION != version) {
+                throw new IOException("Unsupported capture version " + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a capture file", e);
+        }
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                return;
+            }
+            long nanos;
+            int length;
+            try {
+                nanos = in.readLong();
+                length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Corrupt capture");
+                }
+                if (length > data.length) {
+                    data = new byte[length];
+                }
+                in.readFully(data, 0, length);
+            } catch (EOFException e) {
+                throw new IOException("Truncated capture", e);
+            }
+            handler.onRecord((byte) type, nanos, data, length);
+        }
+    }
+
+    /**
+     * Wraps a delegate connection, recording everything sent and received.
+     */
+    static class Connection implements DelegateConnection {
+        private final DelegateConnection connection;
+        private final StreamCapture capture;
+
+        Connection(DelegateConnection connection, File file) throws IOException {
+            this.connection = connection;
+            this.capture = new StreamCapture(file);
+        }
+
+        @Override
+        public void connect(InetSocketAddress address, int timeout, Listener listener) throws IOException {
+            connection.connect(address, timeout, new Listener() {
+                @Override
+                public void onData(ByteBuffer data) throws IOException {
+                    capture.write(RECEIVED, data);
+                    listener.onData(data);
+                }
+
+                @Override
+                public void onClosed(IOException cause) {
+                    if (cause instanceof EOFException) {
+                        capture.write(CLOSED);
+                    }
+                    capture.close();
+                    listener.onClosed(cause);
+                }
+            });
+        }
+
+        @Override
+        public boolean isOpen() {
+            return connection.isOpen();
+        }
+
+        @Override
+        public void write(Runnable onWritten, ByteBuffer... buffers) throws IOException {
+            capture.write(SENT, buffers);
+            connection.write(onWritten, buffers);
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+            capture.close();
+        }
+    }
+}
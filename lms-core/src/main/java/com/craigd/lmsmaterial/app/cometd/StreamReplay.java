@@ -0,0 +1,108 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Feeds a capture, made with {@link HttpStreamingTransport#CAPTURE_DIR_OPTION}, back through the
+ * transport without a server - for repeatable benchmarks and regression tests of the streaming
+ * response path using real LMS traffic. A handshake is sent to open the streaming connection,
+ * which then plays back everything the server originally sent; nothing is sent over the network.
+ */
+public class StreamReplay {
+    private static final String URL = "http://127.0.0.1:9000/cometd";
+
+    public static class Result {
+        public final long messages;
+        public final long elapsedMillis;
+        public final Throwable failure;
+        public final TransportMetrics metrics;
+
+        Result(long messages, long elapsedMillis, Throwable failure, TransportMetrics metrics) {
+            this.messages = messages;
+            this.elapsedMillis = elapsedMillis;
+            this.failure = failure;
+            this.metrics = metrics;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return messages + " messages in " + elapsedMillis + "ms" + (null == failure ? "" : ", failed: " + failure);
+        }
+    }
+
+    /**
+     * @param realTime Reproduce the original timing, rather than playing as fast as possible.
+     * @param timeout Maximum time to wait for playback to finish, in milliseconds.
+     */
+    public static Result replay(File capture, boolean realTime, long timeout) throws Exception {
+        TransportMetrics metrics = new TransportMetrics(true);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicLong messages = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Map<String, Object> options = new HashMap<>();
+        options.put(HttpStreamingTransport.METRICS_OPTION, metrics);
+        // The capture is of the streaming connection only
+        options.put(HttpStreamingTransport.COMMAND_CONNECTION_OPTION, false);
+        HttpStreamingTransport transport = new HttpStreamingTransport(URL, options) {
+            @Override
+            DelegateConnection newDelegateConnection(String host, boolean secure) {
+                // Only the handshake is sent, so nothing after that waits for requests
+                return new ReplayConnection(capture, realTime, 1, finished::countDown);
+            }
+        };
+        HttpStreamingTransport.Listener listener = new HttpStreamingTransport.Listener() {
+            @Override
+            public void onSending(List<BayeuxMessage> sending) {
+            }
+
+            @Override
+            public void onMessages(List<BayeuxMessage> received) {
+                messages.addAndGet(received.size());
+            }
+
+            @Override
+            public void onFailure(Throwable cause, List<BayeuxMessage> failed) {
+                if (null != cause && !(cause instanceof EOFException)) {
+                    failure.compareAndSet(null, cause);
+                }
+            }
+        };
+
+        long start = System.nanoTime();
+        try {
+            transport.setListener(listener);
+            BayeuxMessage handshake = new BayeuxMessage(BayeuxMessage.META_HANDSHAKE);
+            handshake.setId("1");
+            handshake.put(BayeuxMessage.VERSION_FIELD, "1.0");
+            handshake.put(BayeuxMessage.SUPPORTED_CONNECTION_TYPES_FIELD, Collections.singletonList(HttpStreamingTransport.NAME));
+            transport.send(Collections.singletonList(handshake));
+            if (!finished.await(timeout, TimeUnit.MILLISECONDS)) {
+                failure.compareAndSet(null, new TimeoutException("Replay did not finish"));
+            }
+        } finally {
+            transport.terminate();
+        }
+        return new Result(messages.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failure.get(), metrics);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel, used for timeouts that are nearly always cancelled before they fire
+ * (exchange expiry, handshake timeout). Scheduling and cancelling are O(1) - a timeout is linked
+ * into, or unlinked from, the bucket for its deadline tick - and a single thread expires each
+ * tick's timeouts as a batch. When idle the thread sleeps until the next occupied bucket, rather
+ * than waking on every tick.
+ */
+public class TimingWheel implements Runnable {
+    public interface Timeout {
+        /**
+         * @return False if the timeout had already fired, or been cancelled.
+         */
+        boolean cancel();
+    }
+
+    // Milliseconds, and so the granularity of all delays on the shared wheel
+    static final long DEFAULT_TICK = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+    private static TimingWheel shared = null;
+
+    private final Object lock = new Object();
+    private final long tickNanos;
+    private final Entry[] wheel;
+    private final int mask;
+    private final long startTime = System.nanoTime();
+    private long processedTick = 0;
+    private long wakeTick = Long.MAX_VALUE;
+    private int size = 0;
+    private volatile boolean running = true;
+
+    public static synchronized TimingWheel shared() {
+        if (null == shared) {
+            shared = new TimingWheel(TimingWheel.class.getSimpleName(), DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+        }
+        return shared;
+    }
+
+    /**
+     * @param tick Tick duration in milliseconds
+     * @param wheelSize Number of buckets, rounded up to a power of 2
+     */
+    public TimingWheel(String name, long tick, int wheelSize) {
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        int buckets = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        wheel = new Entry[buckets];
+        for (int i = 0; i < buckets; ++i) {
+            wheel[i] = new Entry(null, 0);
+            wheel[i].prev = wheel[i].next = wheel[i];
+        }
+        mask = buckets - 1;
+        Thread thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay) {
+        synchronized (lock) {
+            long ticks = Math.max(1, (TimeUnit.MILLISECONDS.toNanos(delay) + tickNanos - 1) / tickNanos);
+            long deadline = Math.max(currentTick(), processedTick) + ticks;
+            Entry entry = new Entry(task, deadline);
+            entry.link(wheel[(int) (deadline & mask)]);
+            size++;
+            if (deadline < wakeTick) {
+                lock.notify();
+            }
+            return entry;
+        }
+    }
+
+    public void stop() {
+        running = false;
+        synchronized (lock) {
+            lock.notify();
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startTime) / tickNanos;
+    }
+
+    @Override
+    public void run() {
+        List<Entry> expired = new ArrayList<>();
+        while (running) {
+            synchronized (lock) {
+                long now = currentTick();
+                // After a long sleep only visit each bucket once
+                long last = Math.min(now, processedTick + wheel.length);
+                for (long tick = processedTick + 1; tick <= last && size > 0; ++tick) {
+                    Entry head = wheel[(int) (tick & mask)];
+                    for (Entry entry = head.next; entry != head; ) {
+                        Entry next = entry.next;
+                        if (entry.deadline <= now) {
+                            entry.unlink();
+                            size--;
+                            expired.add(entry);
+                        }
+                        entry = next;
+                    }
+                }
+                processedTick = now;
+
+                if (expired.isEmpty()) {
+                    wakeTick = nextOccupiedTick();
+                    try {
+                        if (Long.MAX_VALUE == wakeTick) {
+                            lock.wait();
+                        } else {
+                            long delay = startTime + (wakeTick * tickNanos) - System.nanoTime();
+                            if (delay > 0) {
+                                lock.wait(TimeUnit.NANOSECONDS.toMillis(delay), (int) (delay % 1000000));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    wakeTick = Long.MAX_VALUE;
+                    continue;
+                }
+            }
+
+            for (Entry entry : expired) {
+                entry.fire();
+            }
+            expired.clear();
+        }
+    }
+
+    private long nextOccupiedTick() {
+        if (0 == size) {
+            return Long.MAX_VALUE;
+        }
+        for (long tick = processedTick + 1; tick <= processedTick + wheel.length; ++tick) {
+            Entry head = wheel[(int) (tick & mask)];
+            if (head.next != head) {
+                // Entry may be for a later round, in which case we just wake and look again
+                return tick;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private class Entry implements Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private Entry prev;
+        private Entry next;
+        private boolean cancelled = false;
+
+        Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void link(Entry head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = null;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (lock) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                if (null == prev) {
+                    // Already expired, but the batch it is in may not have run yet
+                    return false;
+                }
+                unlink();
+                size--;
+                return true;
+            }
+        }
+
+        private void fire() {
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Keep the thread alive for every other timeout
+                Logger.error("Timeout task failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * TLS for the streaming delegate. Every connection is created from the one SSLContext, so they
+ * all share its client session cache - reconnecting to the same server (e.g. after a network
+ * change) resumes the previous session, or uses its TLS 1.3 ticket, rather than performing a full
+ * handshake.
+ */
+class TlsSockets {
+    private static final int SESSION_CACHE_SIZE = 8;
+    private static final int SESSION_TIMEOUT = 24 * 60 * 60;
+
+    private static SSLContext context = null;
+
+    static synchronized SSLSocketFactory socketFactory() throws IOException {
+        if (null == context) {
+            try {
+                SSLContext created = SSLContext.getInstance("TLS");
+                created.init(null, null, null);
+                setContext(created);
+            } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                throw new SSLException(e);
+            }
+        }
+        return context.getSocketFactory();
+    }
+
+    /**
+     * Use a context other than the platform default, e.g. one that trusts a test server's
+     * self-signed certificate.
+     */
+    static synchronized void setContext(SSLContext context) {
+        SSLSessionContext sessions = context.getClientSessionContext();
+        if (null != sessions) {
+            sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessions.setSessionTimeout(SESSION_TIMEOUT);
+        }
+        TlsSockets.context = context;
+    }
+
+    /**
+     * Complete the handshake, within the timeout, and check the certificate is for the host -
+     * by default SSLSocket only checks the certificate chain.
+     */
+    static void handshake(SSLSocket socket, String host, int timeout) throws IOException {
+        long start = System.nanoTime();
+        boolean hostChecked = checkHostInHandshake(socket);
+        socket.setSoTimeout(timeout);
+        socket.startHandshake();
+        socket.setSoTimeout(0);
+        SSLSession session = socket.getSession();
+        if (!hostChecked && !HttpsURLConnection.getDefaultHostnameVerifier().verify(host, session)) {
+            throw new SSLPeerUnverifiedException("Certificate is not for " + host);
+        }
+        Logger.debug(session.getProtocol() + " to " + host + " in " + ((System.nanoTime() - start) / 1000000) + "ms");
+    }
+
+    /**
+     * Have the handshake itself check the certificate is for the host. On a desktop JVM this is
+     * the only way, as its default HostnameVerifier rejects everything.
+     * @return False if not supported (before Android 7), so the host must be checked afterwards.
+     */
+    private static boolean checkHostInHandshake(SSLSocket socket) {
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            socket.setSSLParameters(parameters);
+            return true;
+        } catch (NoSuchMethodError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.cometd;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and histograms for the CometD connection, shared by the transport and the client, so
+ * that a diagnostics screen (or a test) can see how it is performing. Nothing is recorded unless
+ * enabled, and callers check isEnabled() before taking any timestamps, so when disabled the cost
+ * is a single volatile read per event.
+ */
+public class TransportMetrics {
+    /**
+     * Lock-free histogram with power-of-two buckets: bucket 0 holds values below 1, bucket n
+     * values in [2^(n-1), 2^n), and the last bucket everything larger.
+     */
+    public static class Histogram {
+        public static final int BUCKETS = 20;
+
+        private final String unit;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String unit) {
+            this.unit = unit;
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Retry
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getAverage() {
+            long c = count.get();
+            return 0 == c ? 0 : sum.get() / c;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @return Upper bound of the bucket containing the given percentile (0-100), or 0 if
+         *     nothing has been recorded.
+         */
+        public long getPercentile(double percentile) {
+            long c = count.get();
+            if (0 == c) {
+                return 0;
+            }
+            long target = (long) Math.ceil(c * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return i == BUCKETS - 1 ? max.get() : (1L << i) - 1;
+                }
+            }
+            return max.get();
+        }
+
+        public long[] getBuckets() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                copy[i] = buckets.get(i);
+            }
+            return copy;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "count " + getCount() + ", average " + getAverage() + unit + ", p50 " + getPercentile(50) + unit +
+                    ", p95 " + getPercentile(95) + unit + ", max " + getMax() + unit;
+        }
+    }
+
+    private volatile boolean enabled;
+    private final Histogram handshakeLatency = new Histogram("ms");
+    private final ConcurrentHashMap<String, Histogram> exchangeRtt = new ConcurrentHashMap<>();
+    private final Histogram parseTime = new Histogram("us");
+    private final Histogram socketLifetime = new Histogram("s");
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong expiredExchanges = new AtomicLong();
+    private final AtomicLong rehandshakes = new AtomicLong();
+
+    public TransportMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void reset() {
+        handshakeLatency.reset();
+        exchangeRtt.clear();
+        parseTime.reset();
+        socketLifetime.reset();
+        bytesIn.set(0);
+        bytesOut.set(0);
+        expiredExchanges.set(0);
+        rehandshakes.set(0);
+    }
+
+    void handshake(long millis) {
+        if (enabled) {
+            handshakeLatency.record(millis);
+        }
+    }
+
+    void exchange(String channel, long millis) {
+        if (enabled) {
+            String key = null == channel ? "" : channel;
+            Histogram histogram = exchangeRtt.get(key);
+            if (null == histogram) {
+                histogram = new Histogram("ms");
+                Histogram existing = exchangeRtt.putIfAbsent(key, histogram);
+                if (null != existing) {
+                    histogram = existing;
+                }
+            }
+            histogram.record(millis);
+        }
+    }
+
+    /**
+     * @param nanos Time taken to parse the payload.
+     * @param messages Number of messages it contained.
+     */
+    void parsed(long nanos, int messages) {
+        if (enabled && messages > 0) {
+            parseTime.record(nanos / 1000 / messages);
+        }
+    }
+
+    void socketClosed(long millis) {
+        if (enabled) {
+            socketLifetime.record(millis / 1000);
+        }
+    }
+
+    void received(long bytes) {
+        if (enabled) {
+            bytesIn.addAndGet(bytes);
+        }
+    }
+
+    void sent(long bytes) {
+        if (enabled) {
+            bytesOut.addAndGet(bytes);
+        }
+    }
+
+    void expired() {
+        if (enabled) {
+            expiredExchanges.incrementAndGet();
+        }
+    }
+
+    void rehandshake() {
+        if (enabled) {
+            rehandshakes.incrementAndGet();
+        }
+    }
+
+    public Histogram getHandshakeLatency() {
+        return handshakeLatency;
+    }
+
+    /**
+     * @return Round trip times of exchanges, by request channel, sorted by channel.
+     */
+    public Map<String, Histogram> getExchangeRtt() {
+        return new TreeMap<>(exchangeRtt);
+    }
+
+    /**
+     * @return Time to parse a payload, per message it contained, in microseconds.
+     */
+    public Histogram getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * @return How long streaming connections stayed open, in seconds.
+     */
+    public Histogram getSocketLifetime() {
+        return socketLifetime;
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public long getExpiredExchanges() {
+        return expiredExchanges.get();
+    }
+
+    public long getRehandshakes() {
+        return rehandshakes.get();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder()
+                .append("handshake: ").append(handshakeLatency)
+                .append("\nparse: ").append(parseTime)
+                .append("\nsocket lifetime: ").append(socketLifetime)
+                .append("\nbytes in: ").append(getBytesIn()).append(", out: ").append(getBytesOut())
+                .append("\nexpired: ").append(getExpiredExchanges()).append(", rehandshakes: ").append(getRehandshakes());
+        for (Map.Entry<String, Histogram> entry : getExchangeRtt().entrySet()) {
+            sb.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
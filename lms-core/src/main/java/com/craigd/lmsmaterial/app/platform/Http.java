@@ -0,0 +1,30 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * HTTP requests with JSON bodies, as used for JSON-RPC.
+ */
+public interface Http {
+    interface Listener {
+        /**
+         * Called on the main (UI) thread, if there is one. Failed requests are not reported.
+         */
+        void onResponse(JSONObject response);
+    }
+
+    /**
+     * Queue a POST request.
+     * @param listener May be null.
+     */
+    void post(String url, JSONObject body, Map<String, String> headers, Listener listener);
+}
@@ -0,0 +1,177 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform for running the shared code on a plain JVM - for tests, benchmarks and profiling.
+ * Preferences are held in memory, and are set with {@link #set}.
+ */
+public class JvmPlatform implements Platform {
+    private static final int HTTP_TIMEOUT = 10 * 1000;
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final boolean debug;
+    private final ExecutorService httpExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "JvmPlatform-http");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Preferences preferences = new Preferences() {
+        @Override
+        public String getString(String key, String defaultValue) {
+            String value = values.get(key);
+            return null == value ? defaultValue : value;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defaultValue) {
+            String value = values.get(key);
+            return null == value ? defaultValue : Boolean.parseBoolean(value);
+        }
+    };
+
+    private final Http http = (url, body, headers, listener) -> httpExecutor.execute(() -> {
+        try {
+            JSONObject response = post(url, body, headers);
+            if (null != listener) {
+                listener.onResponse(response);
+            }
+        } catch (IOException | JSONException e) {
+            Logger.warn("Request to " + url + " failed", e);
+        }
+    });
+
+    public JvmPlatform(boolean debug) {
+        this.debug = debug;
+    }
+
+    public JvmPlatform set(String key, Object value) {
+        values.put(key, String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Set the server to connect to.
+     */
+    public JvmPlatform setServer(String ip, int port) {
+        try {
+            return set(Preferences.SERVER_KEY, new JSONObject().put("ip", ip).put("port", port).toString());
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public Preferences preferences() {
+        return preferences;
+    }
+
+    @Override
+    public Http http() {
+        return http;
+    }
+
+    @Override
+    public Scheduler newScheduler(String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        Thread[] thread = new Thread[1];
+        executor.setThreadFactory(r -> {
+            thread[0] = new Thread(r, name);
+            thread[0].setDaemon(true);
+            return thread[0];
+        });
+        return new Scheduler() {
+            @Override
+            public void post(Runnable task) {
+                executor.execute(task);
+            }
+
+            @Override
+            public void cancelPending() {
+                executor.getQueue().clear();
+            }
+
+            @Override
+            public boolean isCurrentThread() {
+                return Thread.currentThread() == thread[0];
+            }
+        };
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @Override
+    public File cacheDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    @Override
+    public boolean isNetworkConnected() {
+        return true;
+    }
+
+    @Override
+    public boolean isDebug() {
+        return debug;
+    }
+
+    private static JSONObject post(String url, JSONObject body, Map<String, String> headers) throws IOException, JSONException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(HTTP_TIMEOUT);
+            connection.setReadTimeout(HTTP_TIMEOUT);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            if (null != headers) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8 * 1024];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    response.write(buffer, 0, read);
+                }
+                return new JSONObject(new String(response.toByteArray(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
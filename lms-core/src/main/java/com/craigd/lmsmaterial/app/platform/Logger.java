@@ -0,0 +1,96 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+import java.io.PrintStream;
+
+/**
+ * Logging for the shared code. Nothing is logged until a sink is set - the app sets one, writing
+ * to logcat, for debug builds.
+ */
+public final class Logger {
+    public enum Level { VERBOSE, DEBUG, INFO, WARN, ERROR }
+
+    public interface Sink {
+        void log(Level level, String message, Throwable t);
+    }
+
+    /**
+     * Writes to stderr, for use outside of the app.
+     */
+    public static final Sink CONSOLE = new Sink() {
+        @Override
+        public void log(Level level, String message, Throwable t) {
+            PrintStream out = System.err;
+            synchronized (out) {
+                out.println(level.name().charAt(0) + " " + message);
+                if (null != t) {
+                    t.printStackTrace(out);
+                }
+            }
+        }
+    };
+
+    private static volatile Sink sink = null;
+
+    private Logger() {
+    }
+
+    public static void setSink(Sink sink) {
+        Logger.sink = sink;
+    }
+
+    public static boolean isEnabled() {
+        return null != sink;
+    }
+
+    private static String logPrefix() {
+        StackTraceElement st[] = Thread.currentThread().getStackTrace();
+        if (null!=st && st.length>4) {
+            // Remove com.craigd.lmsmaterial.app.
+            String name = st[4].getClassName();
+            return "["+(name.startsWith("com.craigd.lmsmaterial.app.") ? name.substring(27) : name)+"."+st[4].getMethodName()+"] ";
+        }
+        return "";
+    }
+
+    private static void log(Level level, String message, Throwable t) {
+        Sink s = sink;
+        if (null != s) {
+            s.log(level, logPrefix() + message, t);
+        }
+    }
+
+    public static void verbose(String message) {
+        log(Level.VERBOSE, message, null);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public static void warn(String message, Throwable t) {
+        log(Level.WARN, message, t);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public static void error(String message, Throwable t) {
+        log(Level.ERROR, message, t);
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+import java.io.File;
+
+/**
+ * What the shared code needs from the platform it runs on - implemented by the app on Android,
+ * and by JvmPlatform elsewhere.
+ */
+public interface Platform {
+    Preferences preferences();
+
+    Http http();
+
+    /**
+     * @param name Name of the scheduler's thread.
+     */
+    Scheduler newScheduler(String name);
+
+    /**
+     * @return Milliseconds since some fixed point, not affected by changes to the wall clock.
+     */
+    long elapsedRealtime();
+
+    /**
+     * @return Directory for temporary files.
+     */
+    File cacheDir();
+
+    boolean isNetworkConnected();
+
+    boolean isDebug();
+}
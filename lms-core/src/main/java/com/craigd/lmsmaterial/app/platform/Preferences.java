@@ -0,0 +1,26 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+/**
+ * Access to the app's settings.
+ */
+public interface Preferences {
+    String SERVER_KEY = "server";
+    String USERNAME_KEY = "lms-username";
+    String PASSWORD_KEY = "lms-password";
+    String COMPRESS_UPDATES_KEY = "compress_updates";
+    // Connect to the server over TLS, e.g. when it is behind a reverse proxy
+    String HTTPS_KEY = "https";
+    // Number of most recently used players to keep subscribed to, and cache the status of
+    String SUBSCRIBED_PLAYERS_KEY = "subscribed_players";
+
+    String getString(String key, String defaultValue);
+
+    boolean getBoolean(String key, boolean defaultValue);
+}
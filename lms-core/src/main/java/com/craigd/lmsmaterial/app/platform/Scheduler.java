@@ -0,0 +1,25 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app.platform;
+
+/**
+ * Runs tasks, in order, on a single background thread.
+ */
+public interface Scheduler {
+    void post(Runnable task);
+
+    /**
+     * Drop any tasks that have not yet started.
+     */
+    void cancelPending();
+
+    /**
+     * @return True if called from the scheduler's thread.
+     */
+    boolean isCurrentThread();
+}
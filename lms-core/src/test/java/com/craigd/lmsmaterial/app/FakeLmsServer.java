@@ -0,0 +1,809 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import com.craigd.lmsmaterial.app.cometd.BayeuxJsonDecoder;
+import com.craigd.lmsmaterial.app.cometd.BayeuxJsonEncoder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Stand-in for LMS, for integration, load and soak tests of the app's networking. Serves:
+ * <ul>
+ *     <li>/cometd - handshake, connect (streaming or long-polling), subscribe, and the /slim/
+ *     subscribe and request channels. Each /slim/subscribe to a player's status pushes
+ *     playerstatus at the configured interval until unsubscribed, and a subscribe to
+ *     serverstatus likewise pushes serverstatus.</li>
+ *     <li>/jsonrpc.js - slim.request for serverstatus, status, and player commands.</li>
+ *     <li>Cover art - any GET under /music/, /imageproxy/ or /material/ returns a small PNG.</li>
+ *     <li>UDP discovery - replies to discovery requests with the name and HTTP port.</li>
+ * </ul>
+ * Latency is added before every HTTP response, and each playerstatus push is dropped with the
+ * given probability. Settings may be changed while running.
+ * <p>
+ * With TLS enabled HTTP is served over TLS 1.2, with a self-signed certificate for localhost and
+ * 127.0.0.1 from fake-lms.p12 - which was made with:
+ * <pre>
+ * keytool -genkeypair -alias fake-lms -keyalg EC -groupname secp256r1 -dname "CN=localhost" \
+ *     -ext SAN=dns:localhost,ip:127.0.0.1 -validity 36500 -storetype PKCS12 \
+ *     -keystore fake-lms.p12 -storepass fakelms
+ * </pre>
+ * TLS 1.2 resumes sessions by ID, so {@link #getTlsSessions()} shows whether a client resumed.
+ */
+public class FakeLmsServer implements Closeable {
+    public static final int DISCOVERY_PORT = 3483;
+
+    private static final byte[] PNG = {
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0x0d, 'I', 'H', 'D', 'R',
+            0, 0, 0, 1, 0, 0, 0, 1, 8, 6, 0, 0, 0, 0x1f, 0x15, (byte) 0xc4, (byte) 0x89, 0, 0, 0,
+            0x0d, 'I', 'D', 'A', 'T', 0x78, (byte) 0x9c, 0x63, 0, 1, 0, 0, 5, 0, 1, 0x0d, 0x0a,
+            0x2d, (byte) 0xb4, 0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xae, 'B', 0x60, (byte) 0x82
+    };
+    private static final long LONG_POLL_TIMEOUT = 30000;
+    private static final String KEY_STORE = "fake-lms.p12";
+    private static final char[] KEY_STORE_PASSWORD = "fakelms".toCharArray();
+
+    public static class Player {
+        public final String id;
+        public final String name;
+        volatile String mode = "play";
+        volatile int volume = 50;
+        private final long started = System.currentTimeMillis();
+
+        Player(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A Bayeux session. Messages are written straight to its streaming connection if it has
+     * one, otherwise queued for its next long-poll.
+     */
+    private class Client {
+        final String id;
+        final Map<String, ScheduledFuture<?>> subscriptions = new ConcurrentHashMap<>();
+        final List<Map<String, Object>> queue = new ArrayList<>();
+        HttpConnection stream;
+
+        Client(String id) {
+            this.id = id;
+        }
+
+        void deliver(Map<String, Object> message) {
+            HttpConnection connection;
+            synchronized (this) {
+                connection = stream;
+                if (null == connection) {
+                    queue.add(message);
+                    notifyAll();
+                    return;
+                }
+            }
+            try {
+                connection.writeChunk(Collections.singletonList(message));
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (stream == connection) {
+                        stream = null;
+                    }
+                }
+            }
+        }
+
+        synchronized List<Map<String, Object>> poll(long timeout) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining;
+            while (queue.isEmpty() && (remaining = end - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+            List<Map<String, Object>> messages = new ArrayList<>(queue);
+            queue.clear();
+            return messages;
+        }
+
+        void close() {
+            for (ScheduledFuture<?> future : subscriptions.values()) {
+                future.cancel(false);
+            }
+            subscriptions.clear();
+            HttpConnection connection;
+            synchronized (this) {
+                connection = stream;
+                stream = null;
+            }
+            if (null != connection) {
+                connection.close();
+            }
+        }
+    }
+
+    private final String name;
+    private final Map<String, Player> players = new LinkedHashMap<>();
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+    private final AtomicInteger nextClient = new AtomicInteger();
+    private final AtomicLong statusPushes = new AtomicLong();
+    private final AtomicLong droppedPushes = new AtomicLong();
+    private final AtomicLong httpRequests = new AtomicLong();
+    private final AtomicLong unstreamedCommands = new AtomicLong();
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "FakeLmsConnection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "FakeLmsScheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long statusInterval = 1000;
+    private volatile int playlistSize = 1;
+    private volatile long latency = 0;
+    private volatile double loss = 0;
+    private boolean tls = false;
+    private final List<String> tlsSessions = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger resumedTlsSessions = new AtomicInteger();
+    private ServerSocket httpSocket;
+    private DatagramSocket discoverySocket;
+    private volatile boolean running = false;
+
+    public FakeLmsServer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Add n players, with IDs in MAC address form.
+     */
+    public synchronized FakeLmsServer addPlayers(int count) {
+        for (int i = 0; i < count; ++i) {
+            int index = players.size();
+            String id = String.format(Locale.ROOT, "00:04:20:00:%02x:%02x", (index >> 8) & 0xff, index & 0xff);
+            players.put(id, new Player(id, "Player " + (index + 1)));
+        }
+        return this;
+    }
+
+    public synchronized List<Player> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public FakeLmsServer setStatusInterval(long millis) {
+        statusInterval = millis;
+        return this;
+    }
+
+    /**
+     * @param tracks Number of tracks in each playerstatus push, to control payload size.
+     */
+    public FakeLmsServer setPlaylistSize(int tracks) {
+        playlistSize = tracks;
+        return this;
+    }
+
+    public FakeLmsServer setLatency(long millis) {
+        latency = millis;
+        return this;
+    }
+
+    /**
+     * @param probability Chance, from 0 to 1, that a playerstatus push is dropped.
+     */
+    public FakeLmsServer setLoss(double probability) {
+        loss = probability;
+        return this;
+    }
+
+    /**
+     * Serve HTTP over TLS. Must be set before starting.
+     */
+    public FakeLmsServer setTls(boolean tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    /**
+     * @return A context for clients, which trusts only this server's certificate.
+     */
+    public static SSLContext clientTlsContext() throws IOException {
+        try {
+            TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trust.init(keyStore());
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trust.getTrustManagers(), null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static KeyStore keyStore() throws IOException, GeneralSecurityException {
+        try (InputStream in = FakeLmsServer.class.getResourceAsStream(KEY_STORE)) {
+            if (null == in) {
+                throw new IOException("Missing " + KEY_STORE);
+            }
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, KEY_STORE_PASSWORD);
+            return keyStore;
+        }
+    }
+
+    private static ServerSocket newTlsServerSocket() throws IOException {
+        try {
+            KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keys.init(keyStore(), KEY_STORE_PASSWORD);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keys.getKeyManagers(), null, null);
+            SSLServerSocket socket = (SSLServerSocket) context.getServerSocketFactory().createServerSocket();
+            socket.setEnabledProtocols(new String[]{"TLSv1.2"});
+            return socket;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param httpPort 0 for any free port.
+     * @param discoveryPort UDP port for discovery, or -1 to not answer discovery.
+     */
+    public synchronized void start(int httpPort, int discoveryPort) throws IOException {
+        httpSocket = tls ? newTlsServerSocket() : new ServerSocket();
+        httpSocket.setReuseAddress(true);
+        httpSocket.bind(new InetSocketAddress(httpPort));
+        if (discoveryPort >= 0) {
+            discoverySocket = new DatagramSocket(discoveryPort);
+        }
+        running = true;
+        connections.execute(this::accept);
+        if (null != discoverySocket) {
+            connections.execute(this::discovery);
+        }
+    }
+
+    public int getHttpPort() {
+        return httpSocket.getLocalPort();
+    }
+
+    public int getDiscoveryPort() {
+        return null == discoverySocket ? -1 : discoverySocket.getLocalPort();
+    }
+
+    public long getStatusPushes() {
+        return statusPushes.get();
+    }
+
+    public long getDroppedPushes() {
+        return droppedPushes.get();
+    }
+
+    public long getHttpRequests() {
+        return httpRequests.get();
+    }
+
+    /**
+     * @return Commands (/slim/request) received on connections that are not streaming.
+     */
+    public long getUnstreamedCommands() {
+        return unstreamedCommands.get();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * @return ID of the TLS session of each connection, in hex, in the order they were accepted.
+     */
+    public List<String> getTlsSessions() {
+        synchronized (tlsSessions) {
+            return new ArrayList<>(tlsSessions);
+        }
+    }
+
+    /**
+     * @return How many connections resumed an earlier TLS session, with an abbreviated
+     *     handshake, rather than making a full one.
+     */
+    public int getResumedTlsSessions() {
+        return resumedTlsSessions.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (Client client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+        try {
+            if (null != httpSocket) {
+                httpSocket.close();
+            }
+        } catch (IOException ignored) {
+        }
+        if (null != discoverySocket) {
+            discoverySocket.close();
+        }
+        scheduler.shutdownNow();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = httpSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> new HttpConnection(socket).run());
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void discovery() {
+        byte[] buffer = new byte[512];
+        while (running) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                discoverySocket.receive(request);
+                if (request.getLength() < 1 || 'e' != buffer[0]) {
+                    continue;
+                }
+                ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                reply.write('E');
+                writeTlv(reply, "NAME", name);
+                writeTlv(reply, "JSON", Integer.toString(getHttpPort()));
+                writeTlv(reply, "VERS", "8.5.0");
+                byte[] data = reply.toByteArray();
+                discoverySocket.send(new DatagramPacket(data, data.length, request.getSocketAddress()));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private static void writeTlv(ByteArrayOutputStream out, String tag, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(tag.getBytes(StandardCharsets.US_ASCII), 0, 4);
+        out.write(Math.min(bytes.length, 255));
+        out.write(bytes, 0, Math.min(bytes.length, 255));
+    }
+
+    /**
+     * One HTTP/1.1 connection. Once a streaming connect is received the response is never
+     * completed; instead replies to later requests on the same connection, and any pushes, are
+     * written as further chunks - as LMS does.
+     */
+    private class HttpConnection {
+        private final Socket socket;
+        private final InputStream in;
+        private OutputStream out;
+        private boolean streaming = false;
+
+        HttpConnection(Socket socket) {
+            this.socket = socket;
+            InputStream stream;
+            try {
+                stream = new BufferedInputStream(socket.getInputStream());
+                out = socket.getOutputStream();
+            } catch (IOException e) {
+                stream = null;
+            }
+            in = stream;
+        }
+
+        void run() {
+            try {
+                if (socket instanceof SSLSocket) {
+                    SSLSocket sslSocket = (SSLSocket) socket;
+                    long started = System.currentTimeMillis();
+                    sslSocket.startHandshake();
+                    // A full handshake creates a new session, whereas resuming keeps the old one
+                    if (sslSocket.getSession().getCreationTime() < started) {
+                        resumedTlsSessions.incrementAndGet();
+                    }
+                    StringBuilder id = new StringBuilder();
+                    for (byte b : sslSocket.getSession().getId()) {
+                        id.append(String.format(Locale.ROOT, "%02x", b));
+                    }
+                    tlsSessions.add(id.toString());
+                }
+                while (running && null != in) {
+                    String requestLine = readLine();
+                    if (null == requestLine) {
+                        return;
+                    }
+                    if (requestLine.isEmpty()) {
+                        continue;
+                    }
+                    String[] parts = requestLine.split(" ");
+                    if (parts.length < 2) {
+                        return;
+                    }
+                    Map<String, String> headers = new HashMap<>();
+                    String line;
+                    while (null != (line = readLine()) && !line.isEmpty()) {
+                        int colon = line.indexOf(':');
+                        if (colon > 0) {
+                            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                        }
+                    }
+                    byte[] body = readBody(headers);
+                    httpRequests.incrementAndGet();
+                    if (latency > 0) {
+                        Thread.sleep(latency);
+                    }
+                    handle(parts[0], parts[1], body);
+                    if ("close".equalsIgnoreCase(headers.get("connection")) && !streaming) {
+                        return;
+                    }
+                }
+            } catch (IOException | InterruptedException ignored) {
+            } finally {
+                close();
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) >= 0) {
+                if ('\n' == c) {
+                    int length = line.length();
+                    return length > 0 && '\r' == line.charAt(length - 1) ? line.substring(0, length - 1) : line.toString();
+                }
+                line.append((char) c);
+            }
+            return line.length() > 0 ? line.toString() : null;
+        }
+
+        private byte[] readBody(Map<String, String> headers) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+                while (true) {
+                    String size = readLine();
+                    if (null == size) {
+                        throw new SocketException("Truncated request");
+                    }
+                    int length = Integer.parseInt(size.split(";")[0].trim(), 16);
+                    if (0 == length) {
+                        readLine();
+                        break;
+                    }
+                    readFully(body, length);
+                    readLine();
+                }
+            } else if (headers.containsKey("content-length")) {
+                readFully(body, Integer.parseInt(headers.get("content-length")));
+            }
+            return body.toByteArray();
+        }
+
+        private void readFully(ByteArrayOutputStream body, int length) throws IOException {
+            byte[] buffer = new byte[Math.min(length, 8192)];
+            while (length > 0) {
+                int read = in.read(buffer, 0, Math.min(length, buffer.length));
+                if (read < 0) {
+                    throw new SocketException("Truncated request");
+                }
+                body.write(buffer, 0, read);
+                length -= read;
+            }
+        }
+
+        private void handle(String method, String path, byte[] body) throws IOException, InterruptedException {
+            if (path.startsWith("/cometd")) {
+                handleCometd(body);
+            } else if (path.startsWith("/jsonrpc.js")) {
+                respond(200, "application/json", BayeuxJsonEncoder.encode(handleJsonRpc(body)).getBytes(StandardCharsets.UTF_8));
+            } else if ("GET".equals(method) && (path.startsWith("/music/") || path.startsWith("/imageproxy/") || path.startsWith("/material/"))) {
+                respond(200, "image/png", PNG);
+            } else {
+                respond(404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private synchronized void respond(int status, String contentType, byte[] body) throws IOException {
+            String headers = "HTTP/1.1 " + status + (200 == status ? " OK" : " Error") + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Length: " + body.length + "\r\n\r\n";
+            out.write(headers.getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+        }
+
+        private synchronized void startStream() throws IOException {
+            streaming = true;
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        synchronized void writeChunk(List<Map<String, Object>> messages) throws IOException {
+            byte[] json = BayeuxJsonEncoder.encode(messages).getBytes(StandardCharsets.UTF_8);
+            out.write((Integer.toHexString(json.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(json);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void handleCometd(byte[] body) throws IOException, InterruptedException {
+            List<? extends Map<String, Object>> messages = parse(body);
+            List<Map<String, Object>> replies = new ArrayList<>();
+            Client longPoll = null;
+            for (Map<String, Object> message : messages) {
+                String channel = (String) message.get("channel");
+                Client client = null == message.get("clientId") ? null : clients.get((String) message.get("clientId"));
+                Map<String, Object> reply = new HashMap<>();
+                reply.put("channel", channel);
+                if (null != message.get("id")) {
+                    reply.put("id", message.get("id"));
+                }
+                if ("/meta/handshake".equals(channel)) {
+                    client = new Client(Integer.toHexString(0x10000000 + nextClient.incrementAndGet()));
+                    clients.put(client.id, client);
+                    Map<String, Object> advice = new HashMap<>();
+                    advice.put("timeout", LONG_POLL_TIMEOUT);
+                    advice.put("interval", 0);
+                    advice.put("reconnect", "retry");
+                    reply.put("version", "1.0");
+                    reply.put("clientId", client.id);
+                    reply.put("supportedConnectionTypes", new Object[]{"long-polling", "streaming"});
+                    reply.put("advice", advice);
+                    reply.put("successful", true);
+                } else if (null == client) {
+                    reply.put("successful", false);
+                    reply.put("error", "402::Unknown client");
+                    Map<String, Object> advice = new HashMap<>();
+                    advice.put("reconnect", "handshake");
+                    reply.put("advice", advice);
+                } else if ("/meta/connect".equals(channel)) {
+                    reply.put("clientId", client.id);
+                    reply.put("successful", true);
+                    if ("streaming".equals(message.get("connectionType"))) {
+                        if (!streaming) {
+                            startStream();
+                        }
+                        synchronized (client) {
+                            client.stream = this;
+                        }
+                    } else {
+                        longPoll = client;
+                    }
+                } else if ("/meta/disconnect".equals(channel)) {
+                    client.close();
+                    clients.remove(client.id);
+                    reply.put("successful", true);
+                } else if ("/meta/subscribe".equals(channel) || "/meta/unsubscribe".equals(channel)) {
+                    reply.put("subscription", message.get("subscription"));
+                    reply.put("successful", true);
+                } else if ("/slim/subscribe".equals(channel)) {
+                    subscribe(client, (Map<String, Object>) message.get("data"));
+                    reply.put("successful", true);
+                } else if ("/slim/request".equals(channel)) {
+                    if (!streaming) {
+                        unstreamedCommands.incrementAndGet();
+                    }
+                    Map<String, Object> data = (Map<String, Object>) message.get("data");
+                    Object[] request = (Object[]) data.get("request");
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("channel", data.get("response"));
+                    result.put("data", request(request));
+                    client.deliver(result);
+                    reply.put("successful", true);
+                } else {
+                    reply.put("successful", false);
+                    reply.put("error", "404::Unknown channel");
+                }
+                replies.add(reply);
+            }
+            if (null != longPoll) {
+                replies.addAll(longPoll.poll(LONG_POLL_TIMEOUT));
+            }
+            if (streaming) {
+                writeChunk(replies);
+            } else {
+                respond(200, "application/json", BayeuxJsonEncoder.encode(replies).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void subscribe(Client client, Map<String, Object> data) {
+        if (null == data) {
+            return;
+        }
+        Object unsubscribe = data.get("unsubscribe");
+        if (null != unsubscribe) {
+            ScheduledFuture<?> future = client.subscriptions.remove((String) unsubscribe);
+            if (null != future) {
+                future.cancel(false);
+            }
+            return;
+        }
+        String response = (String) data.get("response");
+        Object[] request = (Object[]) data.get("request");
+        Player player = null == request ? null : getPlayer((String) request[0]);
+        boolean serverStatus = null != request && request.length > 1 && request[1] instanceof Object[] &&
+                "serverstatus".equals(((Object[]) request[1])[0]);
+        if (null == response || (null == player && !serverStatus)) {
+            return;
+        }
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
+            if (loss > 0 && random.nextDouble() < loss) {
+                droppedPushes.incrementAndGet();
+                return;
+            }
+            Map<String, Object> message = new HashMap<>();
+            message.put("channel", response);
+            message.put("data", serverStatus ? request(request) : status(player));
+            statusPushes.incrementAndGet();
+            client.deliver(message);
+        }, 0, Math.max(1, statusInterval), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = client.subscriptions.put(response, future);
+        if (null != previous) {
+            previous.cancel(false);
+        }
+    }
+
+    private synchronized Player getPlayer(String id) {
+        return null == id ? null : players.get(id);
+    }
+
+    /**
+     * Handle the slim.request [player, [command...]] form used by both CometD and JSON-RPC.
+     */
+    private Map<String, Object> request(Object[] request) {
+        Map<String, Object> result = new HashMap<>();
+        if (null == request || request.length < 2 || !(request[1] instanceof Object[])) {
+            return result;
+        }
+        Object[] command = (Object[]) request[1];
+        String verb = command.length > 0 ? String.valueOf(command[0]) : "";
+        Player player = getPlayer((String) request[0]);
+        if ("serverstatus".equals(verb)) {
+            List<Map<String, Object>> loop = new ArrayList<>();
+            for (Player p : getPlayers()) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("playerid", p.id);
+                entry.put("name", p.name);
+                entry.put("ip", "127.0.0.1:3483");
+                entry.put("power", 1);
+                entry.put("connected", 1);
+                entry.put("isplaying", "play".equals(p.mode) ? 1 : 0);
+                loop.add(entry);
+            }
+            result.put("player count", loop.size());
+            result.put("players_loop", loop.toArray());
+            result.put("version", "8.5.0");
+        } else if (null == player) {
+            return result;
+        } else if ("status".equals(verb)) {
+            return status(player);
+        } else if ("play".equals(verb) || "stop".equals(verb)) {
+            player.mode = verb;
+        } else if ("pause".equals(verb)) {
+            player.mode = "pause".equals(player.mode) ? "play" : "pause";
+        } else if ("mixer".equals(verb) && command.length > 2 && "volume".equals(command[1])) {
+            String value = String.valueOf(command[2]);
+            int volume = value.startsWith("+") || value.startsWith("-") ? player.volume + Integer.parseInt(value.replace("+", "")) : Integer.parseInt(value);
+            player.volume = Math.max(0, Math.min(100, volume));
+        }
+        return result;
+    }
+
+    private Map<String, Object> status(Player player) {
+        int tracks = Math.max(0, playlistSize);
+        Object[] loop = new Object[tracks];
+        for (int i = 0; i < tracks; ++i) {
+            Map<String, Object> track = new HashMap<>();
+            track.put("id", 1000 + i);
+            track.put("title", "Track " + (i + 1));
+            track.put("artist", "Artist");
+            track.put("album", "Album");
+            track.put("duration", "245.5");
+            track.put("coverid", "c0ffee" + i);
+            track.put("url", "file:///music/track" + (i + 1) + ".flac");
+            track.put("playlist index", i);
+            loop[i] = track;
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("player_name", player.name);
+        status.put("player_connected", 1);
+        status.put("power", 1);
+        status.put("mode", player.mode);
+        status.put("time", ((System.currentTimeMillis() - player.started) % 245500) / 1000.0);
+        status.put("duration", 245.5);
+        status.put("mixer volume", player.volume);
+        status.put("playlist_cur_index", "0");
+        status.put("playlist_tracks", tracks);
+        status.put("playlist_loop", loop);
+        return status;
+    }
+
+    private Map<String, Object> handleJsonRpc(byte[] body) throws IOException {
+        List<? extends Map<String, Object>> parsed = parse(body);
+        Map<String, Object> response = new HashMap<>();
+        if (1 == parsed.size()) {
+            Map<String, Object> request = parsed.get(0);
+            response.put("id", request.get("id"));
+            response.put("method", request.get("method"));
+            response.put("params", request.get("params"));
+            Object params = request.get("params");
+            response.put("result", request(params instanceof Object[] ? (Object[]) params : null));
+        }
+        return response;
+    }
+
+    private static List<? extends Map<String, Object>> parse(byte[] body) throws IOException {
+        try {
+            return BayeuxJsonDecoder.decode(body, 0, body.length);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JSON", e);
+        }
+    }
+
+    /**
+     * Run standalone, e.g. for soak tests against a device: [players] [interval ms] [tracks]
+     */
+    public static void main(String[] args) throws Exception {
+        FakeLmsServer server = new FakeLmsServer("Fake LMS")
+                .addPlayers(args.length > 0 ? Integer.parseInt(args[0]) : 1)
+                .setStatusInterval(args.length > 1 ? Long.parseLong(args[1]) : 1000)
+                .setPlaylistSize(args.length > 2 ? Integer.parseInt(args[2]) : 1);
+        server.start(9000, DISCOVERY_PORT);
+        System.out.println("Listening on " + InetAddress.getLocalHost().getHostAddress() + ":" + server.getHttpPort() + " with players " + Arrays.toString(server.getPlayers().stream().map(p -> p.id).toArray()));
+        Thread.currentThread().join();
+    }
+}
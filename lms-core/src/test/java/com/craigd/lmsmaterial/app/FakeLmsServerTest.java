@@ -0,0 +1,141 @@
+package com.craigd.lmsmaterial.app;
+
+import com.craigd.lmsmaterial.app.cometd.BayeuxJsonDecoder;
+import com.craigd.lmsmaterial.app.cometd.BayeuxMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FakeLmsServerTest {
+    private FakeLmsServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = new FakeLmsServer("Test").addPlayers(2).setStatusInterval(50);
+        server.start(0, 0);
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void discoveryReplyHasNameAndPort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            byte[] request = { 'e', 'N', 'A', 'M', 'E', 0, 'J', 'S', 'O', 'N', 0 };
+            socket.setSoTimeout(2000);
+            socket.send(new DatagramPacket(request, request.length, InetAddress.getLoopbackAddress(), server.getDiscoveryPort()));
+            byte[] buffer = new byte[256];
+            DatagramPacket reply = new DatagramPacket(buffer, buffer.length);
+            socket.receive(reply);
+            String text = new String(buffer, 0, reply.getLength(), StandardCharsets.UTF_8);
+            assertEquals('E', buffer[0]);
+            assertTrue(text.contains("NAME\u0004Test"));
+            assertTrue(text.contains("JSON" + (char) Integer.toString(server.getHttpPort()).length() + server.getHttpPort()));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void jsonRpcServerStatusListsPlayers() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getHttpPort())) {
+            post(socket, "/jsonrpc.js", "{\"id\":1,\"method\":\"slim.request\",\"params\":[\"\",[\"serverstatus\",0,99]]}");
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Map<String, Object> response = parse(readBody(in)).get(0);
+            Map<String, Object> result = (Map<String, Object>) response.get("result");
+            assertEquals(2L, ((Number) result.get("player count")).longValue());
+        }
+    }
+
+    @Test
+    public void streamingConnectionReceivesPlayerStatus() throws IOException {
+        String player = server.getPlayers().get(0).id;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getHttpPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            post(socket, "/cometd", "[{\"channel\":\"/meta/handshake\",\"id\":\"1\",\"version\":\"1.0\"}]");
+            String clientId = parse(readBody(in)).get(0).getClientId();
+            assertNotNull(clientId);
+
+            post(socket, "/cometd", "[{\"channel\":\"/meta/connect\",\"id\":\"2\",\"clientId\":\"" + clientId + "\",\"connectionType\":\"streaming\"}]");
+            assertEquals("HTTP/1.1 200 OK", in.readLine());
+            skipHeaders(in);
+            assertTrue(readChunk(in).contains("/meta/connect"));
+
+            post(socket, "/cometd", "[{\"channel\":\"/slim/subscribe\",\"id\":\"3\",\"clientId\":\"" + clientId + "\",\"data\":{" +
+                    "\"request\":[\"" + player + "\",[\"status\",\"-\",1,\"subscribe:0\"]],\"response\":\"/" + clientId + "/slim/playerstatus/" + player + "\"}}]");
+            boolean status = false;
+            for (int i = 0; i < 10 && !status; ++i) {
+                status = readChunk(in).contains("/slim/playerstatus/" + player);
+            }
+            assertTrue(status);
+            assertTrue(server.getStatusPushes() > 0);
+        }
+    }
+
+    private static List<BayeuxMessage> parse(String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            return BayeuxJsonDecoder.decode(bytes, 0, bytes.length);
+        } catch (ParseException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void post(Socket socket, String path, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        OutputStream out = socket.getOutputStream();
+        out.write(("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/json\r\nContent-Length: " + bytes.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static int skipHeaders(BufferedReader in) throws IOException {
+        int length = -1;
+        String line;
+        while (null != (line = in.readLine()) && !line.isEmpty()) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return length;
+    }
+
+    private static String readBody(BufferedReader in) throws IOException {
+        assertEquals("HTTP/1.1 200 OK", in.readLine());
+        char[] body = new char[skipHeaders(in)];
+        int read = 0;
+        while (read < body.length) {
+            read += in.read(body, read, body.length - read);
+        }
+        return new String(body, 0, read);
+    }
+
+    private static String readChunk(BufferedReader in) throws IOException {
+        // Bodies are ASCII JSON, so the chunk size in bytes is also the size in chars
+        int size = Integer.parseInt(in.readLine().trim(), 16);
+        char[] chunk = new char[size];
+        int read = 0;
+        while (read < size) {
+            read += in.read(chunk, read, size - read);
+        }
+        in.readLine();
+        return new String(chunk);
+    }
+}
@@ -0,0 +1,35 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ArtworkUrlsTest {
+    private static final String SERVER = "http://lms:9000";
+
+    @Before
+    public void clearCache() {
+        ArtworkUrls.clearCache();
+    }
+
+    @Test
+    public void coverUrls() {
+        assertEquals(SERVER + "/music/5a7f01/cover_600x600_f", ArtworkUrls.coverUrl(SERVER, "5a7f01", null));
+        assertEquals(SERVER + "/material/html/images/noradio.png", ArtworkUrls.coverUrl(SERVER, "html/images/radio.png", "1"));
+        assertEquals(SERVER + "/plugins/Spotty/html/images/icon.png", ArtworkUrls.coverUrl(SERVER, "plugins/Spotty/html/images/icon.png", null));
+        assertEquals("http://192.168.1.20/art/cover.jpg", ArtworkUrls.coverUrl(SERVER, "http://192.168.1.20/art/cover.jpg", null));
+        assertTrue(ArtworkUrls.coverUrl(SERVER, "https://example.com/a.jpg", null).startsWith(SERVER + "/imageproxy/https%3A%2F%2Fexample.com%2Fa.jpg/image"));
+        assertEquals(SERVER + "/music/c0ffee/cover_600x600_f", ArtworkUrls.coverUrl(SERVER, "", "c0ffee"));
+        assertNull(ArtworkUrls.coverUrl(SERVER, null, null));
+    }
+
+    @Test
+    public void cachedPerServer() {
+        String url = ArtworkUrls.coverUrl(SERVER, "5a7f01", null);
+        assertSame(url, ArtworkUrls.coverUrl(SERVER, "5a7f01", null));
+        assertEquals("http://other:9000/music/5a7f01/cover_600x600_f", ArtworkUrls.coverUrl("http://other:9000", "5a7f01", null));
+        ArtworkUrls.clearCache();
+        assertNotSame(url, ArtworkUrls.coverUrl(SERVER, "5a7f01", null));
+    }
+}
@@ -0,0 +1,135 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BayeuxJsonDecoderTest {
+    private static List<BayeuxMessage> decode(String json) throws ParseException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return BayeuxJsonDecoder.decode(bytes, 0, bytes.length);
+    }
+
+    private static Object data(String json) throws ParseException {
+        List<BayeuxMessage> messages = decode("{\"channel\":\"/test\",\"data\":" + json + "}");
+        assertEquals(1, messages.size());
+        return messages.get(0).getData();
+    }
+
+    private static void invalid(String json) {
+        try {
+            decode(json);
+            fail("Decoded " + json);
+        } catch (ParseException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void messages() throws ParseException {
+        List<BayeuxMessage> messages = decode(" [ {\"channel\":\"/meta/connect\",\"successful\":true,\"id\":\"7\"},\r\n"
+                + "{\"channel\":\"/slim/playerstatus/00:04:20:aa:bb:cc\",\"data\":{}} ] ");
+        assertEquals(2, messages.size());
+        assertEquals(BayeuxMessage.META_CONNECT, messages.get(0).getChannel());
+        assertTrue(messages.get(0).isSuccessful());
+        assertEquals("7", messages.get(0).getId());
+        assertTrue(messages.get(1).getDataAsMap().isEmpty());
+
+        assertTrue(decode("[]").isEmpty());
+        assertEquals(1, decode("{\"channel\":\"/a\"}").size());
+    }
+
+    @Test
+    public void offsetAndLength() throws ParseException {
+        byte[] bytes = "xx[{\"channel\":\"/a\"}]yy".getBytes(StandardCharsets.US_ASCII);
+        List<BayeuxMessage> messages = BayeuxJsonDecoder.decode(bytes, 2, bytes.length - 4);
+        assertEquals("/a", messages.get(0).getChannel());
+    }
+
+    @Test
+    public void channelNamesShared() throws ParseException {
+        String json = "{\"channel\":\"/slim/serverstatus\"}";
+        assertSame(decode(json).get(0).getChannel(), decode(json).get(0).getChannel());
+    }
+
+    @Test
+    public void strings() throws ParseException {
+        assertEquals("", data("\"\""));
+        assertEquals("\"\\/\b\f\n\r\t", data("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\""));
+        assertEquals("a\u00e9b", data("\"a\\u00E9b\""));
+        // Surrogate pairs, escaped and raw
+        assertEquals("\ud83c\udfb5", data("\"\\ud83c\\udfb5\""));
+        assertEquals("\u00c9t\u00e9 \u2013 \u97f3\u697d \ud83c\udfb5", data("\"\u00c9t\u00e9 \u2013 \u97f3\u697d \ud83c\udfb5\""));
+        assertEquals("\u00e9\n\u00e9", data("\"\u00e9\\n\u00e9\""));
+        // Non-ASCII keys
+        assertEquals(1L, ((Map<?, ?>) data("{\"\u00e9\":1}")).get("\u00e9"));
+    }
+
+    @Test
+    public void numbers() throws ParseException {
+        assertEquals(0L, data("0"));
+        assertEquals(-42L, data("-42"));
+        assertEquals(123456789012345678L, data("123456789012345678"));
+        assertEquals(Long.MAX_VALUE, data("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, data("-9223372036854775808"));
+        assertEquals(1e19, data("10000000000000000000"));
+        assertEquals(12.5, data("12.5"));
+        assertEquals(-0.25, data("-0.25"));
+        assertEquals(1.5e3, data("1.5E+3"));
+        assertEquals(2e-2, data("2e-2"));
+    }
+
+    @Test
+    public void literalsAndNesting() throws ParseException {
+        Map<?, ?> data = (Map<?, ?>) data("{\"a\":true,\"b\":false,\"c\":null,\"d\":[1,\"x\",[],{\"e\":[null]}],\"f\":{}}");
+        assertEquals(Boolean.TRUE, data.get("a"));
+        assertEquals(Boolean.FALSE, data.get("b"));
+        assertTrue(data.containsKey("c"));
+        assertNull(data.get("c"));
+        Object[] d = (Object[]) data.get("d");
+        assertEquals(4, d.length);
+        assertEquals(1L, d[0]);
+        assertEquals("x", d[1]);
+        assertEquals(0, ((Object[]) d[2]).length);
+        assertArrayEquals(new Object[]{null}, (Object[]) ((Map<?, ?>) d[3]).get("e"));
+        assertTrue(((Map<?, ?>) data.get("f")).isEmpty());
+    }
+
+    @Test
+    public void encoderRoundTrip() throws ParseException {
+        BayeuxMessage message = new BayeuxMessage("/slim/request");
+        message.setId("12");
+        message.setData("tab\t quote\" \u00e9 \ud83c\udfb5");
+        List<BayeuxMessage> decoded = decode(BayeuxJsonEncoder.encode(Collections.singletonList(message)));
+        assertEquals(message, decoded.get(0));
+    }
+
+    @Test
+    public void invalidInput() {
+        invalid("");
+        invalid("[");
+        invalid("[{\"channel\":\"/a\"}");
+        invalid("[{\"channel\":\"/a\"},]");
+        invalid("[{\"channel\":\"/a\"}] x");
+        invalid("[1]");
+        invalid("{\"channel\":\"/a\"");
+        invalid("{\"channel\" \"/a\"}");
+        invalid("{channel:\"/a\"}");
+        invalid("{\"data\":\"unterminated}");
+        invalid("{\"data\":\"bad \\x escape\"}");
+        invalid("{\"data\":\"\\u12\"}");
+        invalid("{\"data\":\"\\u12zz\"}");
+        invalid("{\"data\":tru}");
+        invalid("{\"data\":nul}");
+        invalid("{\"data\":-}");
+        invalid("{\"data\":1.2.3e}");
+        invalid("{\"data\":[1 2]}");
+        invalid("{\"data\":'x'}");
+    }
+}
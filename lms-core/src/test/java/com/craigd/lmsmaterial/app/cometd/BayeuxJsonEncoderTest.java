@@ -0,0 +1,47 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BayeuxJsonEncoderTest {
+    @Test
+    public void values() {
+        assertEquals("{\"data\":[\"a\\\"b\",1,null]}", BayeuxJsonEncoder.encode(new HashMap<String, Object>() {{
+            put("data", new Object[]{"a\"b", 1, null});
+        }}));
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("b", true);
+        map.put("n", 2.5);
+        map.put("l", Arrays.asList(1L, Collections.emptyList(), new Object[0]));
+        map.put("m", Collections.emptyMap());
+        assertEquals("{\"b\":true,\"n\":2.5,\"l\":[1,[],[]],\"m\":{}}", BayeuxJsonEncoder.encode(map));
+        assertEquals("null", BayeuxJsonEncoder.encode(null));
+    }
+
+    @Test
+    public void escapes() {
+        assertEquals("\"\\\"\\\\/\\n\\r\\t\\b\\f\\u0001\\u001f\"", BayeuxJsonEncoder.encode("\"\\/\n\r\t\b\f\u0001\u001f"));
+        // Only what JSON requires is escaped
+        assertEquals("\"\u00e9 \ud83c\udfb5\"", BayeuxJsonEncoder.encode("\u00e9 \ud83c\udfb5"));
+    }
+
+    @Test
+    public void roundTrip() throws ParseException {
+        BayeuxMessage message = new BayeuxMessage("/slim/request");
+        message.setId("3");
+        message.setData(new Object[]{"00:04:20:aa:bb:cc", new Object[]{"status", "-", 1L, "tags:acdlKN"}});
+        byte[] json = BayeuxJsonEncoder.encode(Collections.singletonList(message)).getBytes(StandardCharsets.UTF_8);
+        BayeuxMessage decoded = BayeuxJsonDecoder.decode(json, 0, json.length).get(0);
+        assertEquals("3", decoded.getId());
+        assertArrayEquals((Object[]) message.getData(), (Object[]) decoded.getData());
+    }
+}
@@ -0,0 +1,177 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.FakeLmsServer;
+import com.craigd.lmsmaterial.app.platform.JvmPlatform;
+import com.craigd.lmsmaterial.app.platform.Preferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CometClientTest {
+    private static final long TIMEOUT = 5000;
+
+    private FakeLmsServer server;
+    private JvmPlatform platform;
+    private CometClient client;
+    private final BlockingQueue<PlayerStatus> statuses = new LinkedBlockingQueue<>();
+
+    @Before
+    public void start() throws IOException {
+        server = new FakeLmsServer("Test").addPlayers(2).setStatusInterval(50);
+        server.start(0, 0);
+        platform = new JvmPlatform(true).setServer("127.0.0.1", server.getHttpPort());
+        client = new CometClient(platform, new CometClient.Listener() {
+            @Override
+            public void updatePlayerStatus(PlayerStatus status, PlayerStatusChange change) {
+                statuses.add(status);
+            }
+
+            @Override
+            public void connectionAbandoned() {
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void connectsAndReceivesPlayerStatus() throws InterruptedException {
+        String player = server.getPlayers().get(0).id;
+        client.setPlayer(player);
+        client.connect();
+        PlayerStatus status = statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertNotNull(status);
+        assertEquals(player, status.id);
+        assertTrue(client.isConnected());
+        assertTrue(server.getStatusPushes() > 0);
+        assertTrue(client.getMetrics().getHandshakeLatency().getCount() > 0);
+    }
+
+    @Test
+    public void changingPlayerMovesSubscription() throws InterruptedException {
+        String first = server.getPlayers().get(0).id;
+        String second = server.getPlayers().get(1).id;
+        client.setPlayer(first);
+        client.connect();
+        assertNotNull(statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        client.setPlayer(second);
+        long end = System.currentTimeMillis() + TIMEOUT;
+        PlayerStatus status;
+        do {
+            status = statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        } while (null != status && !second.equals(status.id) && System.currentTimeMillis() < end);
+        assertNotNull(status);
+        assertEquals(second, status.id);
+    }
+
+    @Test
+    public void recentPlayersSwitchFromCache() throws InterruptedException {
+        platform.set(Preferences.SUBSCRIBED_PLAYERS_KEY, 2);
+        String first = server.getPlayers().get(0).id;
+        String second = server.getPlayers().get(1).id;
+        client.setPlayer(first);
+        client.connect();
+        assertEquals(first, pollFor(first).id);
+        client.setPlayer(second);
+        assertEquals(second, pollFor(second).id);
+        // Give the first player's subscription time to push a status into the cache
+        Thread.sleep(200);
+        long requests = server.getHttpRequests();
+        client.setPlayer(first);
+        assertEquals(first, pollFor(first).id);
+        assertEquals(requests, server.getHttpRequests());
+    }
+
+    @Test
+    public void registryFollowsServerStatus() throws InterruptedException {
+        assertFalse(client.getPlayers().isCurrent());
+        String first = server.getPlayers().get(0).id;
+        client.setPlayer(first);
+        client.connect();
+        PlayerRegistry players = client.getPlayers();
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!players.isCurrent() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(players.isCurrent());
+        assertEquals(2, players.getPlayers().size());
+        assertEquals("Player 1", players.get(first).name);
+        assertEquals(2, players.getActivePlayers().size());
+
+        assertTrue(client.sendCommand(first, new String[]{"pause"}));
+        end = System.currentTimeMillis() + TIMEOUT;
+        while (players.get(first).isPlaying && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertFalse(players.get(first).isPlaying);
+        assertEquals(1, players.getActivePlayers().size());
+
+        client.disconnect();
+        assertFalse(players.isCurrent());
+    }
+
+    private PlayerStatus pollFor(String player) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        PlayerStatus status;
+        do {
+            status = statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        } while (null != status && !player.equals(status.id) && System.currentTimeMillis() < end);
+        assertNotNull(status);
+        return status;
+    }
+
+    @Test
+    public void sendCommandRequiresConnection() throws InterruptedException {
+        String player = server.getPlayers().get(0).id;
+        assertFalse(client.sendCommand(player, new String[]{"pause"}));
+        client.setPlayer(player);
+        client.connect();
+        assertNotNull(statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        long requests = server.getHttpRequests();
+        assertTrue(client.sendCommand(player, new String[]{"pause"}));
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (server.getHttpRequests() == requests && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(server.getHttpRequests() > requests);
+        assertEquals(1, server.getClientCount());
+    }
+
+    @Test
+    public void commandsHaveTheirOwnConnection() throws InterruptedException {
+        String player = server.getPlayers().get(0).id;
+        client.setPlayer(player);
+        client.connect();
+        assertTrue(pollFor(player).isPlaying);
+        // Until the command connection has opened, commands go on the streaming connection
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (0 == server.getUnstreamedCommands() && System.currentTimeMillis() < end) {
+            assertTrue(client.sendCommand(player, new String[]{"play"}));
+            Thread.sleep(50);
+        }
+        assertTrue(server.getUnstreamedCommands() > 0);
+        pollFor(player);
+
+        long commands = server.getUnstreamedCommands();
+        assertTrue(client.sendCommand(player, new String[]{"pause"}));
+        end = System.currentTimeMillis() + TIMEOUT;
+        PlayerStatus status;
+        do {
+            status = pollFor(player);
+        } while (status.isPlaying && System.currentTimeMillis() < end);
+        assertFalse(status.isPlaying);
+        assertEquals(commands + 1, server.getUnstreamedCommands());
+    }
+}
@@ -0,0 +1,165 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.*;
+
+public class ContentDecoderTest {
+    private static final String TEXT;
+
+    static {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 100 * 1024; ++i) {
+            text.append("[{\"channel\":\"/slim/playerstatus/").append(i).append("\",\"data\":{\"mode\":\"play\"}}]\n");
+        }
+        TEXT = text.toString();
+    }
+
+    private final ContentDecoder decoder = new ContentDecoder();
+    private final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    private final ContentDecoder.Sink sink = data -> decoded.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] zlib(String text, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+
+    /**
+     * Decode the body as it would arrive in reads of at most split bytes.
+     */
+    private String decode(String encoding, byte[] body, int split) throws IOException {
+        decoded.reset();
+        decoder.begin(encoding);
+        assertTrue(decoder.isActive());
+        for (int pos = 0; pos < body.length; pos += split) {
+            decoder.decode(ByteBuffer.wrap(body, pos, Math.min(split, body.length - pos)), sink);
+        }
+        decoder.end();
+        assertFalse(decoder.isActive());
+        return new String(decoded.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void supported() {
+        assertTrue(ContentDecoder.isSupported("gzip"));
+        assertTrue(ContentDecoder.isSupported("deflate"));
+        assertFalse(ContentDecoder.isSupported("br"));
+        assertFalse(ContentDecoder.isSupported(null));
+    }
+
+    @Test
+    public void gzipAnySplit() throws IOException {
+        byte[] body = gzip(TEXT);
+        for (int split : new int[]{body.length, 20000, 1000, 7, 1}) {
+            assertEquals("split " + split, TEXT, decode(ContentDecoder.GZIP, body, split));
+        }
+    }
+
+    @Test
+    public void gzipOptionalHeaderFields() throws IOException {
+        byte[] member = gzip(TEXT);
+        byte[] extra = {1, 2, 3};
+        byte[] name = "capture.json\0".getBytes(StandardCharsets.US_ASCII);
+        byte[] comment = "comment\0".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(member, 0, 3);
+        // FHCRC | FEXTRA | FNAME | FCOMMENT
+        body.write(0x1e);
+        body.write(member, 4, 6);
+        body.write(extra.length);
+        body.write(0);
+        body.write(extra);
+        body.write(name);
+        body.write(comment);
+        // The header CRC is skipped, not checked
+        body.write(0);
+        body.write(0);
+        body.write(member, 10, member.length - 10);
+        for (int split : new int[]{1, 5, 1000}) {
+            assertEquals("split " + split, TEXT, decode(ContentDecoder.GZIP, body.toByteArray(), split));
+        }
+    }
+
+    @Test
+    public void concatenatedGzipMembers() throws IOException {
+        byte[] body = concat(gzip("first,"), concat(gzip(TEXT), gzip(",last")));
+        for (int split : new int[]{body.length, 1000, 3, 1}) {
+            assertEquals("split " + split, "first," + TEXT + ",last", decode(ContentDecoder.GZIP, body, split));
+        }
+    }
+
+    @Test
+    public void zlibDeflate() throws IOException {
+        byte[] body = zlib(TEXT, false);
+        for (int split : new int[]{body.length, 1000, 1}) {
+            assertEquals("split " + split, TEXT, decode(ContentDecoder.DEFLATE, body, split));
+        }
+    }
+
+    @Test
+    public void rawDeflate() throws IOException {
+        byte[] body = zlib(TEXT, true);
+        for (int split : new int[]{body.length, 1000, 1}) {
+            assertEquals("split " + split, TEXT, decode(ContentDecoder.DEFLATE, body, split));
+        }
+    }
+
+    @Test
+    public void afterEndOfDeflateIgnored() throws IOException {
+        byte[] body = concat(zlib(TEXT, false), "junk".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(TEXT, decode(ContentDecoder.DEFLATE, body, 1000));
+    }
+
+    @Test
+    public void truncatedThenReused() throws IOException {
+        byte[] body = gzip(TEXT);
+        String partial = decode(ContentDecoder.GZIP, Arrays.copyOf(body, body.length / 2), 1000);
+        assertTrue(partial.length() < TEXT.length());
+        assertTrue(TEXT.startsWith(partial));
+
+        // The connection's decoder is reset for the next response
+        assertEquals(TEXT, decode(ContentDecoder.GZIP, body, 1000));
+        assertEquals(TEXT, decode(ContentDecoder.DEFLATE, zlib(TEXT, false), 1000));
+    }
+
+    @Test(expected = ZipException.class)
+    public void notGzip() throws IOException {
+        decode(ContentDecoder.GZIP, zlib(TEXT, false), 1000);
+    }
+
+    @Test(expected = ZipException.class)
+    public void corrupt() throws IOException {
+        byte[] body = gzip(TEXT);
+        for (int i = 10; i < body.length - 8; i += 10) {
+            body[i] ^= 0x55;
+        }
+        decode(ContentDecoder.GZIP, body, 1000);
+    }
+}
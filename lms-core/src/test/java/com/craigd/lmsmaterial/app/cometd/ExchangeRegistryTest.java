@@ -0,0 +1,110 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ExchangeRegistryTest {
+    private final ExchangeRegistry<String> registry = new ExchangeRegistry<>();
+
+    @Test
+    public void oldestPerChannel() {
+        assertTrue(registry.add("1", "/a", "a1"));
+        assertTrue(registry.add("2", "/b", "b2"));
+        assertTrue(registry.add("3", "/a", "a3"));
+        assertTrue(registry.add("4", "/a", "a4"));
+        assertEquals("a1", registry.oldest("/a"));
+        assertEquals("b2", registry.oldest("/b"));
+        assertNull(registry.oldest("/c"));
+        assertNull(registry.oldest(null));
+
+        assertEquals("a1", registry.remove("1"));
+        assertEquals("a3", registry.oldest("/a"));
+        assertEquals("b2", registry.remove("2"));
+        assertNull(registry.oldest("/b"));
+    }
+
+    @Test
+    public void removeFromMiddleAndEnd() {
+        registry.add("1", "/a", "a1");
+        registry.add("2", "/a", "a2");
+        registry.add("3", "/a", "a3");
+        assertEquals("a2", registry.remove("2"));
+        assertEquals("a3", registry.remove("3"));
+        assertEquals("a1", registry.oldest("/a"));
+        registry.add("4", "/a", "a4");
+        assertEquals("a1", registry.remove("1"));
+        assertEquals("a4", registry.oldest("/a"));
+        assertEquals("a4", registry.remove("4"));
+        assertNull(registry.oldest("/a"));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void duplicateId() {
+        assertTrue(registry.add("1", "/a", "first"));
+        assertFalse(registry.add("1", "/b", "second"));
+        assertNull(registry.oldest("/b"));
+        assertEquals("first", registry.remove("1"));
+        assertNull(registry.remove("1"));
+        assertNull(registry.remove(null));
+    }
+
+    @Test
+    public void nullChannel() {
+        registry.add("1", null, "x");
+        assertEquals(Arrays.asList("x"), registry.values());
+        assertEquals("x", registry.remove("1"));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void concurrentChannels() throws InterruptedException {
+        int threads = 4;
+        int count = 5000;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            String channel = "/channel" + t % 2;
+            String prefix = t + ":";
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; ++i) {
+                        assertTrue(registry.add(prefix + i, channel, prefix + i));
+                        if (i % 3 != 0) {
+                            assertEquals(prefix + i, registry.remove(prefix + i));
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(failures.toString(), failures.isEmpty());
+
+        List<String> values = registry.values();
+        assertEquals(threads * ((count + 2) / 3), values.size());
+        // Draining each channel oldest first removes exactly what is left
+        HashSet<String> drained = new HashSet<>();
+        for (String channel : new String[]{"/channel0", "/channel1"}) {
+            for (String oldest = registry.oldest(channel); null != oldest; oldest = registry.oldest(channel)) {
+                assertEquals(oldest, registry.remove(oldest));
+                assertTrue(drained.add(oldest));
+            }
+        }
+        assertEquals(new HashSet<>(values), drained);
+        assertTrue(registry.isEmpty());
+    }
+}
@@ -0,0 +1,170 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HttpResponseParserTest {
+    // Multi-byte characters, so that the length in bytes differs from that in chars
+    private static final String BODY = "[{\"title\":\"\u00c9t\u00e9 \u2013 \u97f3\u697d\"}]";
+
+    private final List<Integer> statuses = new ArrayList<>();
+    private final List<String> headers = new ArrayList<>();
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final List<Boolean> completed = new ArrayList<>();
+    private final HttpResponseParser parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+        @Override
+        public void onStatus(int status) {
+            statuses.add(status);
+        }
+
+        @Override
+        public void onHeader(String name, String value) {
+            headers.add(name + "=" + value);
+        }
+
+        @Override
+        public void onContent(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                content.write(data.get());
+            }
+        }
+
+        @Override
+        public void onComplete(boolean keepAlive) {
+            completed.add(keepAlive);
+        }
+    });
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void reset() {
+        statuses.clear();
+        headers.clear();
+        content.reset();
+        completed.clear();
+        parser.reset();
+    }
+
+    private void parseSplit(byte[] response, int split) throws IOException {
+        parser.parse(ByteBuffer.wrap(response, 0, split));
+        parser.parse(ByteBuffer.wrap(response, split, response.length - split));
+    }
+
+    @Test
+    public void contentLengthIsInBytes() throws IOException {
+        byte[] body = bytes(BODY);
+        assertTrue(body.length > BODY.length());
+        byte[] response = bytes("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n" + BODY);
+        for (int split = 0; split <= response.length; ++split) {
+            reset();
+            parseSplit(response, split);
+            assertEquals("split at " + split, BODY, new String(content.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(1, completed.size());
+            assertTrue(completed.get(0));
+            assertFalse(parser.inResponse());
+        }
+    }
+
+    @Test
+    public void chunksSplitAcrossReads() throws IOException {
+        byte[] first = bytes(BODY);
+        byte[] second = bytes("[{\"id\":\"2\"}]");
+        byte[] response = bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                Integer.toHexString(first.length) + "\r\n" + BODY + "\r\n" +
+                Integer.toHexString(second.length) + ";ext=1\r\n[{\"id\":\"2\"}]\r\n" +
+                "0\r\nX-Trailer: t\r\n\r\n");
+        for (int split = 0; split <= response.length; ++split) {
+            reset();
+            parseSplit(response, split);
+            assertEquals("split at " + split, BODY + "[{\"id\":\"2\"}]", new String(content.toByteArray(), StandardCharsets.UTF_8));
+            assertTrue(parser.isChunked());
+            assertTrue(headers.contains("x-trailer=t"));
+            assertEquals(1, completed.size());
+        }
+    }
+
+    @Test
+    public void oneByteAtATime() throws IOException {
+        byte[] response = bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\n[1,2]\r\n0\r\n\r\n");
+        for (byte b : response) {
+            parser.parse(ByteBuffer.wrap(new byte[]{b}));
+        }
+        assertEquals("[1,2]", content.toString("UTF-8"));
+        assertEquals(1, completed.size());
+    }
+
+    @Test
+    public void keepAliveResponses() throws IOException {
+        byte[] response = bytes("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n[]" +
+                "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n" +
+                "HTTP/1.1 200 OK\r\nCONTENT-LENGTH: 4\r\nConnection: close\r\n\r\n[{}]");
+        parser.parse(ByteBuffer.wrap(response));
+        assertEquals(3, statuses.size());
+        assertEquals(404, (int) statuses.get(1));
+        assertEquals("[][{}]", content.toString("UTF-8"));
+        assertTrue(completed.get(0));
+        assertTrue(completed.get(1));
+        assertFalse(completed.get(2));
+    }
+
+    @Test
+    public void http10() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.0 200 OK\r\nContent-Length: 2\r\n\r\n[]")));
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.0 200 OK\r\nConnection: Keep-Alive\r\nContent-Length: 2\r\n\r\n[]")));
+        assertFalse(completed.get(0));
+        assertTrue(completed.get(1));
+    }
+
+    @Test
+    public void interimAndNoContent() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 204 No Content\r\n\r\n")));
+        assertEquals(2, statuses.size());
+        assertEquals(1, completed.size());
+        assertEquals(0, content.size());
+    }
+
+    @Test
+    public void contentToEof() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.1 200 OK\r\n\r\n[1]")));
+        parser.parse(ByteBuffer.wrap(bytes("[2]")));
+        assertTrue(completed.isEmpty());
+        parser.finish();
+        assertEquals("[1][2]", content.toString("UTF-8"));
+        assertEquals(1, completed.size());
+        assertFalse(completed.get(0));
+    }
+
+    @Test(expected = EOFException.class)
+    public void closedMidResponse() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n[1]")));
+        parser.finish();
+    }
+
+    @Test
+    public void closedBetweenResponses() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n[]")));
+        parser.finish();
+        assertEquals(1, completed.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidStatusLine() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTP/1.1 200 OK\r\n")));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidChunkSize() throws IOException {
+        parser.parse(ByteBuffer.wrap(bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n")));
+    }
+}
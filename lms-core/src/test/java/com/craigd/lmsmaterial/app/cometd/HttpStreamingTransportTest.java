@@ -0,0 +1,194 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HttpStreamingTransportTest {
+    private final List<byte[]> writes = Collections.synchronizedList(new ArrayList<>());
+    private final List<BayeuxMessage> received = new ArrayList<>();
+    private final List<BayeuxMessage> failed = new ArrayList<>();
+    private HttpStreamingTransport transport;
+    private DelegateConnection.Listener connection;
+
+    @After
+    public void stop() {
+        if (null != transport) {
+            transport.terminate();
+        }
+    }
+
+    private HttpStreamingTransport transport(Map<String, Object> options) {
+        options.put(HttpStreamingTransport.COMMAND_CONNECTION_OPTION, false);
+        transport = new HttpStreamingTransport("http://lms.local:9000/cometd", options) {
+            @Override
+            DelegateConnection newDelegateConnection(String host, boolean secure) {
+                return new DelegateConnection() {
+                    private boolean open;
+
+                    @Override
+                    public void connect(InetSocketAddress address, int timeout, Listener listener) {
+                        open = true;
+                        connection = listener;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return open;
+                    }
+
+                    @Override
+                    public void write(Runnable onWritten, ByteBuffer... buffers) {
+                        ByteArrayOutputStream request = new ByteArrayOutputStream();
+                        for (ByteBuffer buffer : buffers) {
+                            while (buffer.hasRemaining()) {
+                                request.write(buffer.get());
+                            }
+                        }
+                        writes.add(request.toByteArray());
+                        if (null != onWritten) {
+                            onWritten.run();
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        open = false;
+                    }
+                };
+            }
+        };
+        transport.setListener(new HttpStreamingTransport.Listener() {
+            @Override
+            public void onSending(List<BayeuxMessage> messages) {
+            }
+
+            @Override
+            public void onMessages(List<BayeuxMessage> messages) {
+                received.addAll(messages);
+            }
+
+            @Override
+            public void onFailure(Throwable failure, List<BayeuxMessage> messages) {
+                failed.addAll(messages);
+            }
+        });
+        return transport;
+    }
+
+    private static BayeuxMessage message(String id, Object data) {
+        return message("/slim/subscribe", id, data);
+    }
+
+    private static BayeuxMessage message(String channel, String id, Object data) {
+        BayeuxMessage message = new BayeuxMessage(channel);
+        message.setId(id);
+        message.setData(data);
+        return message;
+    }
+
+    /**
+     * Check that the single request written has json as its body, with a matching Content-Length.
+     * @return The request's headers.
+     */
+    private String request(String json) {
+        assertEquals(1, writes.size());
+        String request = new String(writes.get(0), StandardCharsets.UTF_8);
+        int end = request.indexOf("\r\n\r\n");
+        assertTrue(end > 0);
+        String headers = request.substring(0, end + 2);
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        assertTrue(headers, headers.contains("\r\nContent-Length: " + body.length + "\r\n"));
+        assertEquals(json, request.substring(end + 4));
+        assertEquals(writes.get(0).length, end + 4 + body.length);
+        return headers;
+    }
+
+    @Test
+    public void contentLengthIsEncodedBytes() {
+        List<BayeuxMessage> messages = Collections.singletonList(message("1", "\u00c9t\u00e9 \u2013 \u97f3\u697d \ud83c\udfb5"));
+        String json = BayeuxJsonEncoder.encode(messages);
+        transport(new HashMap<>()).send(messages);
+        assertTrue(json.getBytes(StandardCharsets.UTF_8).length > json.length());
+        String headers = request(json);
+        assertTrue(headers.startsWith("POST /cometd HTTP/1.1\r\nHost: lms.local:9000\r\n"));
+        assertFalse(headers.contains("Accept-Encoding"));
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void largerThanPooledBuffer() {
+        StringBuilder data = new StringBuilder();
+        while (data.length() < 64 * 1024) {
+            data.append("\u00e9abc");
+        }
+        List<BayeuxMessage> messages = Collections.singletonList(message("1", data.toString()));
+        transport(new HashMap<>()).send(messages);
+        request(BayeuxJsonEncoder.encode(messages));
+    }
+
+    @Test
+    public void headersPerOptions() {
+        Map<String, Object> options = new HashMap<>();
+        options.put(HttpStreamingTransport.COMPRESSION_OPTION, true);
+        options.put(HttpStreamingTransport.AUTHORIZATION_OPTION, "Basic dTpw");
+        List<BayeuxMessage> messages = Collections.singletonList(message("1", null));
+        transport(options).send(messages);
+        String headers = request(BayeuxJsonEncoder.encode(messages));
+        assertTrue(headers.contains("\r\nAuthorization: Basic dTpw\r\n"));
+        assertTrue(headers.contains("\r\nAccept-Encoding: gzip, deflate\r\n"));
+    }
+
+    @Test
+    public void consecutiveRequests() {
+        transport(new HashMap<>()).send(Collections.singletonList(message("1", "\u00e9")));
+        transport.send(Collections.singletonList(message("2", "a")));
+        assertEquals(2, writes.size());
+        // Pooled buffers are reused, so the second must not carry anything of the first
+        writes.remove(0);
+        request(BayeuxJsonEncoder.encode(Collections.singletonList(message("2", "a"))));
+    }
+
+    @Test
+    public void publishesWithinBatchWindowShareARequest() throws Exception {
+        Map<String, Object> options = new HashMap<>();
+        options.put(HttpStreamingTransport.BATCH_WINDOW_OPTION, TimingWheel.DEFAULT_TICK);
+        transport(options);
+        BayeuxMessage unsubscribe = message("/slim/unsubscribe", "1", Collections.singletonMap("unsubscribe", "/c/slim/playerstatus/a"));
+        BayeuxMessage subscribe = message("/slim/subscribe", "2", Collections.singletonMap("response", "/c/slim/playerstatus/b"));
+        transport.send(Collections.singletonList(unsubscribe));
+        transport.send(Collections.singletonList(subscribe));
+        long end = System.currentTimeMillis() + 5000;
+        while (writes.isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        // Give a second request the chance to be written, were the publishes not batched
+        Thread.sleep(5 * TimingWheel.DEFAULT_TICK);
+        request(BayeuxJsonEncoder.encode(Arrays.asList(unsubscribe, subscribe)));
+
+        // LMS sends publish replies without IDs, and echoes the data of an unsubscribe
+        String replies = "[{\"channel\":\"/slim/unsubscribe\",\"successful\":true,\"data\":{\"unsubscribe\":\"/c/slim/playerstatus/a\"}}," +
+                "{\"channel\":\"/slim/subscribe\",\"successful\":true}]";
+        connection.onData(ByteBuffer.wrap(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + replies.length() +
+                "\r\n\r\n" + replies).getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(2, received.size());
+        assertEquals("/slim/unsubscribe", received.get(0).getChannel());
+        assertEquals("1", received.get(0).getId());
+        assertEquals("/slim/subscribe", received.get(1).getChannel());
+        assertEquals("2", received.get(1).getId());
+        assertTrue(received.get(0).isPublishReply());
+        assertTrue(failed.isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonFramerTest {
+    // Brackets and escaped quotes within strings, nesting, and a multi-byte character
+    private static final String FIRST = "[{\"channel\":\"/a]}\\\"[{\",\"data\":{\"title\":\"Caf\u00e9 \\\\\",\"list\":[1,[2],{}]}}]";
+    private static final String SECOND = "[{\"channel\":\"/b\"}]";
+
+    private final List<String> values = new ArrayList<>();
+    private final JsonFramer framer = new JsonFramer((json, length) -> values.add(new String(json, 0, length, StandardCharsets.UTF_8)));
+
+    @Test
+    public void splitAtEveryByte() {
+        byte[] stream = (FIRST + "\r\n" + SECOND + "\r\n").getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= stream.length; ++split) {
+            values.clear();
+            framer.reset();
+            framer.append(ByteBuffer.wrap(stream, 0, split));
+            framer.append(ByteBuffer.wrap(stream, split, stream.length - split));
+            assertEquals("split at " + split, Arrays.asList(FIRST, SECOND), values);
+            assertTrue(framer.isEmpty());
+        }
+    }
+
+    @Test
+    public void oneByteAtATime() {
+        byte[] stream = (FIRST + SECOND).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < stream.length; ++i) {
+            framer.append(ByteBuffer.wrap(stream, i, 1));
+            if (i < stream.length - 1) {
+                assertTrue(values.size() < 2);
+            }
+        }
+        assertEquals(Arrays.asList(FIRST, SECOND), values);
+    }
+
+    @Test
+    public void emittedAsSoonAsComplete() {
+        framer.append(ByteBuffer.wrap((FIRST + "[{").getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList(FIRST), values);
+        assertFalse(framer.isEmpty());
+    }
+
+    @Test
+    public void resetDiscardsPartialValue() {
+        framer.append(ByteBuffer.wrap("[{\"a\":\"]".getBytes(StandardCharsets.UTF_8)));
+        framer.reset();
+        assertTrue(framer.isEmpty());
+        framer.append(ByteBuffer.wrap(SECOND.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList(SECOND), values);
+    }
+
+    @Test
+    public void largerThanBuffer() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 2000; ++i) {
+            json.append(i > 0 ? "," : "").append("{\"i\":").append(i).append('}');
+        }
+        json.append(']');
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        for (int pos = 0; pos < bytes.length; pos += 1460) {
+            framer.append(ByteBuffer.wrap(bytes, pos, Math.min(1460, bytes.length - pos)));
+        }
+        assertEquals(Arrays.asList(json.toString()), values);
+    }
+
+    @Test
+    public void appendConsumesBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(("  " + SECOND).getBytes(StandardCharsets.UTF_8));
+        framer.append(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(Arrays.asList(SECOND), values);
+    }
+}
@@ -0,0 +1,100 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LivenessWatchdogTest {
+    private static final long PROBE_WINDOW = 50;
+
+    private final TimingWheel wheel = new TimingWheel("LivenessWatchdogTest", 5, 64);
+    private final AtomicInteger probes = new AtomicInteger();
+    private final CountDownLatch dead = new CountDownLatch(1);
+    private volatile boolean canProbe = true;
+    private final LivenessWatchdog watchdog = new LivenessWatchdog(wheel, new LivenessWatchdog.Callback() {
+        @Override
+        public boolean probe() {
+            probes.incrementAndGet();
+            return canProbe;
+        }
+
+        @Override
+        public long probeWindow() {
+            return PROBE_WINDOW;
+        }
+
+        @Override
+        public void dead() {
+            dead.countDown();
+        }
+    });
+
+    @After
+    public void stop() {
+        watchdog.stop();
+        wheel.stop();
+    }
+
+    @Test
+    public void unansweredProbeIsDead() throws InterruptedException {
+        watchdog.start();
+        watchdog.check();
+        // Already probing, so no second probe
+        watchdog.check();
+        assertEquals(1, probes.get());
+        assertTrue(dead.await(PROBE_WINDOW * 20, TimeUnit.MILLISECONDS));
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    public void answeredProbe() throws InterruptedException {
+        watchdog.start();
+        watchdog.check();
+        watchdog.onReceived(false);
+        assertFalse(dead.await(PROBE_WINDOW * 4, TimeUnit.MILLISECONDS));
+
+        // Probing again once answered
+        watchdog.check();
+        assertEquals(2, probes.get());
+        assertTrue(dead.await(PROBE_WINDOW * 20, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void pushAnswersProbe() throws InterruptedException {
+        watchdog.start();
+        watchdog.check();
+        watchdog.onReceived(true);
+        assertFalse(dead.await(PROBE_WINDOW * 4, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void probeNotSent() throws InterruptedException {
+        canProbe = false;
+        watchdog.start();
+        watchdog.check();
+        assertFalse(dead.await(PROBE_WINDOW * 4, TimeUnit.MILLISECONDS));
+
+        // Not left waiting for a reply to the probe that was not sent
+        canProbe = true;
+        watchdog.check();
+        assertEquals(2, probes.get());
+    }
+
+    @Test
+    public void stopped() throws InterruptedException {
+        watchdog.check();
+        assertEquals(0, probes.get());
+
+        watchdog.start();
+        watchdog.check();
+        watchdog.stop();
+        assertFalse(dead.await(PROBE_WINDOW * 4, TimeUnit.MILLISECONDS));
+        watchdog.check();
+        assertEquals(1, probes.get());
+    }
+}
@@ -0,0 +1,44 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayerStatusChangeTest {
+    private static PlayerStatus status(String mode, String title, String coverid, int duration, int time, long timestamp) {
+        PlayerStatus status = PlayerStatus.create("p", mode, null, "Artist", "Album", title, null, coverid, duration, time, "http://lms");
+        status.timestamp = timestamp;
+        return status;
+    }
+
+    private final PlayerStatus first = status("play", "Title", "1", 200000, 10000, 1000);
+    private final PlayerStatus later = status("play", "Title", "1", 200000, 15000, 6000);
+    private final PlayerStatus seeked = status("play", "Title", "1", 200000, 90000, 6000);
+
+    @Test
+    public void statusChanges() {
+        assertEquals(PlayerStatusChange.ALL, PlayerStatusChange.between(null, first).getFlags());
+        assertTrue(PlayerStatusChange.between(first, later).isEmpty());
+        assertEquals(PlayerStatusChange.POSITION_JUMP, PlayerStatusChange.between(first, seeked).getFlags());
+
+        PlayerStatus paused = status("pause", "Title", "1", 200000, 10000, 6000);
+        assertEquals(PlayerStatusChange.PLAY_STATE, PlayerStatusChange.between(first, paused).getFlags());
+
+        PlayerStatusChange change = PlayerStatusChange.between(first, status("play", "Next", "2", 180000, 0, 6000));
+        assertTrue(change.has(PlayerStatusChange.TRACK));
+        assertTrue(change.has(PlayerStatusChange.COVER));
+        assertFalse(change.has(PlayerStatusChange.PLAY_STATE | PlayerStatusChange.POSITION_JUMP));
+    }
+
+    @Test
+    public void differCounts() {
+        PlayerStatusDiffer differ = new PlayerStatusDiffer();
+        differ.diff(first);
+        differ.diff(later);
+        differ.diff(seeked);
+        assertEquals(3, differ.getStatuses());
+        assertEquals(1, differ.getUnchanged());
+        assertEquals(1, differ.getChanges(PlayerStatusChange.PLAYER));
+        assertEquals(2, differ.getChanges(PlayerStatusChange.POSITION_JUMP));
+    }
+}
@@ -0,0 +1,38 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PositionModelTest {
+    private final PositionModel model = new PositionModel();
+
+    private static PlayerStatus status(String mode, int time, long timestamp) {
+        PlayerStatus status = PlayerStatus.create("p", mode, null, "Artist", "Album", "Title", null, "1", 200000, time, "http://lms");
+        status.timestamp = timestamp;
+        return status;
+    }
+
+    @Test
+    public void positionExtrapolation() {
+        PlayerStatus first = status("play", 10000, 1000);
+        model.update(first, PlayerStatusChange.between(null, first), 50);
+        assertEquals(10050, model.getPosition(1000));
+        assertEquals(15050, model.getPosition(6000));
+        assertEquals(200000, model.getPosition(1000000));
+
+        // A push that arrived late is smoothed rather than followed
+        PlayerStatus late = status("play", 14000, 5400);
+        model.update(late, PlayerStatusChange.between(first, late), 50);
+        assertEquals(8950, model.getOffset());
+
+        PlayerStatus paused = status("pause", 20000, 12000);
+        model.update(paused, PlayerStatusChange.between(late, paused), 50);
+        assertEquals(20000, model.getPosition(50000));
+
+        PlayerStatus seeked = status("play", 90000, 13000);
+        model.update(seeked, PlayerStatusChange.between(paused, seeked), 0);
+        assertEquals(91000, model.getPosition(14000));
+        assertEquals("p", model.getPlayerId());
+    }
+}
@@ -0,0 +1,60 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RttEstimatorTest {
+    private final RttEstimator unbounded = new RttEstimator(0, Long.MAX_VALUE / 4);
+
+    @Test
+    public void fallbackUntilSampled() {
+        assertEquals(10000, unbounded.timeout(10000));
+        unbounded.backoff();
+        unbounded.sample(-1);
+        assertEquals(10000, unbounded.timeout(10000));
+    }
+
+    @Test
+    public void rfc6298() {
+        // First sample: SRTT = R, RTTVAR = R / 2
+        unbounded.sample(100);
+        assertEquals(100 + 4 * 50, unbounded.timeout(0));
+        // RTTVAR = 3/4 * 50 + 1/4 * |100 - 200| = 62.5, SRTT = 7/8 * 100 + 1/8 * 200 = 112.5
+        unbounded.sample(200);
+        assertEquals(363, unbounded.timeout(0));
+    }
+
+    @Test
+    public void steadyLinkConverges() {
+        for (int i = 0; i < 200; ++i) {
+            unbounded.sample(40);
+        }
+        // Variance decays to nothing, leaving the clock granularity
+        assertEquals(50, unbounded.timeout(0));
+    }
+
+    @Test
+    public void backoffDoublesUntilNextSample() {
+        RttEstimator estimator = new RttEstimator(1000, 60000);
+        estimator.sample(20);
+        assertEquals(1000, estimator.timeout(0));
+        estimator.backoff();
+        assertEquals(2000, estimator.timeout(0));
+        for (int i = 0; i < 10; ++i) {
+            estimator.backoff();
+        }
+        assertEquals(60000, estimator.timeout(0));
+        estimator.sample(20);
+        assertEquals(1000, estimator.timeout(0));
+    }
+
+    @Test
+    public void slowLinkAboveMinimum() {
+        RttEstimator estimator = new RttEstimator(1000, 60000);
+        estimator.sample(800);
+        assertEquals(800 + 4 * 400, estimator.timeout(0));
+        estimator.sample(100000);
+        assertEquals(60000, estimator.timeout(0));
+    }
+}
@@ -0,0 +1,198 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SelectorEngineTest {
+    private static final long TIMEOUT = 5000;
+
+    private ServerSocket server;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final BlockingQueue<IOException> closed = new LinkedBlockingQueue<>();
+    private final DelegateConnection.Listener listener = new DelegateConnection.Listener() {
+        @Override
+        public void onData(ByteBuffer data) {
+            synchronized (received) {
+                while (data.hasRemaining()) {
+                    received.write(data.get());
+                }
+                received.notifyAll();
+            }
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+            closed.add(cause);
+        }
+    };
+
+    @Before
+    public void start() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        server.setSoTimeout((int) TIMEOUT);
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        for (int pos = 0; pos < length; ) {
+            int count = in.read(data, pos, length - pos);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            pos += count;
+        }
+        return data;
+    }
+
+    private String awaitReceived(int length) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        synchronized (received) {
+            while (received.size() < length && System.currentTimeMillis() < end) {
+                received.wait(100);
+            }
+            return new String(received.toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Test
+    public void writesQueuedWhilstConnecting() throws Exception {
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        CountDownLatch written = new CountDownLatch(2);
+        connection.connect(address(), (int) TIMEOUT, listener);
+        // connect() returns before the connection is established, so these are queued
+        connection.write(written::countDown, bytes("GET "), bytes("/ "));
+        connection.write(written::countDown, bytes("HTTP/1.1\r\n"));
+        try (Socket socket = server.accept()) {
+            assertEquals("GET / HTTP/1.1\r\n", new String(readFully(socket.getInputStream(), 16), StandardCharsets.US_ASCII));
+            assertTrue(written.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            socket.getOutputStream().write("HTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 200 OK\r\n", awaitReceived(17));
+            assertTrue(connection.isOpen());
+        }
+        IOException cause = closed.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertTrue(cause instanceof EOFException);
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    public void writeLargerThanSocketBuffers() throws Exception {
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        connection.connect(address(), (int) TIMEOUT, listener);
+        // More than the socket buffers hold, so the write completes over several selects
+        byte[] data = new byte[16 * 1024 * 1024];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        try (Socket socket = server.accept()) {
+            connection.write(written::countDown, ByteBuffer.wrap(data, 0, 1000), ByteBuffer.wrap(data, 1000, data.length - 1000));
+            assertArrayEquals(data, readFully(socket.getInputStream(), data.length));
+            assertTrue(written.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        connection.close();
+    }
+
+    @Test
+    public void closeIsNotReported() throws Exception {
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        connection.connect(address(), (int) TIMEOUT, listener);
+        try (Socket socket = server.accept()) {
+            connection.close();
+            assertFalse(connection.isOpen());
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        assertNull(closed.poll(200, TimeUnit.MILLISECONDS));
+
+        CountDownLatch released = new CountDownLatch(1);
+        try {
+            connection.write(released::countDown, bytes("x"));
+            fail("Write after close");
+        } catch (IOException expected) {
+            assertEquals(0, released.getCount());
+        }
+    }
+
+    @Test
+    public void closeWhilstConnecting() throws Exception {
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        CountDownLatch released = new CountDownLatch(1);
+        connection.connect(address(), (int) TIMEOUT, listener);
+        connection.write(released::countDown, bytes("x"));
+        connection.close();
+        assertTrue(released.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertNull(closed.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void connectFailureReported() throws Exception {
+        int port = server.getLocalPort();
+        server.close();
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        connection.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), (int) TIMEOUT, listener);
+        assertNotNull(closed.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    public void unresolvableHostOnlyFailsItsConnection() throws Exception {
+        DelegateConnection connection = SelectorEngine.get().newConnection();
+        connection.connect(address(), (int) TIMEOUT, listener);
+        try (Socket socket = server.accept()) {
+            BlockingQueue<IOException> failed = new LinkedBlockingQueue<>();
+            DelegateConnection unresolvable = SelectorEngine.get().newConnection();
+            unresolvable.connect(InetSocketAddress.createUnresolved("no-such-host.invalid", 80), (int) TIMEOUT, new DelegateConnection.Listener() {
+                @Override
+                public void onData(ByteBuffer data) {
+                }
+
+                @Override
+                public void onClosed(IOException cause) {
+                    failed.add(cause);
+                }
+            });
+            assertNotNull(failed.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertFalse(unresolvable.isOpen());
+
+            // The selector thread is still running the first connection
+            connection.write(null, bytes("ping"));
+            assertEquals("ping", new String(readFully(socket.getInputStream(), 4), StandardCharsets.US_ASCII));
+            socket.getOutputStream().write("pong".getBytes(StandardCharsets.US_ASCII));
+            assertEquals("pong", awaitReceived(4));
+            assertTrue(connection.isOpen());
+            assertNull(closed.poll(0, TimeUnit.MILLISECONDS));
+        }
+        connection.close();
+    }
+}
@@ -0,0 +1,21 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SlimClientTest {
+    @Test
+    public void wildcardSubscriptions() {
+        assertTrue(SlimClient.matches("/a/slim/playerstatus/*", "/a/slim/playerstatus/00:11"));
+        assertFalse(SlimClient.matches("/a/slim/playerstatus/*", "/a/slim/playerstatus/"));
+        assertFalse(SlimClient.matches("/a/slim/playerstatus/*", "/a/slim/playerstatus/x/y"));
+        assertFalse(SlimClient.matches("/a/slim/playerstatus/*", "/a/slim/serverstatus"));
+        assertTrue(SlimClient.matches("/a/slim/**", "/a/slim/playerstatus/x"));
+        assertTrue(SlimClient.matches("/a/slim/**", "/a/slim/playerstatus/x/y"));
+        assertFalse(SlimClient.matches("/a/slim/**", "/b/slim/playerstatus/x"));
+        assertTrue(SlimClient.matches("/a/slim/request", "/a/slim/request"));
+        assertFalse(SlimClient.matches("/a/slim/request", "/b/slim/request"));
+        assertFalse(SlimClient.matches("/a/slim/request", "/a/slim/request/x"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamReplayTest {
+    private static final long TIMEOUT = 5000;
+    // The same capture as the benchmarks use: see Recording there
+    private static final String CAPTURE = "status-stream.cap";
+    private static final int SENT = 9;
+    private static final int RECEIVED = 97;
+    private static final long RECEIVED_BYTES = 190478;
+    private static final int MESSAGES = 81;
+    // Replies to the messages after the handshake (IDs 2 to 10), which a replay does not send
+    private static final int UNMATCHED_REPLIES = 9;
+    private static final String CLIENT_ID = "10000001";
+    private static final String PLAYER_STATUS = "/" + CLIENT_ID + "/slim/playerstatus/";
+    private static final String SERVER_STATUS = "/" + CLIENT_ID + "/slim/serverstatus";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private interface Reader {
+        void read(InputStream in) throws IOException;
+    }
+
+    private static void readCapture(Reader reader) throws IOException {
+        try (InputStream in = StreamReplayTest.class.getResourceAsStream(CAPTURE)) {
+            assertNotNull(CAPTURE, in);
+            reader.read(in);
+        }
+    }
+
+    @Test
+    public void readRecords() throws IOException {
+        int[] counts = new int[3];
+        long[] bytes = new long[1];
+        long[] last = new long[1];
+        readCapture(in -> StreamCapture.read(in, (type, nanos, data, length) -> {
+            ++counts[type];
+            if (StreamCapture.RECEIVED == type) {
+                bytes[0] += length;
+            }
+            assertTrue(nanos >= last[0]);
+            last[0] = nanos;
+        }));
+        assertEquals(RECEIVED, counts[StreamCapture.RECEIVED]);
+        assertEquals(SENT, counts[StreamCapture.SENT]);
+        assertEquals(0, counts[StreamCapture.CLOSED]);
+        assertEquals(RECEIVED_BYTES, bytes[0]);
+    }
+
+    @Test
+    public void decodeMessages() throws IOException, ParseException {
+        List<byte[]> frames = new ArrayList<>();
+        JsonFramer framer = new JsonFramer((json, length) -> frames.add(Arrays.copyOf(json, length)));
+        HttpResponseParser parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+            @Override
+            public void onStatus(int status) {
+                assertEquals(200, status);
+                framer.reset();
+            }
+
+            @Override
+            public void onHeader(String name, String value) {
+            }
+
+            @Override
+            public void onContent(ByteBuffer content) {
+                framer.append(content);
+            }
+
+            @Override
+            public void onComplete(boolean keepAlive) {
+            }
+        });
+        readCapture(in -> StreamCapture.read(in, (type, nanos, data, length) -> {
+            if (StreamCapture.RECEIVED == type) {
+                parser.parse(ByteBuffer.wrap(data, 0, length));
+            }
+        }));
+
+        List<BayeuxMessage> messages = new ArrayList<>();
+        for (byte[] frame : frames) {
+            messages.addAll(BayeuxJsonDecoder.decode(frame, 0, frame.length));
+        }
+        assertEquals(MESSAGES, messages.size());
+
+        BayeuxMessage handshake = messages.get(0);
+        assertEquals(BayeuxMessage.META_HANDSHAKE, handshake.getChannel());
+        assertTrue(handshake.isSuccessful());
+        assertEquals(CLIENT_ID, handshake.getClientId());
+        assertEquals(BayeuxMessage.META_CONNECT, messages.get(1).getChannel());
+        assertEquals(BayeuxMessage.META_DISCONNECT, messages.get(MESSAGES - 1).getChannel());
+
+        int serverStatuses = 0;
+        int firstPlayerStatuses = 0;
+        int secondPlayerStatuses = 0;
+        boolean paused = false;
+        for (BayeuxMessage message : messages) {
+            String channel = message.getChannel();
+            if (SERVER_STATUS.equals(channel)) {
+                ++serverStatuses;
+            } else if ((PLAYER_STATUS + "00:04:20:00:00:00").equals(channel)) {
+                ++firstPlayerStatuses;
+                // Paused part way through, by the pause command
+                String mode = (String) message.getDataAsMap().get("mode");
+                if (paused) {
+                    assertEquals("pause", mode);
+                } else {
+                    paused = "pause".equals(mode);
+                }
+            } else if ((PLAYER_STATUS + "00:04:20:00:00:01").equals(channel)) {
+                ++secondPlayerStatuses;
+            }
+        }
+        assertEquals(27, serverStatuses);
+        assertEquals(27, firstPlayerStatuses);
+        assertEquals(15, secondPlayerStatuses);
+        assertTrue(paused);
+    }
+
+    @Test
+    public void replay() throws Exception {
+        File capture = folder.newFile(CAPTURE);
+        readCapture(in -> Files.copy(in, capture.toPath(), StandardCopyOption.REPLACE_EXISTING));
+
+        StreamReplay.Result result = StreamReplay.replay(capture, false, TIMEOUT);
+        assertNull(result.failure);
+        // Everything the server sent was read and decoded, and all but replies to requests the
+        // replay did not make were delivered
+        assertEquals(MESSAGES - UNMATCHED_REPLIES, result.messages);
+        assertEquals(RECEIVED_BYTES, result.metrics.getBytesIn());
+        assertTrue(result.metrics.getParseTime().getCount() > 0);
+        assertTrue(result.metrics.getExchangeRtt().containsKey(BayeuxMessage.META_HANDSHAKE));
+    }
+}
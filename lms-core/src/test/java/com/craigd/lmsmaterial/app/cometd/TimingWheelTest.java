@@ -0,0 +1,118 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.platform.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+    private static final long TIMEOUT = 5000;
+
+    // Small, so that delays run several times round it
+    private final TimingWheel wheel = new TimingWheel("TimingWheelTest", 5, 8);
+
+    @After
+    public void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    public void firesWithinATickOfDelay() throws InterruptedException {
+        for (long delay : new long[]{1, 7, 38, 41, 120, 250}) {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            long[] elapsed = new long[1];
+            wheel.schedule(() -> {
+                elapsed[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                fired.countDown();
+            }, delay);
+            assertTrue(fired.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            // Deadlines are whole ticks from the start of the current one
+            assertTrue("delay " + delay + " fired after " + elapsed[0], elapsed[0] >= delay - 5);
+        }
+    }
+
+    @Test
+    public void firesInDeadlineOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch fired = new CountDownLatch(5);
+        // Buckets are reused every 40ms, so 15 and 55 share one
+        int[] delays = {55, 15, 100, 30, 200};
+        for (int delay : delays) {
+            wheel.schedule(() -> {
+                order.add(delay);
+                fired.countDown();
+            }, delay);
+        }
+        assertTrue(fired.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(15, 30, 55, 100, 200), order);
+    }
+
+    @Test
+    public void cancelled() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimingWheel.Timeout cancelled = wheel.schedule(fired::countDown, 20);
+        CountDownLatch other = new CountDownLatch(1);
+        wheel.schedule(other::countDown, 40);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(other.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(1, fired.getCount());
+    }
+
+    @Test
+    public void cancelAfterFiring() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(fired::countDown, 1);
+        assertTrue(fired.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopWheel() throws InterruptedException {
+        List<Throwable> logged = Collections.synchronizedList(new ArrayList<>());
+        Logger.setSink((level, message, throwable) -> {
+            if (null != throwable) {
+                logged.add(throwable);
+            }
+        });
+        try {
+            wheel.schedule(() -> {
+                throw new IllegalStateException("Failed");
+            }, 5);
+            CountDownLatch fired = new CountDownLatch(1);
+            wheel.schedule(fired::countDown, 30);
+            assertTrue(fired.await(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertEquals(1, logged.size());
+            assertTrue(logged.get(0) instanceof IllegalStateException);
+        } finally {
+            Logger.setSink(null);
+        }
+    }
+
+    @Test
+    public void manyOutstanding() throws InterruptedException {
+        int count = 10000;
+        CountDownLatch fired = new CountDownLatch(count / 2);
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            timeouts.add(wheel.schedule(fired::countDown, 200 + i % 300));
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertTrue(fired.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < count; ++i) {
+            assertFalse(timeouts.get(i).cancel());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.FakeLmsServer;
+import com.craigd.lmsmaterial.app.platform.JvmPlatform;
+import com.craigd.lmsmaterial.app.platform.Preferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TlsSocketsTest {
+    private static final long TIMEOUT = 5000;
+
+    private FakeLmsServer server;
+    private CometClient client;
+    private final BlockingQueue<PlayerStatus> statuses = new LinkedBlockingQueue<>();
+
+    @Before
+    public void start() throws IOException {
+        server = new FakeLmsServer("Test").addPlayers(1).setStatusInterval(50).setTls(true);
+        server.start(0, -1);
+        TlsSockets.setContext(FakeLmsServer.clientTlsContext());
+        JvmPlatform platform = new JvmPlatform(true).setServer("127.0.0.1", server.getHttpPort())
+                .set(Preferences.HTTPS_KEY, true);
+        client = new CometClient(platform, new CometClient.Listener() {
+            @Override
+            public void updatePlayerStatus(PlayerStatus status, PlayerStatusChange change) {
+                statuses.add(status);
+            }
+
+            @Override
+            public void connectionAbandoned() {
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void reconnectResumesSession() throws InterruptedException {
+        client.setPlayer(server.getPlayers().get(0).id);
+        client.connect();
+        assertNotNull(statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        client.disconnect();
+        // Disconnecting cancels whatever is pending on the client's scheduler, so wait for it to
+        // finish before connecting again
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (server.getClientCount() > 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getClientCount());
+        int resumed = server.getResumedTlsSessions();
+
+        client.connect();
+        end = System.currentTimeMillis() + TIMEOUT;
+        while (0 == server.getClientCount() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        // Only count statuses from the new connection
+        statuses.clear();
+        assertNotNull(statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // The command connection handshakes alongside the streaming one, so either may be resumed
+        List<String> sessions = server.getTlsSessions();
+        assertTrue(sessions.size() >= 2);
+        assertFalse(sessions.get(0).isEmpty());
+        assertTrue(sessions.subList(0, sessions.size() - 1).contains(sessions.get(sessions.size() - 1)));
+        // ...with an abbreviated handshake, not a full one that happened to reuse the ID
+        assertTrue(server.getResumedTlsSessions() > resumed);
+    }
+}
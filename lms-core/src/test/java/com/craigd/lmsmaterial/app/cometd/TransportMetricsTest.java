@@ -0,0 +1,166 @@
+package com.craigd.lmsmaterial.app.cometd;
+
+import com.craigd.lmsmaterial.app.FakeLmsServer;
+import com.craigd.lmsmaterial.app.platform.JvmPlatform;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class TransportMetricsTest {
+    private static final long TIMEOUT = 5000;
+
+    private FakeLmsServer server;
+    private CometClient client;
+    private final BlockingQueue<PlayerStatus> statuses = new LinkedBlockingQueue<>();
+
+    private void start(boolean metrics) throws IOException {
+        server = new FakeLmsServer("Test").addPlayers(2).setStatusInterval(50);
+        server.start(0, 0);
+        // Metrics are enabled for debug builds
+        JvmPlatform platform = new JvmPlatform(metrics).setServer("127.0.0.1", server.getHttpPort());
+        client = new CometClient(platform, new CometClient.Listener() {
+            @Override
+            public void updatePlayerStatus(PlayerStatus status, PlayerStatusChange change) {
+                statuses.add(status);
+            }
+
+            @Override
+            public void connectionAbandoned() {
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        if (null != client) {
+            client.disconnect();
+        }
+        if (null != server) {
+            server.close();
+        }
+    }
+
+    private String connect() throws InterruptedException {
+        String player = server.getPlayers().get(0).id;
+        client.setPlayer(player);
+        client.connect();
+        assertNotNull(statuses.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        return player;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void percentileIsUpperBoundOfItsBucket() {
+        TransportMetrics.Histogram histogram = new TransportMetrics.Histogram("ms");
+        assertEquals(0, histogram.getPercentile(50));
+        histogram.record(-5);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(7);
+        histogram.record(8);
+        histogram.record(1000);
+        histogram.record(1L << 40);
+        assertEquals(9, histogram.getCount());
+        long[] buckets = histogram.getBuckets();
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(2, buckets[2]);
+        assertEquals(2, buckets[3]);
+        assertEquals(1, buckets[4]);
+        assertEquals(1, buckets[10]);
+        assertEquals(1, buckets[TransportMetrics.Histogram.BUCKETS - 1]);
+
+        // Negative values count as 0, which is bucket 0's only value
+        assertEquals(0, histogram.getPercentile(10));
+        assertEquals(1, histogram.getPercentile(20));
+        // 2 and 3 are both in [2, 4)
+        assertEquals(3, histogram.getPercentile(30));
+        assertEquals(3, histogram.getPercentile(40));
+        assertEquals(7, histogram.getPercentile(50));
+        assertEquals(15, histogram.getPercentile(70));
+        assertEquals(1023, histogram.getPercentile(80));
+        // The last bucket has no upper bound, so it gives the maximum
+        assertEquals(1L << 40, histogram.getPercentile(100));
+        assertEquals(1L << 40, histogram.getMax());
+    }
+
+    @Test
+    public void recordedByTransportAndClient() throws Exception {
+        start(true);
+        TransportMetrics metrics = client.getMetrics();
+        assertTrue(metrics.isEnabled());
+        connect();
+
+        assertEquals(1, metrics.getHandshakeLatency().getCount());
+        Map<String, TransportMetrics.Histogram> rtt = metrics.getExchangeRtt();
+        assertTrue(rtt.toString(), rtt.containsKey(BayeuxMessage.META_HANDSHAKE));
+        assertTrue(rtt.toString(), rtt.containsKey(BayeuxMessage.META_CONNECT));
+        assertTrue(rtt.toString(), rtt.containsKey(BayeuxMessage.META_SUBSCRIBE));
+        assertEquals(1, rtt.get(BayeuxMessage.META_HANDSHAKE).getCount());
+        assertTrue(metrics.getBytesOut() > 0);
+        assertTrue(metrics.getBytesIn() > 0);
+        assertTrue(metrics.getParseTime().getCount() > 0);
+        assertEquals(0, metrics.getSocketLifetime().getCount());
+        assertEquals(0, metrics.getRehandshakes());
+
+        // The server going away drops the streaming connection, and the client rehandshakes
+        server.close();
+        await(() -> metrics.getRehandshakes() > 0);
+        await(() -> metrics.getSocketLifetime().getCount() > 0);
+        assertEquals(0, metrics.getExpiredExchanges());
+    }
+
+    @Test
+    public void expiredExchangesRecorded() throws Exception {
+        start(true);
+        TransportMetrics metrics = client.getMetrics();
+        connect();
+        // The fast replies so far give the shortest timeout, which a slow reply then exceeds
+        server.setLatency(3000);
+        client.setPlayer(server.getPlayers().get(1).id);
+        await(() -> metrics.getExpiredExchanges() > 0);
+        server.setLatency(0);
+    }
+
+    @Test
+    public void nothingRecordedWhenDisabled() throws Exception {
+        start(false);
+        TransportMetrics metrics = client.getMetrics();
+        assertFalse(metrics.isEnabled());
+        String player = connect();
+        assertTrue(client.sendCommand(player, new String[]{"pause"}));
+        server.setLatency(3000);
+        client.setPlayer(server.getPlayers().get(1).id);
+        // Long enough for the publish to expire
+        Thread.sleep(2000);
+        server.close();
+        Thread.sleep(500);
+
+        assertEquals(0, metrics.getHandshakeLatency().getCount());
+        assertTrue(metrics.getExchangeRtt().isEmpty());
+        assertEquals(0, metrics.getParseTime().getCount());
+        assertEquals(0, metrics.getSocketLifetime().getCount());
+        assertEquals(0, metrics.getBytesIn());
+        assertEquals(0, metrics.getBytesOut());
+        assertEquals(0, metrics.getExpiredExchanges());
+        assertEquals(0, metrics.getRehandshakes());
+    }
+}
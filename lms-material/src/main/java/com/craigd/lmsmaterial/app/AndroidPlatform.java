@@ -0,0 +1,137 @@
+/**
+ * LMS-Material-App
+ *
+ * Copyright (c) 2020-2026 Craig Drummond <craig.p.drummond@gmail.com>
+ * MIT license.
+ */
+
+package com.craigd.lmsmaterial.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.preference.PreferenceManager;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.toolbox.JsonObjectRequest;
+import com.android.volley.toolbox.Volley;
+import com.craigd.lmsmaterial.app.platform.Http;
+import com.craigd.lmsmaterial.app.platform.Platform;
+import com.craigd.lmsmaterial.app.platform.Preferences;
+import com.craigd.lmsmaterial.app.platform.Scheduler;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Adapts Android to the interfaces used by lms-core.
+ */
+public class AndroidPlatform implements Platform {
+    private static AndroidPlatform instance = null;
+
+    private final Context context;
+    private final Preferences preferences;
+    private final Http http;
+
+    private static class Request extends JsonObjectRequest {
+        private final Map<String, String> headers;
+
+        Request(String url, @Nullable JSONObject request, Map<String, String> headers, Response.Listener<JSONObject> responseListener) {
+            super(Request.Method.POST, url, request, responseListener, null);
+            this.headers = headers;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() throws AuthFailureError {
+            return headers.isEmpty() ? super.getHeaders() : headers;
+        }
+    }
+
+    public static synchronized AndroidPlatform get(Context context) {
+        if (null == instance) {
+            instance = new AndroidPlatform(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AndroidPlatform(Context context) {
+        this.context = context;
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        preferences = new Preferences() {
+            @Override
+            public String getString(String key, String defaultValue) {
+                return prefs.getString(key, defaultValue);
+            }
+
+            @Override
+            public boolean getBoolean(String key, boolean defaultValue) {
+                return prefs.getBoolean(key, defaultValue);
+            }
+        };
+        RequestQueue requestQueue = Volley.newRequestQueue(context);
+        http = (url, body, headers, listener) ->
+                requestQueue.add(new Request(url, body, headers, null == listener ? null : listener::onResponse));
+    }
+
+    @Override
+    public Preferences preferences() {
+        return preferences;
+    }
+
+    @Override
+    public Http http() {
+        return http;
+    }
+
+    @Override
+    public Scheduler newScheduler(String name) {
+        HandlerThread handlerThread = new HandlerThread(name);
+        handlerThread.start();
+        Handler handler = new Handler(handlerThread.getLooper());
+        return new Scheduler() {
+            @Override
+            public void post(Runnable task) {
+                handler.post(task);
+            }
+
+            @Override
+            public void cancelPending() {
+                handler.removeCallbacksAndMessages(null);
+            }
+
+            @Override
+            public boolean isCurrentThread() {
+                return handler.getLooper() == Looper.myLooper();
+            }
+        };
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public File cacheDir() {
+        return context.getCacheDir();
+    }
+
+    @Override
+    public boolean isNetworkConnected() {
+        return Utils.isNetworkConnected(context);
+    }
+
+    @Override
+    public boolean isDebug() {
+        return BuildConfig.DEBUG;
+    }
+}
@@ -57,9 +57,9 @@ import androidx.media.session.MediaButtonReceiver;
 import androidx.preference.PreferenceManager;
 
 import com.craigd.lmsmaterial.app.cometd.CometClient;
+import com.craigd.lmsmaterial.app.cometd.PlayerRegistry;
 import com.craigd.lmsmaterial.app.cometd.PlayerStatus;
-
-import org.eclipse.jetty.util.B64Code;
+import com.craigd.lmsmaterial.app.cometd.PlayerStatusChange;
 
 import java.lang.ref.WeakReference;
 import java.net.URL;
@@ -67,7 +67,7 @@ import java.net.URLConnection;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
-public class ControlService extends Service {
+public class ControlService extends Service implements CometClient.Listener {
     public static final String NO_NOTIFICATION = "none";
     public static final String BASIC_NOTIFICATION = "basic";
     public static final String FULL_NOTIFICATION = "full";
@@ -93,11 +93,21 @@ public class ControlService extends Service {
     public static final String NOTIFICATION_CHANNEL_ID = "lms_control_service";
 
     private static boolean isRunning = false;
+    private static PlayerRegistry playerRegistry = null;
 
     public static boolean isActive() {
         return isRunning;
     }
 
+    /**
+     * @return The server's players, if the CometD connection is up and has them - otherwise
+     *     null, and the server should be asked.
+     */
+    public static PlayerRegistry getPlayers() {
+        PlayerRegistry players = playerRegistry;
+        return null!=players && players.isCurrent() ? players : null;
+    }
+
     private JsonRpc rpc;
     private NotificationCompat.Builder notificationBuilder;
     private NotificationManagerCompat notificationManager;
@@ -108,6 +118,8 @@ public class ControlService extends Service {
     private CometClient cometClient = null;
     private SharedPreferences prefs = null;
     private PlayerStatus lastStatus;
+    private long notificationRebuilds = 0;
+    private long notificationRebuildsAvoided = 0;
     private String currentCover = null;
     private Bitmap currentBitmap = null;
     private Bitmap fallbackBitmap = null;
@@ -185,7 +197,11 @@ public class ControlService extends Service {
         if (FULL_NOTIFICATION.equals(notificationType)) {
             if (Utils.isNetworkConnected(this)) {
                 cometClient.setPlayer(MainActivity.activePlayer);
-                cometClient.connect();
+                if (cometClient.isConnected()) {
+                    cometClient.checkLiveness();
+                } else {
+                    cometClient.connect();
+                }
             } else {
                 lastStatus = null;
                 cometClient.disconnect();
@@ -194,13 +210,23 @@ public class ControlService extends Service {
         }
     }
 
-    public synchronized void updatePlayerStatus(PlayerStatus status) {
-        // Sometimes position on first song can be wrong?
-        if (null!=cometClient && cometClient.isConnected() && null!=status && (null==lastStatus || (status.id.equals(lastStatus.id) && !lastStatus.isPlaying && status.isPlaying))) {
-            cometClient.getPlayerStatus(status.id);
-        }
+    @Override
+    public synchronized void updatePlayerStatus(PlayerStatus status, PlayerStatusChange change) {
+        boolean mediaSessionState = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
+        // Before Tiramisu play state is shown by the notification's actions, and position not at all
+        boolean rebuild = null==lastStatus || change.has(PlayerStatusChange.PLAYER | PlayerStatusChange.TRACK | PlayerStatusChange.COVER) ||
+                          (!mediaSessionState && change.has(PlayerStatusChange.PLAY_STATE));
         lastStatus = status;
-        handler.post(this::updateNotification);
+        if (rebuild) {
+            notificationRebuilds++;
+            handler.post(this::updateNotification);
+        } else {
+            notificationRebuildsAvoided++;
+            if (mediaSessionState && change.has(PlayerStatusChange.PLAY_STATE | PlayerStatusChange.POSITION_JUMP)) {
+                handler.post(this::updatePlaybackState);
+            }
+        }
+        Utils.verbose("Changed:" + change + ", rebuilds:" + notificationRebuilds + ", avoided:" + notificationRebuildsAvoided);
     }
 
     @Override
@@ -219,7 +245,8 @@ public class ControlService extends Service {
     public void onCreate() {
         super.onCreate();
         Utils.debug("");
-        cometClient = new CometClient(this);
+        cometClient = new CometClient(AndroidPlatform.get(this), this);
+        playerRegistry = cometClient.getPlayers();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             mediaSession = new MediaSessionCompat(getApplicationContext(), "Lyrion");
         }
@@ -230,6 +257,7 @@ public class ControlService extends Service {
     public void onDestroy() {
         super.onDestroy();
         Utils.debug("");
+        playerRegistry = null;
         if (mediaSession != null) {
             mediaSession.setActive(false);
             mediaSession.release();
@@ -241,8 +269,11 @@ public class ControlService extends Service {
         if (Utils.isEmpty(MainActivity.activePlayer)) {
             return;
         }
+        if (null!=cometClient && cometClient.sendCommand(MainActivity.activePlayer, command)) {
+            return;
+        }
         if (null == rpc) {
-            rpc = new JsonRpc(getApplicationContext());
+            rpc = new JsonRpc(AndroidPlatform.get(this));
         }
         rpc.sendMessage(MainActivity.activePlayer, command);
         if (FULL_NOTIFICATION.equals(notificationType) && null!=cometClient && !cometClient.isConnected() && Utils.isNetworkConnected(this)) {
@@ -362,12 +393,7 @@ public class ControlService extends Service {
             Intent intent = new Intent(this, MainActivity.class);
             PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
                     Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : PendingIntent.FLAG_UPDATE_CURRENT);
-            boolean statusValid = false;
-            if (null!=lastStatus && lastStatus.id.equals(MainActivity.activePlayer) && isFull) {
-                statusValid = true;
-            } else {
-                lastStatus = null;
-            }
+            boolean statusValid = isStatusValid();
             notificationBuilder
                     .setOngoing(true)
                     .setOnlyAlertOnce(true)
@@ -399,18 +425,7 @@ public class ControlService extends Service {
                 notificationBuilder.addAction(new NotificationCompat.Action(R.drawable.ic_action_quit, getString(R.string.quit), getPendingIntent(QUIT_APP)));
                 notificationBuilder.setSubText(statusValid ? lastStatus.display() : getResources().getString(R.string.notification_meta_text));
             } else {
-                PlaybackStateCompat.Builder playbackStateBuilder = new PlaybackStateCompat.Builder();
-                if (statusValid) {
-                    playbackStateBuilder.setState(lastStatus.isPlaying ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_STOPPED, lastStatus.time, lastStatus.isPlaying ? 1.0f : 0)
-                                        .setActions(PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS | PlaybackStateCompat.ACTION_SKIP_TO_NEXT | PlaybackStateCompat.ACTION_SEEK_TO);
-                } else {
-                    playbackStateBuilder.setState(PlaybackStateCompat.STATE_STOPPED, 0, 0)
-                                        .setActions(PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS | PlaybackStateCompat.ACTION_SKIP_TO_NEXT);
-                }
-                playbackStateBuilder.addCustomAction(ACTION_POWER, getString(R.string.power), android.R.drawable.ic_lock_power_off)
-                        .addCustomAction(ACTION_QUIT, getString(R.string.quit), R.drawable.ic_action_quit);
-                playbackState = playbackStateBuilder.build();
-                mediaSession.setPlaybackState(playbackState);
+                setPlaybackState(statusValid);
                 if (mediaSessionCallback==null) {
                     mediaSessionCallback=new MediaSessionCompat.Callback() {
                         @Override
@@ -512,6 +527,71 @@ public class ControlService extends Service {
         return null;
     }
 
+    /**
+     * Clears lastStatus if it is not for the active player.
+     */
+    private boolean isStatusValid() {
+        if (null!=lastStatus && lastStatus.id.equals(MainActivity.activePlayer) && FULL_NOTIFICATION.equals(notificationType)) {
+            return true;
+        }
+        lastStatus = null;
+        return false;
+    }
+
+    /**
+     * @return Position of lastStatus's player at the given time, from the CometD client's
+     *     model if it is for that player.
+     */
+    private long getPosition(long now) {
+        if (null!=cometClient && lastStatus.id.equals(cometClient.getPositionModel().getPlayerId())) {
+            return cometClient.getPositionModel().getPosition(now);
+        }
+        return lastStatus.at(now).time;
+    }
+
+    private void setPlaybackState(boolean statusValid) {
+        PlaybackStateCompat.Builder playbackStateBuilder = new PlaybackStateCompat.Builder();
+        if (statusValid) {
+            long now = AndroidPlatform.get(this).elapsedRealtime();
+            playbackStateBuilder.setState(lastStatus.isPlaying ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_STOPPED, getPosition(now), lastStatus.isPlaying ? 1.0f : 0, now)
+                                .setActions(PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS | PlaybackStateCompat.ACTION_SKIP_TO_NEXT | PlaybackStateCompat.ACTION_SEEK_TO);
+        } else {
+            playbackStateBuilder.setState(PlaybackStateCompat.STATE_STOPPED, 0, 0)
+                                .setActions(PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS | PlaybackStateCompat.ACTION_SKIP_TO_NEXT);
+        }
+        playbackStateBuilder.addCustomAction(ACTION_POWER, getString(R.string.power), android.R.drawable.ic_lock_power_off)
+                .addCustomAction(ACTION_QUIT, getString(R.string.quit), R.drawable.ic_action_quit);
+        playbackState = playbackStateBuilder.build();
+        mediaSession.setPlaybackState(playbackState);
+    }
+
+    /**
+     * Only play state or position has changed, so just update the media session's playback
+     * state - the notification and metadata are as they were.
+     */
+    private synchronized void updatePlaybackState() {
+        if (null==mediaSession || null==notificationBuilder) {
+            return;
+        }
+        if (!isStatusValid()) {
+            updateNotification();
+            return;
+        }
+        try {
+            setPlaybackState(true);
+        } catch (Exception e) {
+            Utils.error("Failed to update playback state", e);
+        }
+    }
+
+    @Override
+    public void connectionAbandoned() {
+        if (!MainActivity.isActive() && !SettingsActivity.isVisible()) {
+            Utils.debug("UI is not visible, so terminate");
+            quit();
+        }
+    }
+
     public void quit() {
         stopForegroundService();
         new LocalPlayer(prefs, this).autoStop();
@@ -531,7 +611,7 @@ public class ControlService extends Service {
                 String user = prefs.getString(LMS_USERNAME_KEY, "");
                 String pass = prefs.getString(LMS_PASSWORD_KEY, "");
                 if (!user.isEmpty() && !pass.isEmpty()) {
-                    con.setRequestProperty("Authorization", "Basic " + B64Code.encode(user + ":" + pass));
+                    con.setRequestProperty("Authorization", Strings.basicAuth(user, pass));
                 }
 
                 currentBitmap = BitmapFactory.decodeStream(con.getInputStream());
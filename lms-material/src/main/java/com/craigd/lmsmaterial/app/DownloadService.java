@@ -51,7 +51,6 @@ import java.util.Set;
 
 public class DownloadService extends Service {
     private static final String COVER_ART_SRC = "cover.jpg";
-    private static final String COVER_ART_DEST = "albumart.jpg";
     public static final String STATUS = DownloadService.class.getCanonicalName() + ".STATUS";
     public static final String STATUS_BODY = "body";
     public static final String STATUS_LEN = "len";
@@ -68,105 +67,6 @@ public class DownloadService extends Service {
     private NotificationManagerCompat notificationManager;
     private final Messenger messenger = new Messenger(new IncomingHandler(this));
 
-    static String getString(JSONObject obj, String key) {
-        try {
-            return obj.getString(key);
-        } catch (JSONException e) {
-            return null;
-        }
-    }
-
-    static int getInt(JSONObject obj, String key) {
-        try {
-            return obj.getInt(key);
-        } catch (JSONException e) {
-            return 0;
-        }
-    }
-
-    static String fatSafe(String str) {
-        return str.replaceAll("[?<>\\\\:*|\"/]", "_");
-    }
-
-    static String fixEmpty(String str) {
-        return Utils.isEmpty(str) ? "Unknown" : str;
-    }
-
-    static class DownloadItem {
-        public DownloadItem(JSONObject obj, boolean transcode) {
-            id = getInt(obj, "id");
-            filename = getString(obj, "filename");
-            title = getString(obj, "title");
-            ext = getString(obj, "ext");
-            artist = getString(obj, "artist");
-            album = getString(obj, "album");
-            tracknum = getInt(obj, "tracknum");
-            disc = getInt(obj, "disc");
-            albumId = getInt(obj, "album_id");
-            isTrack = true;
-
-            if (Utils.isEmpty(filename)) {
-                filename = "";
-                if (disc > 0) {
-                    filename += disc;
-                }
-                if (tracknum > 0) {
-                    filename += (!filename.isEmpty() ? "." : "") + (tracknum < 10 ? "0" : "") + tracknum + " ";
-                } else if (!filename.isEmpty()) {
-                    filename += " ";
-                }
-                filename += fixEmpty(title) + "." + (transcode ? "mp3" : ext);
-            } else if (transcode) {
-                int pos = filename.lastIndexOf('.');
-                filename = (pos > 0 ? filename.substring(0, pos) : filename) + ".mp3";
-            }
-        }
-
-        public DownloadItem(int id, int albumId, String artist, String album) {
-            isTrack = false;
-            this.id = id * -1; // Ensure we do not overlap with track id
-            this.albumId = albumId;
-            this.artist = artist;
-            this.album = album;
-            this.filename = COVER_ART_DEST;
-        }
-
-        JSONObject toObject(boolean downloading) throws JSONException {
-            JSONObject obj = new JSONObject();
-            obj.put("id", id);
-            obj.put("downloading", downloading);
-            obj.put("title", filename);
-            obj.put("subtitle", artist + " - " + album);
-            return obj;
-        }
-
-        public String getFolder() {
-            return fatSafe(!artist.isEmpty() && !album.isEmpty()
-                    ? artist + " - " + album
-                    : !artist.isEmpty()
-                    ? artist
-                    : !album.isEmpty()
-                    ? album
-                    : "Unknown");
-        }
-
-        public String getDownloadFileName() {
-            return fatSafe(fixEmpty(artist) + " - " + fixEmpty(album) + " - " + filename);
-        }
-
-        public int id;
-        public String filename;
-        public String title;
-        public String ext;
-        public String artist;
-        public String album;
-        public int tracknum;
-        public int disc;
-        public int albumId;
-        public boolean isTrack;
-        public long downloadId = 0;
-    }
-
     final List<DownloadItem> items = new LinkedList<>();
     List<DownloadItem> queuedItems = new LinkedList<>();
     Set<Integer> trackIds = new HashSet<>();
@@ -410,10 +310,11 @@ public class DownloadService extends Service {
     }
 
     void enqueueDownload(DownloadItem item) {
-        ServerDiscovery.Server server = new ServerDiscovery.Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY,null));
+        Server server = new Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY,null));
         boolean transcode = sharedPreferences.getBoolean("transcode", false);
-        Uri url = item.isTrack ? Uri.parse("http://" + server.ip + ":" + server.port + "/music/" + item.id + "/download" + (transcode ? ".mp3" : ""))
-                               : Uri.parse("http://" + server.ip + ":" + server.port + "/music/" + (item.id*-1) + "/" + COVER_ART_SRC);
+        String base = server.url(sharedPreferences.getBoolean(SettingsActivity.HTTPS_PREF_KEY, false));
+        Uri url = item.isTrack ? Uri.parse(base + "/music/" + item.id + "/download" + (transcode ? ".mp3" : ""))
+                               : Uri.parse(base + "/music/" + (item.id*-1) + "/" + COVER_ART_SRC);
         DownloadManager.Request request = new DownloadManager.Request(url)
                 .setTitle(item.title)
                 .setVisibleInDownloadsUi(false)
@@ -462,7 +363,7 @@ public class DownloadService extends Service {
 
     void addToMediaStorage(DownloadItem item) {
         File destDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC), item.getFolder());
-        File destFile = new File(destDir, fatSafe(item.filename));
+        File destFile = new File(destDir, DownloadItem.fatSafe(item.filename));
         File sourceFile = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), item.getDownloadFileName());
         try {
             if (!destDir.exists() && !destDir.mkdir()) {
@@ -81,7 +81,7 @@ public class LocalPlayer {
         // If stopping player via skin's 'power' button, then we need to ask LMS to forget
         // the client first, and then do the actual stop.
         if (null==rpc) {
-            rpc = new JsonRpc(context);
+            rpc = new JsonRpc(AndroidPlatform.get(context));
         }
         rpc.sendMessage(playerId, new String[]{"client", "forget"}, response -> stop());
     }
@@ -129,7 +129,7 @@ public class LocalPlayer {
         Intent intent = new Intent();
         intent.setClassName(SQUEEZE_PLAYER_PKG, SQUEEZE_PLAYER_PKG+".playback.service.PlaybackService");
 
-        ServerDiscovery.Server current = new ServerDiscovery.Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY, null));
+        Server current = new Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY, null));
         intent.putExtra("forceSettingsFromIntent", true);
         intent.putExtra("intentHasServerSettings", true);
         intent.putExtra("serverURL", current.ip + ":" + current.port);
@@ -71,6 +71,8 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
 import androidx.preference.PreferenceManager;
 
+import com.craigd.lmsmaterial.app.platform.Preferences;
+
 import org.json.JSONArray;
 
 import java.io.File;
@@ -97,8 +99,8 @@ public class MainActivity extends AppCompatActivity {
     private static final String SETTINGS_URL = "mska://settings";
     private static final String QUIT_URL = "mska://quit";
     private static final String STARTPLAYER_URL = "mska://startplayer";
-    public static final String LMS_USERNAME_KEY = "lms-username";
-    public static final String LMS_PASSWORD_KEY = "lms-password";
+    public static final String LMS_USERNAME_KEY = Preferences.USERNAME_KEY;
+    public static final String LMS_PASSWORD_KEY = Preferences.PASSWORD_KEY;
     private static final String CURRENT_PLAYER_ID_KEY = "current_player_id";
     private static final int PAGE_TIMEOUT = 5000; // ms
     private static final int DISCONNECT_TIMEOUT = 6; // seconds
@@ -288,14 +290,14 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private String getConfiguredUrl() {
-        Discovery.Server server = new Discovery.Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY,null));
+        Server server = new Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY,null));
         String defaultPlayer = sharedPreferences.getString(SettingsActivity.DEFAULT_PLAYER_PREF_KEY, null);
         if (server.ip == null || server.ip.isEmpty()) {
             return null;
         }
 
         try {
-            Uri.Builder builder = Uri.parse("http://" + server.ip + ":" + server.port + "/material/").buildUpon();
+            Uri.Builder builder = Uri.parse(server.url(sharedPreferences.getBoolean(SettingsActivity.HTTPS_PREF_KEY, false)) + "/material/").buildUpon();
             if (defaultPlayer!=null && !defaultPlayer.isEmpty()) {
                 builder.appendQueryParameter("player", defaultPlayer);
                 if (sharedPreferences.getBoolean(SettingsActivity.SINGLE_PLAYER_PREF_KEY, false)) {
@@ -679,7 +681,7 @@ public class MainActivity extends AppCompatActivity {
                 /*
                 NO - don't handle URLs, not required?
                 SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
-                String server = new Discovery.Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY, "")).ip;
+                String server = new Server(sharedPreferences.getString(SettingsActivity.SERVER_PREF_KEY, "")).ip;
                 if (server.equals(uri.getHost()) && uri.getPath().startsWith("/material") && !uri.getPath().contains("/docs/")) {
                     return false;
                 }
@@ -765,7 +767,7 @@ public class MainActivity extends AppCompatActivity {
                 // Try to connect to previous server
                 Utils.info("URL:" + url);
                 StyleableToast.makeText(getApplicationContext(),
-                        new Discovery.Server(PreferenceManager.getDefaultSharedPreferences(getApplicationContext()).getString(SettingsActivity.SERVER_PREF_KEY, null)).describe(),
+                        new Server(PreferenceManager.getDefaultSharedPreferences(getApplicationContext()).getString(SettingsActivity.SERVER_PREF_KEY, null)).describe(),
                         Toast.LENGTH_SHORT, R.style.toast).show();
 
                 loadUrl(url);
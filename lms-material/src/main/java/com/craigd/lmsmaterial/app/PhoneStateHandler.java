@@ -13,7 +13,8 @@ import android.telephony.TelephonyManager;
 
 import androidx.preference.PreferenceManager;
 
-import com.android.volley.Response;
+import com.craigd.lmsmaterial.app.cometd.PlayerRegistry;
+import com.craigd.lmsmaterial.app.platform.Http;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -34,7 +35,7 @@ public class PhoneStateHandler {
     private final List<String> activePlayers = new LinkedList<>();
     private boolean inCall = false;
 
-    private final Response.Listener<JSONObject> rpcResponse = response -> {
+    private final Http.Listener rpcResponse = response -> {
         activePlayers.clear();
         if (inCall) {
             try {
@@ -67,7 +68,7 @@ public class PhoneStateHandler {
             return;
         }
         if (null==rpc) {
-            rpc = new JsonRpc(context);
+            rpc = new JsonRpc(AndroidPlatform.get(context));
         }
         if (state == TelephonyManager.CALL_STATE_RINGING || state == TelephonyManager.CALL_STATE_OFFHOOK) {
             callStarted(action);
@@ -104,6 +105,14 @@ public class PhoneStateHandler {
     }
 
     private void getActivePlayers() {
+        PlayerRegistry players = ControlService.getPlayers();
+        if (null!=players) {
+            activePlayers.clear();
+            activePlayers.addAll(players.getActivePlayers());
+            Utils.debug("Registry, activePlayers:" + activePlayers);
+            controlPlayers();
+            return;
+        }
         rpc.sendMessage("", new String[]{"material-skin", "activeplayers"}, rpcResponse);
     }
 
@@ -15,134 +15,16 @@ import android.os.Message;
 
 import androidx.annotation.NonNull;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 
 public abstract class ServerDiscovery {
     private static final int SERVER_DISCOVERY_TIMEOUT = 1500;
 
-    public static class Server implements Comparable<Server> {
-        public static final int DEFAULT_PORT = 9000;
-        public String ip = "";
-        public String name = "";
-        public int port = DEFAULT_PORT;
-
-        private static String getString(JSONObject json, String key) {
-            try {
-                return json.getString(key);
-            } catch (JSONException e) {
-                return "";
-            }
-        }
-
-        private static int getPort(JSONObject json) {
-            try {
-                return json.getInt("port");
-            } catch (JSONException e) {
-                return Server.DEFAULT_PORT;
-            }
-        }
-
-        public Server(String str) {
-            Utils.debug("DECODE:"+str);
-            if (str != null) {
-                try {
-                    JSONObject json = new JSONObject(str);
-                    ip = getString(json, "ip");
-                    name = getString(json, "name");
-                    port = getPort(json);
-                } catch (JSONException ignored) {
-                }
-            }
-        }
-
-        public Server(String ip, int port, String name) {
-            this.ip=ip;
-            this.port=port;
-            this.name=name;
-        }
-
-        public Server(DatagramPacket pkt) {
-            ip = pkt.getAddress().getHostAddress();
-
-            // Try to get name of server for packet
-            int pktLen = pkt.getLength();
-            byte[] bytes = pkt.getData();
-
-            // Look for NAME:<Name> in list of key:value pairs
-            for(int i=1; i < pktLen; ) {
-                if (i + 5 > pktLen) {
-                    break;
-                }
-
-                // Extract 4 bytes
-                String key = new String(bytes, i, 4);
-                i += 4;
-
-                int valueLen = bytes[i++] & 0xFF;
-                if (i + valueLen > pktLen) {
-                    break;
-                }
-
-                if (key.equals("NAME")) {
-                    name = new String(bytes, i, valueLen);
-                    Utils.debug("Name:"+name);
-                } else if (key.equals("JSON")) {
-                    try {
-                        port = Integer.parseInt(new String(bytes, i, valueLen));
-                        Utils.debug("Port:"+port);
-                    } catch (NumberFormatException ignored) {
-                    }
-                }
-                i += valueLen;
-            }
-        }
-
-        public boolean isEmpty() {
-            return null==ip || ip.isEmpty();
-        }
-
-        @Override
-        public int compareTo(@NonNull Server o) {
-            return null==ip ? (o.ip==null ? 0 : -1) : ip.compareTo(o.ip);
-        }
-
-        public boolean equals(Server o) {
-            return Objects.equals(ip, o.ip);
-        }
-
-        public String describe() {
-            if (null==name || name.isEmpty()) {
-                return address();
-            }
-            return name+" ("+address()+")";
-        }
-
-        public String address() {
-            return ip + (DEFAULT_PORT==port ? "" : (":"+port));
-        }
-
-        public String encode() {
-            try {
-                JSONObject json = new JSONObject();
-                json.put("ip", ip);
-                json.put("name", name);
-                json.put("port", port);
-                return json.toString(0);
-            } catch (JSONException e) {
-                return ip;
-            }
-        }
-    }
-
     class DiscoveryRunnable implements Runnable {
         private volatile boolean active = false;
         private final WifiManager wifiManager;
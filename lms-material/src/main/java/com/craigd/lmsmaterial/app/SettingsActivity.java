@@ -36,12 +36,14 @@ import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.PreferenceManager;
 import androidx.preference.SwitchPreferenceCompat;
 
+import com.craigd.lmsmaterial.app.platform.Preferences;
+
 import java.util.List;
 
 import io.github.muddz.styleabletoast.StyleableToast;
 
 public class SettingsActivity extends AppCompatActivity {
-    public static final String SERVER_PREF_KEY = "server";
+    public static final String SERVER_PREF_KEY = Preferences.SERVER_KEY;
     public static final String AUTODISCOVER_PREF_KEY = "autodiscover";
     public static final String CLEAR_CACHE_PREF_KEY = "clear_cache";
     public static final String SCALE_PREF_KEY = "zoomscale";
@@ -62,6 +64,9 @@ public class SettingsActivity extends AppCompatActivity {
     public static final String AUTO_START_PLAYER_APP_PREF_KEY = "auto_start_player";
     public static final String PLAYER_START_MENU_ITEM_PREF_KEY = "menu_start_player";
     public static final String STOP_APP_ON_QUIT_PREF_KEY = "stop_app_on_quit";
+    public static final String COMPRESS_UPDATES_PREF_KEY = Preferences.COMPRESS_UPDATES_KEY;
+    public static final String HTTPS_PREF_KEY = Preferences.HTTPS_KEY;
+    public static final String SUBSCRIBED_PLAYERS_PREF_KEY = Preferences.SUBSCRIBED_PLAYERS_KEY;
     public static final int PERMISSION_READ_PHONE_STATE = 1;
     public static final int PERMISSION_POST_NOTIFICATIONS = 2;
     public static final int PERMISSION_NOTIFS_AND_READ_PHONE_STATE = 3;
@@ -217,13 +222,13 @@ public class SettingsActivity extends AppCompatActivity {
             SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(getContext());
             final Preference addressButton = getPreferenceManager().findPreference("server_address");
             if (addressButton != null) {
-                addressButton.setSummary(new Discovery.Server(sharedPreferences.getString(SERVER_PREF_KEY,"")).describe());
+                addressButton.setSummary(new Server(sharedPreferences.getString(SERVER_PREF_KEY,"")).describe());
                 addressButton.setOnPreferenceClickListener(arg0 -> {
                     if (getContext()!=null) {
                         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
                         builder.setTitle(R.string.server_address);
                         SharedPreferences sharedPreferences1 = PreferenceManager.getDefaultSharedPreferences(getContext());
-                        Discovery.Server server = new Discovery.Server(sharedPreferences1.getString(SERVER_PREF_KEY, null));
+                        Server server = new Server(sharedPreferences1.getString(SERVER_PREF_KEY, null));
 
                         int padding = getResources().getDimensionPixelOffset(R.dimen.dlg_padding);
                         final EditText input = new EditText(getContext());
@@ -238,7 +243,7 @@ public class SettingsActivity extends AppCompatActivity {
                         builder.setPositiveButton(R.string.ok, (dialog, which) -> {
                             String str = input.getText().toString().replaceAll("\\s+", "");
                             String[] parts = str.split(":");
-                            Discovery.Server server1 = new Discovery.Server(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : Discovery.Server.DEFAULT_PORT, null);
+                            Server server1 = new Server(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : Server.DEFAULT_PORT, null);
                             SharedPreferences sharedPreferences11 = PreferenceManager.getDefaultSharedPreferences(getContext());
                             SharedPreferences.Editor editor = sharedPreferences11.edit();
                             editor.putString(SERVER_PREF_KEY, server1.encode());
@@ -353,12 +358,13 @@ public class SettingsActivity extends AppCompatActivity {
             updateListSummary(ON_CALL_PREF_KEY);
             setAfterCallState();
             updateListSummary(PLAYER_APP_PREF_KEY);
+            updateListSummary(SUBSCRIBED_PLAYERS_PREF_KEY);
             PreferenceManager.getDefaultSharedPreferences(getContext()).registerOnSharedPreferenceChangeListener(this);
         }
 
         @Override
         public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-            if (ORIENTATION_PREF_KEY.equals(key)) {
+            if (ORIENTATION_PREF_KEY.equals(key) || SUBSCRIBED_PLAYERS_PREF_KEY.equals(key)) {
                 updateListSummary(key);
             }
 
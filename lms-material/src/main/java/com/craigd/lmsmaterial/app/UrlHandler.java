@@ -17,7 +17,8 @@ import android.widget.Spinner;
 
 import androidx.appcompat.app.AlertDialog;
 
-import com.android.volley.Response;
+import com.craigd.lmsmaterial.app.cometd.PlayerRegistry;
+import com.craigd.lmsmaterial.app.platform.Http;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -51,7 +52,7 @@ public class UrlHandler {
         }
     }
 
-    private final Response.Listener<JSONObject> serverStatusResponse = new Response.Listener<JSONObject> () {
+    private final Http.Listener serverStatusResponse = new Http.Listener() {
         @Override
         public void onResponse(JSONObject response) {
             playerList.clear();
@@ -71,76 +72,80 @@ public class UrlHandler {
             } catch (JSONException e) {
                 Utils.error( "Failed to parse response", e);
             }
-            if (playerList.isEmpty()) {
-                return;
-            }
-            Collections.sort(playerList);
-
-            // Create dialog
-            if (null==dialog) {
-                AlertDialog.Builder builder = new AlertDialog.Builder(mainActivity);
-                LayoutInflater inflater = mainActivity.getLayoutInflater();
-                View view = inflater.inflate(R.layout.url_handler, null);
-
-                builder.setView(view)
-                        .setNegativeButton(R.string.cancel, (dialog, id) -> dialog.dismiss());
-                dialog = builder.create();
-                playerName = view.findViewById(R.id.player_name);
-
-                Button play_now = view.findViewById(R.id.play_now_button);
-                Button play_next = view.findViewById(R.id.play_next_button);
-                Button insert = view.findViewById(R.id.insert_button);
-
-                play_now.setOnClickListener(view1 -> {
-                    dialog.dismiss();
-                    addUrlToPlayer("play");
-                });
-                play_next.setOnClickListener(view12 -> {
-                    dialog.dismiss();
-                    addUrlToPlayer("add");
-                });
-                insert.setOnClickListener(view13 -> {
-                    dialog.dismiss();
-                    addUrlToPlayer("insert");
-                });
-                playerName.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-                    @Override
-                    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                        chosenPlayer = position;
-                    }
+            showPlayers();
+        }
+    };
 
-                    @Override
-                    public void onNothingSelected(AdapterView<?> parent) {
-                    }
-                });
-            }
+    private void showPlayers() {
+        if (playerList.isEmpty()) {
+            return;
+        }
+        Collections.sort(playerList);
+
+        // Create dialog
+        if (null==dialog) {
+            AlertDialog.Builder builder = new AlertDialog.Builder(mainActivity);
+            LayoutInflater inflater = mainActivity.getLayoutInflater();
+            View view = inflater.inflate(R.layout.url_handler, null);
+
+            builder.setView(view)
+                    .setNegativeButton(R.string.cancel, (dialog, id) -> dialog.dismiss());
+            dialog = builder.create();
+            playerName = view.findViewById(R.id.player_name);
+
+            Button play_now = view.findViewById(R.id.play_now_button);
+            Button play_next = view.findViewById(R.id.play_next_button);
+            Button insert = view.findViewById(R.id.insert_button);
+
+            play_now.setOnClickListener(view1 -> {
+                dialog.dismiss();
+                addUrlToPlayer("play");
+            });
+            play_next.setOnClickListener(view12 -> {
+                dialog.dismiss();
+                addUrlToPlayer("add");
+            });
+            insert.setOnClickListener(view13 -> {
+                dialog.dismiss();
+                addUrlToPlayer("insert");
+            });
+            playerName.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    chosenPlayer = position;
+                }
 
-            // Initialise items
-            ArrayList<String> player_names = new ArrayList<>();
-            for (Player player: playerList) {
-                player_names.add(player.name);
-            }
-            ArrayAdapter<String> adapter = new ArrayAdapter<>(mainActivity, android.R.layout.simple_spinner_item, player_names);
-            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-            playerName.setAdapter(adapter);
-
-            chosenPlayer = 0;
-            if (null!=MainActivity.activePlayer) {
-                for (int i=0; i<playerList.size(); ++i) {
-                    if (playerList.get(i).id.equals(MainActivity.activePlayer)) {
-                        chosenPlayer = i;
-                        break;
-                    }
+                @Override
+                public void onNothingSelected(AdapterView<?> parent) {
                 }
-            }
-            playerName.setSelection(chosenPlayer);
+            });
+        }
 
-            // Show dialog
-            dialog.show();
+        // Initialise items
+        ArrayList<String> player_names = new ArrayList<>();
+        for (Player player: playerList) {
+            player_names.add(player.name);
         }
-    };
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(mainActivity, android.R.layout.simple_spinner_item, player_names);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        playerName.setAdapter(adapter);
+
+        chosenPlayer = 0;
+        if (null!=MainActivity.activePlayer) {
+            for (int i=0; i<playerList.size(); ++i) {
+                if (playerList.get(i).id.equals(MainActivity.activePlayer)) {
+                    chosenPlayer = i;
+                    break;
+                }
+            }
+        }
+        playerName.setSelection(chosenPlayer);
 
-    private final Response.Listener<JSONObject> addActionResponse = new Response.Listener<JSONObject> () {
+        // Show dialog
+        dialog.show();
+    }
+
+    private final Http.Listener addActionResponse = new Http.Listener() {
         @Override
         public void onResponse(JSONObject response) {
             if (chosenPlayer>=0 && chosenPlayer<playerList.size()) {
@@ -156,9 +161,19 @@ public class UrlHandler {
     public synchronized void handle(String url) {
         Utils.debug("Shared URL:" + url);
         if (null==rpc) {
-            rpc = new JsonRpc(mainActivity);
+            rpc = new JsonRpc(AndroidPlatform.get(mainActivity));
         }
         handlingUrl = url;
+        PlayerRegistry players = ControlService.getPlayers();
+        if (null!=players) {
+            playerList.clear();
+            for (PlayerRegistry.Player player : players.getPlayers()) {
+                playerList.add(new Player(player.name, player.id));
+            }
+            Utils.debug("Registry, numPlayers:" + playerList.size());
+            showPlayers();
+            return;
+        }
         rpc.sendMessage("", new String[]{"serverstatus", "0", "100"}, serverStatusResponse);
     }
 
@@ -35,20 +35,44 @@ import android.widget.Toast;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationManagerCompat;
 
+import com.craigd.lmsmaterial.app.platform.Logger;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import io.github.muddz.styleabletoast.StyleableToast;
 
 public class Utils {
     public static final String LOG_TAG = "LMS";
 
+    static {
+        // Send logging from lms-core to logcat as well
+        if (BuildConfig.DEBUG) {
+            Logger.setSink((level, message, t) -> {
+                switch (level) {
+                    case VERBOSE:
+                        Log.v(LOG_TAG, message, t);
+                        break;
+                    case DEBUG:
+                        Log.d(LOG_TAG, message, t);
+                        break;
+                    case INFO:
+                        Log.i(LOG_TAG, message, t);
+                        break;
+                    case WARN:
+                        Log.w(LOG_TAG, message, t);
+                        break;
+                    default:
+                        Log.e(LOG_TAG, message, t);
+                        break;
+                }
+            });
+        }
+    }
+
     public static boolean isNetworkConnected(Context context) {
         ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         NetworkInfo info = connectivityManager.getActiveNetworkInfo();
@@ -129,29 +153,15 @@ public class Utils {
     }
 
     public static boolean isEmpty(String str) {
-        return null==str || str.isEmpty();
+        return Strings.isEmpty(str);
     }
 
     public static String encodeURIComponent(String str) {
-        try {
-            return URLEncoder.encode(str, "UTF-8")
-                    .replaceAll("\\+", "%20")
-                    .replaceAll("\\%21", "!")
-                    .replaceAll("\\%27", "'")
-                    .replaceAll("\\%28", "(")
-                    .replaceAll("\\%29", ")")
-                    .replaceAll("\\%7E", "~");
-        } catch (UnsupportedEncodingException ignored)  {
-        }
-        return str;
+        return Strings.encodeURIComponent(str);
     }
 
     public static String timeStr(long ms) {
-        return String.format("%02d:%02d",
-                TimeUnit.MILLISECONDS.toMinutes(ms) -
-                        TimeUnit.HOURS.toMinutes(TimeUnit.MILLISECONDS.toHours(ms)),
-                TimeUnit.MILLISECONDS.toSeconds(ms) -
-                        TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(ms)));
+        return Strings.timeStr(ms);
     }
 
     private static String logPrefix() {